@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.net.Uri;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import bd.com.ipay.sdk.util.CheckoutCallbackParser;
+
+/**
+ * Parsing of the deep link the iPay app calls back with, <code>scheme://checkoutId/status</code>.
+ * {@link #checkoutCallbackParser(Blackhole)} is the approach of
+ * {@link bd.com.ipay.sdk.activity.IPayCheckoutActivity}, {@link #replaceAll(Blackhole)} is the
+ * approach it replaced and the others are its alternatives.
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+@State(Scope.Benchmark)
+public class CallbackUriParsingBenchmark {
+	private static final Pattern CALLBACK_PATTERN = Pattern.compile("[^:]+://(.*)/(.*)");
+
+	private String callbackUrl = "ipaymerchant123://IPAY-AB12CD34EF/success";
+
+	@Benchmark
+	public void checkoutCallbackParser(Blackhole blackhole) {
+		blackhole.consume(CheckoutCallbackParser.getCheckoutId(callbackUrl));
+		blackhole.consume(CheckoutCallbackParser.getCheckoutStatus(callbackUrl));
+	}
+
+	@Benchmark
+	public void replaceAll(Blackhole blackhole) {
+		final String urlScheme = Uri.parse(callbackUrl).getScheme();
+		blackhole.consume(callbackUrl.replaceAll(urlScheme + "://(.*)/(.*)", "$1"));
+		blackhole.consume(callbackUrl.replaceAll(urlScheme + "://(.*)/(.*)", "$2"));
+	}
+
+	@Benchmark
+	public void precompiledPattern(Blackhole blackhole) {
+		final Matcher matcher = CALLBACK_PATTERN.matcher(callbackUrl);
+		if (matcher.matches()) {
+			blackhole.consume(matcher.group(1));
+			blackhole.consume(matcher.group(2));
+		}
+	}
+
+	@Benchmark
+	public void uri(Blackhole blackhole) {
+		final Uri uri = Uri.parse(callbackUrl);
+		blackhole.consume(uri.getHost());
+		blackhole.consume(uri.getLastPathSegment());
+	}
+
+	@Benchmark
+	public void indexOf(Blackhole blackhole) {
+		final int start = callbackUrl.indexOf("://") + 3;
+		final int slash = callbackUrl.lastIndexOf('/');
+		if (start > 2 && slash >= start) {
+			blackhole.consume(callbackUrl.substring(start, slash));
+			blackhole.consume(callbackUrl.substring(slash + 1));
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Checkout url validation and the checkout status lookup, run on every checkout.
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+@State(Scope.Benchmark)
+public class CheckoutUrlBenchmark {
+	private String validCheckoutUrl = "https://app.ipay.com.bd/checkout/pay/IPAY-AB12CD34EF";
+	private String invalidCheckoutUrl = "https://merchant.com/checkout/pay/IPAY-AB12CD34EF";
+	private String firstStatus = "success";
+	private String lastStatus = "timeout";
+	private String unknownStatus = "pending";
+
+	@Benchmark
+	public boolean isValidIPayCheckoutUrl() {
+		return SDKUtils.isValidIPayCheckoutUrl(validCheckoutUrl);
+	}
+
+	@Benchmark
+	public boolean isValidIPayCheckoutUrlInvalid() {
+		return SDKUtils.isValidIPayCheckoutUrl(invalidCheckoutUrl);
+	}
+
+	@Benchmark
+	public IPaySDK.CheckoutStatus checkoutStatusFirst() {
+		return IPaySDK.CheckoutStatus.getValue(firstStatus);
+	}
+
+	@Benchmark
+	public IPaySDK.CheckoutStatus checkoutStatusLast() {
+		return IPaySDK.CheckoutStatus.getValue(lastStatus);
+	}
+
+	@Benchmark
+	public IPaySDK.CheckoutStatus checkoutStatusUnknown() {
+		return IPaySDK.CheckoutStatus.getValue(unknownStatus);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.app.ApplicationPackageManager;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * {@link IPaySDK#performCheckout(Activity, String, boolean)} when iPay app isn't installed and
+ * for an invalid checkout url, the outcomes which don't start a checkout screen. The package
+ * manager reports the missing app the way the platform does, by throwing
+ * {@link PackageManager.NameNotFoundException}, and the Play Store intent is dropped.
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+@State(Scope.Benchmark)
+public class PerformCheckoutBenchmark {
+	private String validCheckoutUrl = "https://app.ipay.com.bd/checkout/pay/IPAY-AB12CD34EF";
+	private String invalidCheckoutUrl = "https://merchant.com/checkout/pay/IPAY-AB12CD34EF";
+	private Activity activity;
+
+	@Setup
+	public void setUp() throws Exception {
+		IPaySDK.setDebugLogEnabled(false);
+		// Initializing needs the manifest of an app, so the SDK is marked as initialized and
+		// only the checkout itself is measured.
+		final Field sdkInitialized = IPaySDK.class.getDeclaredField("sdkInitialized");
+		sdkInitialized.setAccessible(true);
+		sdkInitialized.setBoolean(null, true);
+		// The constructor of Activity needs the Looper of a device, which is native. None of the
+		// state it sets up is touched by these checkouts, so the activity is allocated without it.
+		final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+		final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+		theUnsafe.setAccessible(true);
+		final Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+		activity = (Activity) allocateInstance.invoke(theUnsafe.get(null), BenchmarkActivity.class);
+	}
+
+	@Benchmark
+	public IPaySDK.CheckoutState performCheckoutNotInstalled() {
+		return IPaySDK.performCheckout(activity, validCheckoutUrl, false);
+	}
+
+	@Benchmark
+	public IPaySDK.CheckoutState performCheckoutInvalidUrl() {
+		return IPaySDK.performCheckout(activity, invalidCheckoutUrl, false);
+	}
+
+	private static class BenchmarkActivity extends Activity {
+		private static final PackageManager PACKAGE_MANAGER = new ApplicationPackageManager(null, null) {
+			@Override
+			public PackageInfo getPackageInfo(String packageName, int flags)
+					throws NameNotFoundException {
+				throw new NameNotFoundException(packageName);
+			}
+		};
+
+		@Override
+		public PackageManager getPackageManager() {
+			return PACKAGE_MANAGER;
+		}
+
+		@Override
+		public String getPackageName() {
+			return "bd.com.ipay.sdk.benchmark";
+		}
+
+		@Override
+		public void startActivity(Intent intent) {
+			// The Play Store isn't opened.
+		}
+
+		@Override
+		public void startActivity(Intent intent, Bundle options) {
+			// The Play Store isn't opened.
+		}
+	}
+}
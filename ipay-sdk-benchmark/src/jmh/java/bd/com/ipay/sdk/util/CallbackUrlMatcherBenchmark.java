@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Classification of the urls the web checkout navigates to against the callback urls, run on
+ * every navigation of the web checkout.
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+@State(Scope.Benchmark)
+public class CallbackUrlMatcherBenchmark {
+	private CallbackUrlMatcher literalMatcher;
+	private CallbackUrlMatcher regexMatcher;
+	private String checkoutPageUrl = "https://app.ipay.com.bd/checkout/pay/IPAY-AB12CD34EF?step=2";
+	private String cancelledUrl = "https://merchant.com/checkout/cancelled?order=1234";
+
+	@Setup
+	public void setUp() {
+		literalMatcher = CallbackUrlMatcher.compile("https://merchant.com/checkout/success",
+				"https://merchant.com/checkout/failed", "https://merchant.com/checkout/cancelled");
+		regexMatcher = CallbackUrlMatcher.compile("https://merchant\\.com/checkout/success.*",
+				"https://merchant\\.com/checkout/failed.*", "https://merchant\\.com/checkout/cancelled.*");
+	}
+
+	@Benchmark
+	public CallbackUrlMatcher compile() {
+		return CallbackUrlMatcher.compile("https://merchant\\.com/checkout/success.*",
+				"https://merchant\\.com/checkout/failed.*", "https://merchant\\.com/checkout/cancelled.*");
+	}
+
+	@Benchmark
+	public int literalNoMatch() {
+		return literalMatcher.match(checkoutPageUrl);
+	}
+
+	@Benchmark
+	public int literalMatch() {
+		return literalMatcher.match(cancelledUrl);
+	}
+
+	@Benchmark
+	public int regexNoMatch() {
+		return regexMatcher.match(checkoutPageUrl);
+	}
+
+	@Benchmark
+	public int regexMatch() {
+		return regexMatcher.match(cancelledUrl);
+	}
+}
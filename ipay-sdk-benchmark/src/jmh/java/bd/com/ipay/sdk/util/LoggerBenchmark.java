@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.util;
+
+import android.util.Log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import bd.com.ipay.sdk.web.WebCheckoutController;
+
+/**
+ * Tag building and message splitting of {@link Logger}. The lines are printed to a
+ * {@link Blackhole} instead of logcat.
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+@State(Scope.Benchmark)
+public class LoggerBenchmark {
+	private Logger.Printer printer;
+	private String shortMessage = "Web checkout timed out, timeout 0, url https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private String stackTraceMessage;
+	private String longMessage;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		printer = new Logger.Printer() {
+			@Override
+			public int println(int priority, String tag, String msg) {
+				blackhole.consume(msg);
+				return msg.length();
+			}
+		};
+		final StringWriter stackTrace = new StringWriter();
+		new IllegalStateException("renderer is gone").printStackTrace(new PrintWriter(stackTrace));
+		stackTraceMessage = "Recovering the web checkout\n" + stackTrace;
+		final StringBuilder longMessageBuilder = new StringBuilder();
+		while (longMessageBuilder.length() < 10000) {
+			longMessageBuilder.append("{\"name\":\"https://app.ipay.com.bd/static/app.js\",\"duration\":12},");
+		}
+		longMessage = longMessageBuilder.toString();
+	}
+
+	@Benchmark
+	public String smartTag() {
+		return Logger.smartTag(WebCheckoutController.class);
+	}
+
+	@Benchmark
+	public int printlnShort() {
+		return Logger.println(printer, Log.DEBUG, "b.c.i.s.w.WebCheckoutController", shortMessage);
+	}
+
+	@Benchmark
+	public int printlnStackTrace() {
+		return Logger.println(printer, Log.ERROR, "b.c.i.s.w.WebCheckoutController", stackTraceMessage);
+	}
+
+	@Benchmark
+	public int printlnLong() {
+		return Logger.println(printer, Log.DEBUG, "b.c.i.s.w.CheckoutLoadMetrics", longMessage);
+	}
+}
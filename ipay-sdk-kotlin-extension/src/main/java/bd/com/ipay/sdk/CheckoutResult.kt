@@ -0,0 +1,54 @@
+package bd.com.ipay.sdk
+
+import android.content.Intent
+
+/**
+ * Result of a checkout performed with [checkout].
+ */
+sealed class CheckoutResult {
+    /**
+     * The checkout screen has returned the status of the checkout.
+     *
+     * @property checkoutStatus status of the checkout
+     * @property checkoutId     id of the checkout, null if it hasn't been reported
+     */
+    data class Completed(val checkoutStatus: IPaySDK.CheckoutStatus,
+                         val checkoutId: String?) : CheckoutResult()
+
+    /**
+     * The checkout couldn't be started.
+     *
+     * @property checkoutState state the checkout has failed with
+     */
+    data class NotStarted(val checkoutState: IPaySDK.CheckoutState) : CheckoutResult()
+
+    /**
+     * The checkout screen has been closed without a status, e.g. with the back button.
+     */
+    object Abandoned : CheckoutResult()
+}
+
+/**
+ * Event of the timeline of a checkout performed with [checkoutEvents].
+ */
+sealed class CheckoutEvent {
+    /**
+     * The checkout screen has been started, or the checkout has failed to start when the
+     * [checkoutState] isn't [IPaySDK.CheckoutState.PROCESSING].
+     */
+    data class Started(val checkoutState: IPaySDK.CheckoutState) : CheckoutEvent()
+
+    /**
+     * The checkout has finished, this is the last event.
+     */
+    data class Finished(val result: CheckoutResult) : CheckoutEvent()
+}
+
+/**
+ * @return the result carried by the intent the checkout screen has finished with.
+ */
+internal fun Intent?.toCheckoutResult(): CheckoutResult {
+    val checkoutStatus = this?.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY)
+            as? IPaySDK.CheckoutStatus ?: return CheckoutResult.Abandoned
+    return CheckoutResult.Completed(checkoutStatus, getStringExtra(IPaySDK.CHECKOUT_ID_KEY))
+}
@@ -0,0 +1,44 @@
+@file:Suppress("DEPRECATION")
+
+package bd.com.ipay.sdk
+
+import android.app.Fragment
+import android.content.Intent
+import kotlinx.coroutines.CompletableDeferred
+
+/**
+ * Headless fragment starting one checkout, so the result of the checkout arrives in
+ * [onActivityResult] of the fragment instead of the activity. The fragment removes itself once
+ * the result has arrived. Its inherited [startActivityForResult] starts the checkout screen.
+ */
+internal class CheckoutResultFragment : Fragment(), IPaySDK.ActivityResultStarter {
+    val checkoutResult = CompletableDeferred<CheckoutResult>()
+    var checkoutState = IPaySDK.CheckoutState.UNABLE_TO_PROCESS
+
+    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
+        super.onActivityResult(requestCode, resultCode, data)
+        complete(data.toCheckoutResult())
+    }
+
+    override fun onDestroy() {
+        // The activity has gone away before the result, nobody is left to receive it.
+        checkoutResult.cancel()
+        super.onDestroy()
+    }
+
+    fun complete(result: CheckoutResult) {
+        if (checkoutResult.complete(result)) {
+            remove()
+        }
+    }
+
+    fun remove() {
+        if (isAdded && !activity.isFinishing) {
+            fragmentManager.beginTransaction().remove(this).commitAllowingStateLoss()
+        }
+    }
+
+    companion object {
+        const val TAG = "bd.com.ipay.sdk.CheckoutResultFragment"
+    }
+}
@@ -3,7 +3,18 @@ package bd.com.ipay.sdk
 import android.app.Activity
 import android.content.Context
 import bd.com.ipay.sdk.exception.IPaySDKException
+import bd.com.ipay.sdk.exception.IPaySDKInitializeException
 import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withContext
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
 
 /**
  * As iPay SDK initializes automatically(<b>This function is called automatically on app
@@ -27,6 +38,108 @@ fun Context.initializeIPaySDK() =
 fun Context.initializeIPaySDK(initializeCallback: IPaySDK.InitializeCallback?) =
         IPaySDK.initialize(this, initializeCallback)
 
+/**
+ * Initializes the SDK off the main thread and suspends until it's done, instead of blocking or
+ * passing an [IPaySDK.InitializeCallback]. Returns right away when the SDK is already initialized.
+ *
+ * @throws IPaySDKInitializeException if the environment isn't suitable to perform iPay checkout
+ */
+@Suppress("unused")
+suspend fun Context.awaitIPaySDK() {
+    val applicationContext = applicationContext
+    withContext(Dispatchers.IO) {
+        suspendCancellableCoroutine<Unit> { continuation ->
+            IPaySDK.initialize(applicationContext, object : IPaySDK.InitializeCallback {
+                override fun onInitializationSuccess() = continuation.resume(Unit)
+
+                override fun onFailure(tr: Throwable) = continuation.resumeWithException(tr)
+            })
+        }
+    }
+}
+
+/**
+ * Performs a checkout and suspends until its result, instead of receiving it in
+ * `onActivityResult` and dispatching by the request code. The checkout is started from a
+ * headless fragment, so the result never reaches `onActivityResult` of the activity. Without
+ * [checkoutCallbackActionUrls] the checkout goes through iPay app only, see
+ * [performCheckout], otherwise it falls back to the web checkout, see
+ * [performCheckoutWithFallback].
+ *
+ * Call it from a coroutine bound to the lifecycle of the activity. When the activity is
+ * destroyed before the result, e.g. on a configuration change, the coroutine is cancelled.
+ *
+ * @param checkoutUrl                iPay checkout url
+ * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during the
+ * creation of the checkout, null to checkout through iPay app only
+ * @return the result of the checkout.
+ */
+@Suppress("unused")
+suspend fun Activity.checkout(checkoutUrl: String,
+                              checkoutCallbackActionUrls: CheckoutCallbackActionUrls? = null) =
+        withContext(Dispatchers.Main) {
+            startCheckout(checkoutUrl, checkoutCallbackActionUrls)
+        }.awaitCheckoutResult()
+
+/**
+ * Same as [checkout], as a cold flow of the timeline of the checkout. Every collection performs
+ * a new checkout, emitting [CheckoutEvent.Started] and then [CheckoutEvent.Finished].
+ *
+ * @param checkoutUrl                iPay checkout url
+ * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during the
+ * creation of the checkout, null to checkout through iPay app only
+ * @return a flow of the events of the checkout.
+ */
+@FlowPreview
+@Suppress("unused")
+fun Activity.checkoutEvents(checkoutUrl: String,
+                            checkoutCallbackActionUrls: CheckoutCallbackActionUrls? = null):
+        Flow<CheckoutEvent> = flow {
+    val fragment = withContext(Dispatchers.Main) {
+        startCheckout(checkoutUrl, checkoutCallbackActionUrls)
+    }
+    emit(CheckoutEvent.Started(fragment.checkoutState))
+    emit(CheckoutEvent.Finished(fragment.awaitCheckoutResult()))
+}
+
+/**
+ * Adds a [CheckoutResultFragment] and starts the checkout from it. Must be called on the main
+ * thread.
+ */
+@Suppress("DEPRECATION")
+private fun Activity.startCheckout(checkoutUrl: String,
+                                   checkoutCallbackActionUrls: CheckoutCallbackActionUrls?):
+        CheckoutResultFragment {
+    val fragment = CheckoutResultFragment()
+    fragmentManager.beginTransaction().add(fragment, CheckoutResultFragment.TAG).commit()
+    fragmentManager.executePendingTransactions()
+    fragment.checkoutState = if (checkoutCallbackActionUrls == null) {
+        IPaySDK.performCheckout(this, checkoutUrl, false, fragment)
+    } else {
+        IPaySDK.performCheckoutWithFallback(this, checkoutUrl, checkoutCallbackActionUrls,
+                fragment)
+    }
+    if (fragment.checkoutState != IPaySDK.CheckoutState.PROCESSING) {
+        fragment.complete(CheckoutResult.NotStarted(fragment.checkoutState))
+    }
+    return fragment
+}
+
+/**
+ * Waits for the result of the checkout, removing the fragment when the waiting coroutine is
+ * cancelled.
+ */
+private suspend fun CheckoutResultFragment.awaitCheckoutResult(): CheckoutResult {
+    try {
+        return checkoutResult.await()
+    } catch (e: CancellationException) {
+        withContext(NonCancellable + Dispatchers.Main) {
+            remove()
+        }
+        throw e
+    }
+}
+
 /**
  * If the device have iPay app installed, for a valid checkout url, this method will perform a
  * checkout through iPay app. In case of iPay isn't present it will open Play Store to install
@@ -72,7 +185,7 @@ fun Activity.performCheckout(checkoutUrl: String, shouldThrow: Boolean) =
  */
 fun Activity.performCheckout(checkoutUrl: String,
                              shouldThrow: Boolean, useCallbackActivity: Boolean) =
-        IPaySDK.performCheckout(this, checkoutUrl, shouldThrow, useCallbackActivity)!!
+        IPaySDK.performCheckout(this, checkoutUrl, shouldThrow, useCallbackActivity)
 
 /**
  * For a valid checkout url, this method will perform a checkout through iPay app. In case of
@@ -105,7 +218,7 @@ fun Activity.performCheckoutWithFallback(checkoutUrl: String,
 fun Activity.performCheckoutWithFallback(checkoutUrl: String, useCallbackActivity: Boolean,
                                          checkoutCallbackActionUrls: CheckoutCallbackActionUrls) =
         IPaySDK.performCheckoutWithFallback(this, checkoutUrl, useCallbackActivity,
-                checkoutCallbackActionUrls)!!
+                checkoutCallbackActionUrls)
 
 /**
  * @param checkoutCallBackActivity Callback activity canonical name
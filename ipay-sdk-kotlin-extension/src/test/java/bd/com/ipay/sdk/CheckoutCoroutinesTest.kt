@@ -0,0 +1,199 @@
+package bd.com.ipay.sdk
+
+import android.app.Activity
+import android.content.Context
+import android.content.ContextWrapper
+import android.content.Intent
+import android.content.pm.PackageInfo
+import android.content.res.Resources
+import bd.com.ipay.sdk.activity.IPayCheckoutActivity
+import bd.com.ipay.sdk.exception.IPaySDKInitializeException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.android.controller.ActivityController
+import org.robolectric.shadows.ShadowLooper
+
+@ExperimentalCoroutinesApi
+@RunWith(RobolectricTestRunner::class)
+class CheckoutCoroutinesTest {
+    private lateinit var activityController: ActivityController<Activity>
+    private lateinit var activity: Activity
+    private lateinit var scope: CoroutineScope
+    private var debugLogEnabled = false
+
+    @Before
+    fun setUp() {
+        debugLogEnabled = IPaySDK.isDebugLogEnabled()
+        IPaySDK.setDebugLogEnabled(false)
+        activityController = Robolectric.buildActivity(Activity::class.java).setup()
+        activity = activityController.get()
+        scope = CoroutineScope(Job() + Dispatchers.Main)
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        IPaySDK.resetInitialization()
+        IPaySDK.setDebugLogEnabled(debugLogEnabled)
+    }
+
+    @Test
+    fun testAwaitIPaySDK() {
+        runBlocking { CallbackSchemeContext(RuntimeEnvironment.application).awaitIPaySDK() }
+        assertTrue(IPaySDK.isInitialized())
+        // Returns right away once initialized, the placeholder scheme isn't checked again.
+        runBlocking { RuntimeEnvironment.application.awaitIPaySDK() }
+    }
+
+    @Test
+    fun testAwaitIPaySDKThrowsTheInitializationFailure() {
+        try {
+            // The SDK resources only hold the placeholder callback url scheme.
+            runBlocking { RuntimeEnvironment.application.awaitIPaySDK() }
+            fail()
+        } catch (expected: IPaySDKInitializeException) {
+        }
+        assertFalse(IPaySDK.isInitialized())
+    }
+
+    @Test
+    fun testCheckoutReturnsTheResultOfItsFragment() {
+        installIPayApp()
+        val checkout = scope.async(start = CoroutineStart.UNDISPATCHED) {
+            activity.checkout(CHECKOUT_URL)
+        }
+        ShadowLooper.idleMainLooper()
+        val fragment = checkoutResultFragment()
+        assertNotNull(fragment)
+        assertEquals(IPayCheckoutActivity::class.java.name,
+                shadowOf(activity).nextStartedActivityForResult.intent.component!!.className)
+
+        fragment!!.onActivityResult(IPaySDK.getCheckoutRequestCode(), Activity.RESULT_OK,
+                Intent().putExtra(IPaySDK.CHECKOUT_STATUS_KEY, IPaySDK.CheckoutStatus.SUCCESS)
+                        .putExtra(IPaySDK.CHECKOUT_ID_KEY, "IPAY-1"))
+        ShadowLooper.idleMainLooper()
+        assertEquals(CheckoutResult.Completed(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-1"),
+                checkout.getCompleted())
+        assertNull(checkoutResultFragment())
+    }
+
+    @Test
+    fun testCancelledCheckoutRemovesItsFragment() {
+        installIPayApp()
+        val checkout = scope.async(start = CoroutineStart.UNDISPATCHED) {
+            activity.checkout(CHECKOUT_URL)
+        }
+        ShadowLooper.idleMainLooper()
+        assertNotNull(checkoutResultFragment())
+
+        checkout.cancel()
+        ShadowLooper.idleMainLooper()
+        assertTrue(checkout.isCancelled)
+        assertNull(checkoutResultFragment())
+    }
+
+    @Test
+    fun testCheckoutIsCancelledWhenTheActivityIsDestroyed() {
+        installIPayApp()
+        val checkout = scope.async(start = CoroutineStart.UNDISPATCHED) {
+            activity.checkout(CHECKOUT_URL)
+        }
+        ShadowLooper.idleMainLooper()
+
+        activityController.pause().stop().destroy()
+        ShadowLooper.idleMainLooper()
+        assertTrue(checkout.isCancelled)
+    }
+
+    @FlowPreview
+    @Test
+    fun testCheckoutEvents() {
+        val events = scope.async(start = CoroutineStart.UNDISPATCHED) {
+            activity.checkoutEvents(INVALID_CHECKOUT_URL).toList()
+        }
+        ShadowLooper.idleMainLooper()
+        assertEquals(listOf(
+                CheckoutEvent.Started(IPaySDK.CheckoutState.INVALID_CHECKOUT_URL),
+                CheckoutEvent.Finished(
+                        CheckoutResult.NotStarted(IPaySDK.CheckoutState.INVALID_CHECKOUT_URL))),
+                events.getCompleted())
+        assertNull(checkoutResultFragment())
+    }
+
+    @FlowPreview
+    @Test
+    fun testCheckoutEventsFinishWithTheResultOfTheCheckout() {
+        installIPayApp()
+        val events = scope.async(start = CoroutineStart.UNDISPATCHED) {
+            activity.checkoutEvents(CHECKOUT_URL).toList()
+        }
+        ShadowLooper.idleMainLooper()
+        assertFalse(events.isCompleted)
+
+        // The checkout screen has been closed with the back button.
+        checkoutResultFragment()!!.onActivityResult(IPaySDK.getCheckoutRequestCode(),
+                Activity.RESULT_CANCELED, null)
+        ShadowLooper.idleMainLooper()
+        assertEquals(listOf(
+                CheckoutEvent.Started(IPaySDK.CheckoutState.PROCESSING),
+                CheckoutEvent.Finished(CheckoutResult.Abandoned)),
+                events.getCompleted())
+    }
+
+    private fun installIPayApp() {
+        val packageInfo = PackageInfo()
+        packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME
+        shadowOf(activity.packageManager).addPackage(packageInfo)
+    }
+
+    @Suppress("DEPRECATION")
+    private fun checkoutResultFragment() = activity.fragmentManager
+            .findFragmentByTag(CheckoutResultFragment.TAG) as CheckoutResultFragment?
+
+    /**
+     * Application context answering the callback url scheme of strings.xml the way a merchant
+     * app does, as the SDK resources only hold the placeholder scheme.
+     */
+    private class CallbackSchemeContext(base: Context) : ContextWrapper(base) {
+        private val callbackUrlSchemeId = base.resources.getIdentifier(
+                "ipay_callback_url_scheme", "string", base.packageName)
+
+        @Suppress("DEPRECATION")
+        private val callbackResources = object : Resources(base.resources.assets,
+                base.resources.displayMetrics, base.resources.configuration) {
+            override fun getString(id: Int) =
+                    if (id == callbackUrlSchemeId) "ipaytest" else super.getString(id)
+        }
+
+        override fun getApplicationContext() = this
+
+        override fun getResources() = callbackResources
+    }
+
+    companion object {
+        private const val CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1"
+        private const val INVALID_CHECKOUT_URL = "https://www.google.com/checkout/pay/IPAY-1"
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * <p>
+ * Immutable set of the values a checkout of one merchant account is performed with: the
+ * callback url scheme the iPay app calls back with, the request code of the checkout result and
+ * the callback activity. Apps settling payments for several merchant accounts register a profile
+ * per merchant once with {@link IPaySDK#registerCheckoutProfile(android.content.Context, Builder)},
+ * which validates it, and pass the profile to each checkout.
+ * </p>
+ * <p>
+ * Switching between merchants is then only a matter of passing another profile, the global
+ * configuration of {@link IPaySDK} isn't touched and nothing is validated again.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CheckoutProfile {
+	@NonNull
+	private final String name;
+	@Nullable
+	private final String callbackUrlScheme;
+	private final int checkoutRequestCode;
+	@Nullable
+	private final String checkoutCallBackActivity;
+
+	CheckoutProfile(@NonNull Builder builder, @Nullable String checkoutCallBackActivity) {
+		name = builder.name;
+		callbackUrlScheme = builder.callbackUrlScheme;
+		checkoutRequestCode = builder.checkoutRequestCode;
+		this.checkoutCallBackActivity = checkoutCallBackActivity;
+	}
+
+	/**
+	 * @return name the profile is registered with.
+	 */
+	@NonNull
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return callback url scheme of the merchant, null if the merchant uses the
+	 * <code>ipay_callback_url_scheme</code> of the app.
+	 */
+	@Nullable
+	public String getCallbackUrlScheme() {
+		return callbackUrlScheme;
+	}
+
+	/**
+	 * @return request code the checkout result of the merchant comes back with.
+	 */
+	public int getCheckoutRequestCode() {
+		return checkoutRequestCode;
+	}
+
+	/**
+	 * @return canonical name of the callback activity of the merchant, null if there is none.
+	 */
+	@Nullable
+	public String getCheckoutCallBackActivity() {
+		return checkoutCallBackActivity;
+	}
+
+	@Override
+	public String toString() {
+		return "CheckoutProfile{" +
+				"name='" + name + '\'' +
+				", callbackUrlScheme='" + callbackUrlScheme + '\'' +
+				", checkoutRequestCode=" + checkoutRequestCode +
+				", checkoutCallBackActivity='" + checkoutCallBackActivity + '\'' +
+				'}';
+	}
+
+	/**
+	 * Describes a profile to register with
+	 * {@link IPaySDK#registerCheckoutProfile(android.content.Context, Builder)}.
+	 */
+	public static final class Builder {
+		@NonNull
+		private final String name;
+		@Nullable
+		private String callbackUrlScheme;
+		private int checkoutRequestCode = IPaySDK.DEFAULT_CHECKOUT_REQUEST_CODE;
+		@Nullable
+		private String checkoutCallBackActivity;
+
+		/**
+		 * @param name name of the profile, unique in the app
+		 */
+		public Builder(@NonNull String name) {
+			SDKUtils.notNull(name, "name");
+			this.name = name;
+		}
+
+		/**
+		 * @param callbackUrlScheme callback url scheme of the merchant, it must be declared on
+		 *                          {@link bd.com.ipay.sdk.activity.IPayCheckoutActivity} in the
+		 *                          AndroidManifest.xml like the <code>ipay_callback_url_scheme</code>
+		 * @return this builder.
+		 */
+		@NonNull
+		public Builder setCallbackUrlScheme(@Nullable String callbackUrlScheme) {
+			this.callbackUrlScheme = callbackUrlScheme;
+			return this;
+		}
+
+		/**
+		 * @param checkoutRequestCode request code the checkout result comes back with, by default
+		 *                            {@link IPaySDK#DEFAULT_CHECKOUT_REQUEST_CODE}
+		 * @return this builder.
+		 * @throws IllegalArgumentException if the param value is less than 1.
+		 */
+		@NonNull
+		public Builder setCheckoutRequestCode(int checkoutRequestCode) {
+			if (checkoutRequestCode <= 0) {
+				throw new IllegalArgumentException("request code must be greater than 0");
+			}
+			this.checkoutRequestCode = checkoutRequestCode;
+			return this;
+		}
+
+		/**
+		 * @param checkoutCallBackActivity canonical name of the callback activity, a name
+		 *                                 starting with '.' is relative to the package of the app
+		 * @return this builder.
+		 */
+		@NonNull
+		public Builder setCheckoutCallBackActivity(@Nullable String checkoutCallBackActivity) {
+			this.checkoutCallBackActivity = checkoutCallBackActivity;
+			return this;
+		}
+
+		@NonNull
+		String getName() {
+			return name;
+		}
+
+		@Nullable
+		String getCallbackUrlScheme() {
+			return callbackUrlScheme;
+		}
+
+		@Nullable
+		String getCheckoutCallBackActivity() {
+			return checkoutCallBackActivity;
+		}
+	}
+}
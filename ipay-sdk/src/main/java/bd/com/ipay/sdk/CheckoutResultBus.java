@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Delivers the results of the checkouts performed with {@code useCallbackActivity} inside the
+ * process, instead of starting the callback activity for them. The bus only takes the result of
+ * a checkout when the activity which has performed it, or a new instance of it after a
+ * configuration change, has subscribed an observer and isn't finishing. The result goes to those
+ * observers once their activity is started, up to {@link #MAX_BUFFERED_RESULTS} results are
+ * buffered meanwhile. An observer is removed when its activity is destroyed.
+ * </p>
+ * <p>
+ * Otherwise the callback activity is started as before, e.g. after the process has been
+ * restarted for the callback, so it's still required. Subscribe in {@code onCreate} of the
+ * activity. The bus is only used on the main thread, like the activities it tracks.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CheckoutResultBus {
+	private static final Class<CheckoutResultBus> TAG = CheckoutResultBus.class;
+
+	/**
+	 * Maximum number of results kept while no observer is active, the oldest one is dropped.
+	 */
+	public static final int MAX_BUFFERED_RESULTS = 8;
+
+	/**
+	 * Receives the results of the checkouts.
+	 */
+	public interface Observer {
+		/**
+		 * Called on the main thread while the activity of the observer is started.
+		 *
+		 * @param checkoutStatus status of the checkout, null if the callback url carried an
+		 *                       unknown status
+		 * @param checkoutId     id of the checkout, null if it hasn't been reported
+		 */
+		void onCheckoutResult(@Nullable IPaySDK.CheckoutStatus checkoutStatus,
+		                      @Nullable String checkoutId);
+	}
+
+	private static final class Subscription {
+		@NonNull
+		final Activity activity;
+		@NonNull
+		final Observer observer;
+
+		Subscription(@NonNull Activity activity, @NonNull Observer observer) {
+			this.activity = activity;
+			this.observer = observer;
+		}
+	}
+
+	private static final class BufferedResult {
+		@NonNull
+		final String activityName;
+		@Nullable
+		final IPaySDK.CheckoutStatus checkoutStatus;
+		@Nullable
+		final String checkoutId;
+
+		BufferedResult(@NonNull String activityName, @Nullable IPaySDK.CheckoutStatus checkoutStatus,
+		               @Nullable String checkoutId) {
+			this.activityName = activityName;
+			this.checkoutStatus = checkoutStatus;
+			this.checkoutId = checkoutId;
+		}
+	}
+
+	// Only touched on the main thread, by the activity lifecycle and the checkout screens.
+	private static final List<Subscription> subscriptions = new ArrayList<>();
+	private static final Set<Activity> startedActivities =
+			Collections.newSetFromMap(new WeakHashMap<Activity, Boolean>());
+	private static final Deque<BufferedResult> bufferedResults = new ArrayDeque<>();
+	@Nullable
+	private static String checkoutActivityName;
+
+	private static final Application.ActivityLifecycleCallbacks activityLifecycleCallbacks =
+			new Application.ActivityLifecycleCallbacks() {
+				@Override
+				public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+				}
+
+				@Override
+				public void onActivityStarted(Activity activity) {
+					startedActivities.add(activity);
+					deliverBufferedResults(activity);
+				}
+
+				@Override
+				public void onActivityResumed(Activity activity) {
+				}
+
+				@Override
+				public void onActivityPaused(Activity activity) {
+				}
+
+				@Override
+				public void onActivityStopped(Activity activity) {
+					startedActivities.remove(activity);
+				}
+
+				@Override
+				public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+				}
+
+				@Override
+				public void onActivityDestroyed(Activity activity) {
+					startedActivities.remove(activity);
+					final Iterator<Subscription> iterator = subscriptions.iterator();
+					while (iterator.hasNext()) {
+						if (iterator.next().activity == activity) {
+							iterator.remove();
+						}
+					}
+				}
+			};
+	@Nullable
+	private static Application registeredApplication;
+
+	private CheckoutResultBus() {
+		// Prohibiting from creation of an instance
+	}
+
+	/**
+	 * Registers the activity lifecycle callbacks, so the bus knows which activities are started.
+	 * {@link IPaySDK#initialize(Context)} does it at app start up, before any activity is started.
+	 *
+	 * @param context An android context
+	 */
+	static void registerActivityLifecycleCallbacks(@NonNull Context context) {
+		final Context applicationContext = context.getApplicationContext();
+		if (applicationContext instanceof Application && applicationContext != registeredApplication) {
+			registeredApplication = (Application) applicationContext;
+			registeredApplication.registerActivityLifecycleCallbacks(activityLifecycleCallbacks);
+		}
+	}
+
+	/**
+	 * Remembers the activity performing a checkout with {@code useCallbackActivity}, only its
+	 * observers take the result of the checkout.
+	 *
+	 * @param activity activity the checkout screen is started from
+	 */
+	@MainThread
+	static void onCheckoutStarted(@NonNull Activity activity) {
+		checkoutActivityName = activity.getClass().getName();
+	}
+
+	/**
+	 * Subscribes the observer until the activity is destroyed. Results buffered for the activity
+	 * are delivered once it's started.
+	 *
+	 * @param activity activity the observer belongs to
+	 * @param observer observer of the results
+	 */
+	@MainThread
+	public static void subscribe(@NonNull Activity activity, @NonNull Observer observer) {
+		SDKUtils.notNull(activity, "activity");
+		SDKUtils.notNull(observer, "observer");
+		registerActivityLifecycleCallbacks(activity);
+		subscriptions.add(new Subscription(activity, observer));
+		deliverBufferedResults(activity);
+	}
+
+	/**
+	 * Removes every subscription of the observer.
+	 *
+	 * @param observer observer of the results
+	 */
+	@MainThread
+	public static void unsubscribe(@NonNull Observer observer) {
+		SDKUtils.notNull(observer, "observer");
+		final Iterator<Subscription> iterator = subscriptions.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().observer == observer) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return true if an observer is subscribed.
+	 */
+	@MainThread
+	public static boolean hasSubscriptions() {
+		return !subscriptions.isEmpty();
+	}
+
+	/**
+	 * Delivers the result to the observers of the activity which has performed the checkout, or
+	 * buffers it until the activity is started. Called by the checkout screens.
+	 *
+	 * @param checkoutStatus status of the checkout
+	 * @param checkoutId     id of the checkout
+	 * @return true if the bus has taken the result, false if the activity which has performed
+	 * the checkout has no observer and the result has to be delivered through the callback
+	 * activity.
+	 */
+	@MainThread
+	public static boolean post(@Nullable IPaySDK.CheckoutStatus checkoutStatus,
+	                           @Nullable String checkoutId) {
+		final String activityName = checkoutActivityName;
+		if (activityName == null || getObservers(activityName, false).isEmpty()) {
+			return false;
+		}
+		final List<Observer> startedObservers = getObservers(activityName, true);
+		if (startedObservers.isEmpty()) {
+			if (bufferedResults.size() == MAX_BUFFERED_RESULTS) {
+				Logger.w(TAG, "Dropping the oldest buffered checkout result");
+				bufferedResults.removeFirst();
+			}
+			bufferedResults.addLast(new BufferedResult(activityName, checkoutStatus, checkoutId));
+		} else {
+			for (Observer observer : startedObservers) {
+				observer.onCheckoutResult(checkoutStatus, checkoutId);
+			}
+		}
+		return true;
+	}
+
+	private static void deliverBufferedResults(@NonNull Activity activity) {
+		if (bufferedResults.isEmpty() || !startedActivities.contains(activity)) {
+			return;
+		}
+		final List<Observer> observers = new ArrayList<>();
+		for (Subscription subscription : subscriptions) {
+			if (subscription.activity == activity) {
+				observers.add(subscription.observer);
+			}
+		}
+		if (observers.isEmpty()) {
+			return;
+		}
+		final String activityName = activity.getClass().getName();
+		final Iterator<BufferedResult> iterator = bufferedResults.iterator();
+		while (iterator.hasNext()) {
+			final BufferedResult result = iterator.next();
+			if (result.activityName.equals(activityName)) {
+				iterator.remove();
+				for (Observer observer : observers) {
+					observer.onCheckoutResult(result.checkoutStatus, result.checkoutId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param activityName class name of the activity to get the observers of
+	 * @param startedOnly  true to only get the observers whose activity is started
+	 * @return the observers of the instances of the activity which aren't finishing.
+	 */
+	@NonNull
+	private static List<Observer> getObservers(@NonNull String activityName, boolean startedOnly) {
+		final List<Observer> observers = new ArrayList<>();
+		for (Subscription subscription : subscriptions) {
+			final Activity activity = subscription.activity;
+			if (activity.getClass().getName().equals(activityName) && isAlive(activity)
+					&& (!startedOnly || startedActivities.contains(activity))) {
+				observers.add(subscription.observer);
+			}
+		}
+		return observers;
+	}
+
+	/**
+	 * @return false if the activity is finishing or destroyed, its observers would never receive
+	 * a result.
+	 */
+	private static boolean isAlive(@NonNull Activity activity) {
+		return !activity.isFinishing() && (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1
+				|| !activity.isDestroyed());
+	}
+}
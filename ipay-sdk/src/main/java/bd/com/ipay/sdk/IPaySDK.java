@@ -23,12 +23,22 @@ import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.app.ActivityCompat;
 import android.text.TextUtils;
 
-import bd.com.ipay.BuildConfig;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
 import bd.com.ipay.sdk.activity.IPayWebCheckoutActivity;
 import bd.com.ipay.sdk.exception.IPaySDKException;
@@ -37,6 +47,10 @@ import bd.com.ipay.sdk.exception.InvalidCheckoutUrlException;
 import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
 import bd.com.ipay.sdk.util.Constants;
 import bd.com.ipay.sdk.util.Logger;
+import bd.com.ipay.sdk.web.CheckoutLoadMetrics;
+import bd.com.ipay.sdk.web.ConnectionWarmer;
+import bd.com.ipay.sdk.web.CustomTabsConnection;
+import bd.com.ipay.sdk.web.WebCheckoutPreloader;
 
 /**
  * This class is designed to initialize and customize the uses of iPay SDK.
@@ -69,12 +83,60 @@ public final class IPaySDK {
 	private static final String CALLBACK_ACTIVITY_NAME_PROPERTY
 			= "bd.com.ipay.sdk.CallbackActivityName";
 
+	/**
+	 * The key for the web checkout rendering mode in the Android manifest.
+	 */
+	private static final String WEB_VIEW_RENDERING_MODE_PROPERTY
+			= "bd.com.ipay.sdk.WebViewRenderingMode";
+
+	/**
+	 * The key for the web fallback mode in the Android manifest.
+	 */
+	private static final String WEB_FALLBACK_MODE_PROPERTY
+			= "bd.com.ipay.sdk.WebFallbackMode";
+
+	/**
+	 * The key for enabling the web checkout result bridge in the Android manifest.
+	 */
+	private static final String WEB_CHECKOUT_RESULT_BRIDGE_ENABLED_PROPERTY
+			= "bd.com.ipay.sdk.WebCheckoutResultBridgeEnabled";
+
+	/**
+	 * The key for enabling the iPay app service channel in the Android manifest.
+	 */
+	private static final String IPAY_SERVICE_CHANNEL_ENABLED_PROPERTY
+			= "bd.com.ipay.sdk.IPayServiceChannelEnabled";
+
 	/**
 	 * request code to create Checkout Activity.
 	 */
 	@SuppressWarnings("WeakerAccess")
 	public static final int DEFAULT_CHECKOUT_REQUEST_CODE = 0xcafe;
 
+	/**
+	 * Default time to first byte timeout of a web checkout page load.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static final long DEFAULT_WEB_CHECKOUT_FIRST_BYTE_TIMEOUT_MILLIS = 15 * 1000;
+
+	/**
+	 * Default time to page finished timeout of a web checkout page load.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static final long DEFAULT_WEB_CHECKOUT_PAGE_FINISHED_TIMEOUT_MILLIS = 45 * 1000;
+
+	/**
+	 * Default session timeout of a web checkout.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static final long DEFAULT_WEB_CHECKOUT_SESSION_TIMEOUT_MILLIS = 15 * 60 * 1000;
+
+	/**
+	 * Default number of times a timed out web checkout page load is retried.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static final int DEFAULT_WEB_CHECKOUT_LOAD_RETRIES = 1;
+
 	/**
 	 * iPay Bangladesh Ltd. android app package name.
 	 */
@@ -90,24 +152,43 @@ public final class IPaySDK {
 	public static final String CHECKOUT_ID_KEY = "checkout_id";
 
 	/**
-	 * Variable to identify whether the debug log should be enabled or not.
+	 * Snapshot of the configuration. Every change publishes a new snapshot, so readers never see
+	 * a half applied change. Changes are serialized by {@link #CONFIG_LOCK}.
 	 */
-	private static volatile boolean debugLogEnabled = BuildConfig.DEBUG;
+	@NonNull
+	private static volatile IPaySDKConfig config = new IPaySDKConfig.Builder().build();
+
+	private static final Object CONFIG_LOCK = new Object();
 
 	/**
-	 * Variable to store checkout activity start request code.
+	 * Checkout profiles by their name, replaced as a whole under {@link #CONFIG_LOCK} like the
+	 * configuration.
 	 */
-	private static volatile int checkoutRequestCode = DEFAULT_CHECKOUT_REQUEST_CODE;
+	@NonNull
+	private static volatile Map<String, CheckoutProfile> checkoutProfiles = Collections.emptyMap();
 
 	/**
-	 * Variable to store the canonical name of the activity to call after performing checkout.
+	 * Variable to store the listener of the web checkout load metrics.
 	 */
-	private static volatile String checkoutCallBackActivity;
+	@Nullable
+	private static volatile CheckoutLoadMetrics.Listener checkoutLoadMetricsListener;
 
 	/**
 	 * local variable to keep if the SDK has been initialized or not.
 	 */
-	private static Boolean sdkInitialized = false;
+	private static volatile boolean sdkInitialized;
+
+	/**
+	 * Prepares the async checkouts started on the main thread.
+	 */
+	private static final Executor checkoutExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(@NonNull Runnable runnable) {
+			final Thread thread = new Thread(runnable, "iPaySDK-Checkout");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 
 	private IPaySDK() {
 		// Prohibiting from creation of an instance
@@ -149,9 +230,16 @@ public final class IPaySDK {
 					return;
 				}
 
+				// Tracks the started activities for the result bus from the first one on.
+				CheckoutResultBus.registerActivityLifecycleCallbacks(applicationContext);
 				IPaySDK.initDefaultsFromMetadata(applicationContext);
 				if (!SDKUtils.hasIPayCheckoutActivity(applicationContext, initializeCallback,
 						false)) {
+					// Every failure reaches the callback, so its caller never waits forever.
+					if (initializeCallback != null) {
+						initializeCallback.onFailure(new IPaySDKInitializeException(
+								Constants.IPAY_CHECKOUT_ACTIVITY_NOT_FOUND_REASON));
+					}
 					return;
 				}
 				if (!SDKUtils.isValidUrlSchemeAdded(applicationContext, initializeCallback,
@@ -163,6 +251,11 @@ public final class IPaySDK {
 				SDKUtils.hasInternetPermissions(applicationContext, false);
 				SDKUtils.isIPayAppInstalled(applicationContext, false);
 
+				// Binding early gives the browser time to warm up before the first checkout.
+				if (getWebFallbackMode() == WebFallbackMode.CUSTOM_TABS) {
+					CustomTabsConnection.bind(applicationContext);
+				}
+
 				// At this point the SDK is successfully initialized.
 				sdkInitialized = true;
 				SDKUtils.printSomeFancyIPaySDK();
@@ -212,11 +305,40 @@ public final class IPaySDK {
 		}
 
 		// Load metadata only before initializing the sdk
-		if (!IPaySDK.isInitialized()) {
+		if (IPaySDK.isInitialized()) {
+			return;
+		}
+
+		// Getting the name of the callback Activity, checked against the package manager before
+		// the config is locked
+		String tempCheckoutCallbackActivity;
+		try {
+			tempCheckoutCallbackActivity = applicationInfo.metaData
+					.getString(CALLBACK_ACTIVITY_NAME_PROPERTY, null);
+
+			if (tempCheckoutCallbackActivity != null
+					&& !tempCheckoutCallbackActivity.isEmpty()) {
+				if (tempCheckoutCallbackActivity.startsWith(".")) {
+					tempCheckoutCallbackActivity = context.getPackageName()
+							+ tempCheckoutCallbackActivity;
+				}
+				validateCheckoutCallBackActivity(context, tempCheckoutCallbackActivity);
+			}
+		} catch (ClassCastException e) {
+			throw new IPaySDKInitializeException("Checkout Callback Activity " +
+					"class name must be String", e);
+		} catch (IllegalArgumentException e) {
+			throw new IPaySDKInitializeException(e.getMessage(), e);
+		}
+
+		// The metadata values are applied to the current config and published at once, under the
+		// lock so no setter called meanwhile is lost.
+		synchronized (CONFIG_LOCK) {
+			final IPaySDKConfig.Builder builder = config.buildUpon();
 
 			// Getting SDK Events Log Enable Property
 			try {
-				setDebugLogEnabled(applicationInfo.metaData
+				builder.setDebugLogEnabled(applicationInfo.metaData
 						.getBoolean(LOG_SDK_EVENTS_ENABLED_PROPERTY, true));
 			} catch (ClassCastException e) {
 				throw new IPaySDKInitializeException("Logging enable property must be boolean", e);
@@ -224,7 +346,7 @@ public final class IPaySDK {
 
 			// Getting Callback Request Code Property
 			try {
-				setCheckoutRequestCode(applicationInfo.metaData
+				builder.setCheckoutRequestCode(applicationInfo.metaData
 						.getInt(CALLBACK_REQUEST_CODE_PROPERTY, DEFAULT_CHECKOUT_REQUEST_CODE));
 			} catch (ClassCastException e) {
 				throw new IPaySDKInitializeException("Checkout Request Code value must be int", e);
@@ -233,27 +355,62 @@ public final class IPaySDK {
 						CALLBACK_REQUEST_CODE_PROPERTY), e);
 			}
 
-			// Getting the name of the callback Activity
-			String tempCheckoutCallbackActivity;
+			// Getting the Web Checkout Rendering Mode Property
 			try {
-				tempCheckoutCallbackActivity = applicationInfo.metaData
-						.getString(CALLBACK_ACTIVITY_NAME_PROPERTY, null);
-
-				if (tempCheckoutCallbackActivity == null
-						|| tempCheckoutCallbackActivity.isEmpty()) {
-					return;
+				final String renderingMode = applicationInfo.metaData
+						.getString(WEB_VIEW_RENDERING_MODE_PROPERTY, null);
+				if (!TextUtils.isEmpty(renderingMode)) {
+					builder.setWebViewRenderingMode(WebViewRenderingMode.valueOf(renderingMode
+							.toUpperCase(Locale.US)));
 				}
-				if (tempCheckoutCallbackActivity.startsWith(".")) {
-					tempCheckoutCallbackActivity = context.getPackageName()
-							+ tempCheckoutCallbackActivity;
+			} catch (ClassCastException e) {
+				throw new IPaySDKInitializeException("Web View Rendering Mode must be String", e);
+			} catch (IllegalArgumentException e) {
+				throw new IPaySDKInitializeException(String.format("%s must be one of auto, " +
+						"hardware or software", WEB_VIEW_RENDERING_MODE_PROPERTY), e);
+			}
+
+			// Getting the Web Fallback Mode Property
+			try {
+				final String fallbackMode = applicationInfo.metaData
+						.getString(WEB_FALLBACK_MODE_PROPERTY, null);
+				if (!TextUtils.isEmpty(fallbackMode)) {
+					builder.setWebFallbackMode(WebFallbackMode.valueOf(fallbackMode
+							.toUpperCase(Locale.US)));
 				}
-				setCheckoutCallBackActivity(context, tempCheckoutCallbackActivity);
 			} catch (ClassCastException e) {
-				throw new IPaySDKInitializeException("Checkout Callback Activity " +
-						"class name must be String", e);
+				throw new IPaySDKInitializeException("Web Fallback Mode must be String", e);
 			} catch (IllegalArgumentException e) {
-				throw new IPaySDKInitializeException(e.getMessage(), e);
+				throw new IPaySDKInitializeException(String.format("%s must be one of web_view " +
+						"or custom_tabs", WEB_FALLBACK_MODE_PROPERTY), e);
+			}
+
+			// Getting the Web Checkout Result Bridge Enable Property
+			try {
+				if (applicationInfo.metaData.containsKey(WEB_CHECKOUT_RESULT_BRIDGE_ENABLED_PROPERTY)) {
+					builder.setWebCheckoutResultBridgeEnabled(applicationInfo.metaData
+							.getBoolean(WEB_CHECKOUT_RESULT_BRIDGE_ENABLED_PROPERTY));
+				}
+			} catch (ClassCastException e) {
+				throw new IPaySDKInitializeException("Web checkout result bridge enable property " +
+						"must be boolean", e);
 			}
+
+			// Getting the iPay Service Channel Enable Property
+			try {
+				if (applicationInfo.metaData.containsKey(IPAY_SERVICE_CHANNEL_ENABLED_PROPERTY)) {
+					builder.setIPayServiceChannelEnabled(applicationInfo.metaData
+							.getBoolean(IPAY_SERVICE_CHANNEL_ENABLED_PROPERTY));
+				}
+			} catch (ClassCastException e) {
+				throw new IPaySDKInitializeException("iPay service channel enable property " +
+						"must be boolean", e);
+			}
+
+			if (tempCheckoutCallbackActivity != null && !tempCheckoutCallbackActivity.isEmpty()) {
+				builder.setCheckoutCallBackActivity(tempCheckoutCallbackActivity);
+			}
+			config = builder.build();
 		}
 	}
 
@@ -266,6 +423,7 @@ public final class IPaySDK {
 	 * @param checkoutUrl iPay checkout url
 	 * @return the state of the checkout.
 	 */
+	@NonNull
 	@SuppressWarnings("unused")
 	public static CheckoutState performCheckout(@NonNull Activity activity,
 	                                            @NonNull String checkoutUrl) {
@@ -286,6 +444,7 @@ public final class IPaySDK {
 	 * @throws IPaySDKException if the param shouldThrow is true then this method will throw
 	 *                          {@link IPaySDKException} if IPay app isn't installed on device.
 	 */
+	@NonNull
 	@SuppressWarnings("WeakerAccess")
 	public static CheckoutState performCheckout(@NonNull Activity activity,
 	                                            @NonNull String checkoutUrl,
@@ -310,76 +469,237 @@ public final class IPaySDK {
 	 * @throws IPaySDKException if the param shouldThrow is true then this method will throw
 	 *                          {@link IPaySDKException} if IPay app isn't installed on device.
 	 */
+	@NonNull
 	@SuppressWarnings({"WeakerAccess"})
 	public static CheckoutState performCheckout(@NonNull Activity activity,
 	                                            @NonNull String checkoutUrl,
 	                                            boolean shouldThrow,
 	                                            boolean useCallbackActivity) {
-		try {
-			SDKUtils.notNull(activity, "activity");
-			SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+		final IPaySDKConfig config = getInitializedConfig(activity);
+		return performCheckout(activity, checkoutUrl, shouldThrow, useCallbackActivity,
+				config.getCheckoutRequestCode(), config.getCheckoutCallBackActivity(), null, null);
+	}
 
+	/**
+	 * Same as {@link #performCheckout(Activity, String, boolean, boolean)}, with the request code
+	 * and the callback activity of a checkout profile instead of the ones of the SDK. The
+	 * profile has been validated when it was registered, so no validation is repeated here.
+	 *
+	 * @param activity            An android Activity
+	 * @param checkoutUrl         iPay checkout url
+	 * @param checkoutProfile     profile registered with
+	 *                            {@link #registerCheckoutProfile(Context, CheckoutProfile.Builder)}
+	 * @param shouldThrow         Should the method throw an exception for error or not
+	 * @param useCallbackActivity Should the method send the data to the callback activity of the
+	 *                            profile for completing the checkout or not
+	 * @return the state of the checkout.
+	 * @throws IPaySDKException if the param shouldThrow is true then this method will throw
+	 *                          {@link IPaySDKException} if IPay app isn't installed on device.
+	 */
+	@NonNull
+	@SuppressWarnings({"WeakerAccess", "ConstantConditions"})
+	public static CheckoutState performCheckout(@NonNull Activity activity,
+	                                            @NonNull String checkoutUrl,
+	                                            @NonNull CheckoutProfile checkoutProfile,
+	                                            boolean shouldThrow,
+	                                            boolean useCallbackActivity) {
+		if (checkoutProfile == null) {
+			if (shouldThrow) {
+				SDKUtils.notNull(checkoutProfile, "checkoutProfile");
+			}
+			return CheckoutState.UNABLE_TO_PROCESS;
+		}
+		return performCheckout(activity, checkoutUrl, shouldThrow, useCallbackActivity,
+				checkoutProfile.getCheckoutRequestCode(), checkoutProfile.getCheckoutCallBackActivity(),
+				null, null);
+	}
 
-			if (!SDKUtils.isValidIPayCheckoutUrl(checkoutUrl)) {
-				throw new InvalidCheckoutUrlException("Provided url isn't valid to " +
-						"perform checkout");
+	/**
+	 * Same as {@link #performCheckout(Activity, String, boolean)}, but the checkout screen is
+	 * started for result through the starter, e.g. a fragment of the activity, so the result is
+	 * delivered to its {@code onActivityResult} instead of the activity's. This lets a headless
+	 * fragment wait for the result of one checkout.
+	 *
+	 * @param activity      An android Activity
+	 * @param checkoutUrl   iPay checkout url
+	 * @param shouldThrow   should the method throw an exception for error or not
+	 * @param resultStarter starts the checkout screen for result
+	 * @return the state of the checkout.
+	 * @throws IPaySDKException if the param shouldThrow is true then this method will throw
+	 *                          {@link IPaySDKException} if IPay app isn't installed on device.
+	 */
+	@NonNull
+	@SuppressWarnings({"WeakerAccess", "ConstantConditions"})
+	public static CheckoutState performCheckout(@NonNull Activity activity,
+	                                            @NonNull String checkoutUrl,
+	                                            boolean shouldThrow,
+	                                            @NonNull ActivityResultStarter resultStarter) {
+		if (resultStarter == null) {
+			if (shouldThrow) {
+				SDKUtils.notNull(resultStarter, "resultStarter");
 			}
+			return CheckoutState.UNABLE_TO_PROCESS;
+		}
+		final IPaySDKConfig config = getInitializedConfig(activity);
+		return performCheckout(activity, checkoutUrl, shouldThrow, false,
+				config.getCheckoutRequestCode(), null, null, resultStarter);
+	}
 
-			if (SDKUtils.isIPayAppInstalled(activity, shouldThrow)) {
-				if (!IPaySDK.isInitialized()) {
-					IPaySDK.initialize(activity.getApplicationContext());
+	/**
+	 * @param pendingCheckout handle the checkout screen is started through on the main thread,
+	 *                        null to start it right away on the calling thread
+	 * @param resultStarter   starts the checkout screen for result, null for the activity
+	 */
+	@NonNull
+	private static CheckoutState performCheckout(@Nullable final Activity activity,
+	                                             @Nullable String checkoutUrl,
+	                                             boolean shouldThrow,
+	                                             boolean useCallbackActivity,
+	                                             int checkoutRequestCode,
+	                                             @Nullable String checkoutCallBackActivity,
+	                                             @Nullable PendingCheckout pendingCheckout,
+	                                             @Nullable ActivityResultStarter resultStarter) {
+		final CheckoutState checkoutState = getIPayCheckoutState(activity, checkoutUrl,
+				useCallbackActivity, checkoutCallBackActivity);
+		// Exceptions are only created here, when the caller has asked for them.
+		switch (checkoutState) {
+			case PROCESSING:
+				//noinspection ConstantConditions
+				return startIPayCheckout(activity, checkoutUrl, shouldThrow, useCallbackActivity,
+						checkoutRequestCode, checkoutCallBackActivity, pendingCheckout,
+						resultStarter);
+			case IPAY_APP_NOT_INSTALLED:
+				if (shouldThrow) {
+					throw new IPaySDKException(Constants.NO_IPAY_APP_INSTALLED_REASON);
 				}
-				Intent intent = new Intent(activity, IPayCheckoutActivity.class);
-				intent.putExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY, checkoutUrl);
-				if (useCallbackActivity && TextUtils.isEmpty(getCheckoutCallBackActivity())) {
+				Logger.w(TAG, Constants.NO_IPAY_APP_INSTALLED_REASON);
+				if (pendingCheckout != null) {
+					//noinspection ConstantConditions
+					pendingCheckout.startOnMainThread(activity, new Runnable() {
+						@Override
+						public void run() {
+							SDKUtils.openIPayInPlayStore(activity);
+						}
+					}, checkoutState);
+				} else {
+					//noinspection ConstantConditions
+					SDKUtils.openIPayInPlayStore(activity);
+				}
+				return checkoutState;
+			case INVALID_CHECKOUT_URL:
+				if (shouldThrow) {
+					throw new InvalidCheckoutUrlException("Provided url isn't valid to " +
+							"perform checkout");
+				}
+				Logger.e(TAG, "Provided url isn't valid to perform checkout");
+				return checkoutState;
+			case CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND:
+				if (shouldThrow) {
 					throw new IPaySDKException(Constants
 							.CHECKOUT_COMPLETE_CALLBACK_ACTIVITY_NOT_DECLARED_REASON);
-				} else {
-					intent.putExtra(IPayCheckoutActivity.CHECKOUT_COMPLETE_START_COMPONENT_KEY,
-							useCallbackActivity);
 				}
-				if (useCallbackActivity) {
-					ActivityCompat.startActivity(activity, intent, null);
-				} else {
-					ActivityCompat.startActivityForResult(activity, intent,
-							getCheckoutRequestCode(), null);
+				Logger.e(TAG, Constants.CHECKOUT_COMPLETE_CALLBACK_ACTIVITY_NOT_DECLARED_REASON);
+				return checkoutState;
+			default:
+				if (shouldThrow) {
+					// Throws for the missing argument.
+					SDKUtils.notNull(activity, "activity");
+					SDKUtils.notNull(checkoutUrl, "checkoutUrl");
 				}
-				return CheckoutState.PROCESSING;
-			} else {
-				SDKUtils.openIPayInPlayStore(activity);
-				return CheckoutState.IPAY_APP_NOT_INSTALLED;
-			}
-		} catch (InvalidCheckoutUrlException e) {
-			if (shouldThrow) {
-				throw e;
-			} else {
+				return checkoutState;
+		}
+	}
+
+	/**
+	 * Initializes the SDK when it isn't yet, so the defaults from the manifest metadata are in
+	 * the config before a checkout reads them. A failed initialization is only logged here, the
+	 * checkout reports it when it starts through iPay app.
+	 *
+	 * @param activity An android Activity, nothing is initialized if null
+	 * @return the config of the SDK.
+	 */
+	@NonNull
+	private static IPaySDKConfig getInitializedConfig(@Nullable Activity activity) {
+		if (activity != null && !IPaySDK.isInitialized()) {
+			try {
+				IPaySDK.initialize(activity.getApplicationContext());
+			} catch (Exception e) {
 				Logger.e(TAG, e);
-				return CheckoutState.INVALID_CHECKOUT_URL;
 			}
+		}
+		return getConfig();
+	}
+
+	/**
+	 * Checks whether a checkout through iPay app can be performed, without throwing.
+	 *
+	 * @param activity                 An android Activity
+	 * @param checkoutUrl              iPay checkout url
+	 * @param useCallbackActivity      Should the data be sent to the callback activity or not
+	 * @param checkoutCallBackActivity name of the callback activity, null if there is none
+	 * @return {@link CheckoutState#PROCESSING} if the checkout can be started, otherwise the
+	 * state the checkout fails with.
+	 */
+	@NonNull
+	private static CheckoutState getIPayCheckoutState(@Nullable Activity activity,
+	                                                  @Nullable String checkoutUrl,
+	                                                  boolean useCallbackActivity,
+	                                                  @Nullable String checkoutCallBackActivity) {
+		if (activity == null || checkoutUrl == null) {
+			return CheckoutState.UNABLE_TO_PROCESS;
+		} else if (!SDKUtils.isValidIPayCheckoutUrl(checkoutUrl)) {
+			return CheckoutState.INVALID_CHECKOUT_URL;
+		} else if (!SDKUtils.isPackageInstalled(activity, IPAY_APP_PACKAGE_NAME)) {
+			return CheckoutState.IPAY_APP_NOT_INSTALLED;
+		} else if (useCallbackActivity && TextUtils.isEmpty(checkoutCallBackActivity)) {
+			return CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND;
+		} else {
+			return CheckoutState.PROCESSING;
+		}
+	}
+
+	/**
+	 * Starts {@link IPayCheckoutActivity} which performs the checkout through iPay app.
+	 *
+	 * @param activity                 An android Activity
+	 * @param checkoutUrl              iPay checkout url
+	 * @param shouldThrow              Should the method throw an exception for error or not
+	 * @param useCallbackActivity      Should the data be sent to the callback activity or not
+	 * @param checkoutRequestCode      request code to start the checkout for result with
+	 * @param checkoutCallBackActivity name of the callback activity, null if there is none
+	 * @param pendingCheckout          handle the checkout screen is started through on the main
+	 *                                 thread, null to start it right away on the calling thread
+	 * @param resultStarter            starts the checkout screen for result, null for the
+	 *                                 activity
+	 * @return {@link CheckoutState#PROCESSING} if the checkout has started, otherwise
+	 * {@link CheckoutState#UNABLE_TO_PROCESS}.
+	 * @throws IPaySDKException if the param shouldThrow is true and the checkout can't be started.
+	 */
+	@NonNull
+	private static CheckoutState startIPayCheckout(@NonNull Activity activity,
+	                                               @NonNull String checkoutUrl,
+	                                               boolean shouldThrow,
+	                                               boolean useCallbackActivity,
+	                                               int checkoutRequestCode,
+	                                               @Nullable String checkoutCallBackActivity,
+	                                               @Nullable PendingCheckout pendingCheckout,
+	                                               @Nullable ActivityResultStarter resultStarter) {
+		try {
+			if (!IPaySDK.isInitialized()) {
+				IPaySDK.initialize(activity.getApplicationContext());
+			}
+			Intent intent = new Intent(activity, IPayCheckoutActivity.class);
+			intent.putExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY, checkoutUrl);
+			putCallbackActivityExtras(intent, useCallbackActivity, checkoutCallBackActivity);
+			startCheckoutActivity(activity, intent, useCallbackActivity, checkoutRequestCode,
+					pendingCheckout, resultStarter);
+			return CheckoutState.PROCESSING;
 		} catch (IPaySDKException e) {
 			if (shouldThrow) {
 				throw e;
 			} else {
 				Logger.e(TAG, e);
-				if (!TextUtils.isEmpty(e.getMessage())
-						&& e.getMessage()
-						.equals(Constants.CHECKOUT_COMPLETE_CALLBACK_ACTIVITY_NOT_DECLARED_REASON))
-					return CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND;
-				else
-					return CheckoutState.UNABLE_TO_PROCESS;
-			}
-		} catch (IllegalStateException e) {
-			if (shouldThrow) {
-				throw new IPaySDKException(e.getMessage(), e);
-			} else {
-				if (e.getMessage() != null
-						&& e.getMessage().equals(Constants.NO_IPAY_APP_INSTALLED_REASON)) {
-					Logger.e(TAG, e);
-					return CheckoutState.IPAY_APP_NOT_INSTALLED;
-				} else {
-					Logger.e(TAG, e);
-					return CheckoutState.INVALID_CHECKOUT_URL;
-				}
+				return CheckoutState.UNABLE_TO_PROCESS;
 			}
 		} catch (Exception e) {
 			if (shouldThrow) {
@@ -402,6 +722,7 @@ public final class IPaySDK {
 	 *                                   creation of the checkout
 	 * @return the state of the checkout.
 	 */
+	@NonNull
 	@SuppressWarnings("unused")
 	public static CheckoutState performCheckoutWithFallback(@NonNull Activity activity,
 	                                                        @NonNull String checkoutUrl,
@@ -425,69 +746,367 @@ public final class IPaySDK {
 	 *                                   the creation of the checkout
 	 * @return the state of the checkout.
 	 */
+	@NonNull
 	public static CheckoutState performCheckoutWithFallback(@NonNull Activity activity,
 	                                                        @NonNull String checkoutUrl,
 	                                                        boolean useCallbackActivity,
 	                                                        @NonNull CheckoutCallbackActionUrls
 			                                                        checkoutCallbackActionUrls) {
-		try {
-			SDKUtils.notNull(activity, "activity");
-			SDKUtils.notNull(checkoutUrl, "checkoutUrl");
-			SDKUtils.notNull(checkoutCallbackActionUrls, "checkoutCallbackActionUrls");
-		} catch (Exception e) {
+		final IPaySDKConfig config = getInitializedConfig(activity);
+		return performCheckoutWithFallback(activity, checkoutUrl, useCallbackActivity,
+				checkoutCallbackActionUrls, config.getCheckoutRequestCode(),
+				config.getCheckoutCallBackActivity(), null, null);
+	}
+
+	/**
+	 * Same as {@link #performCheckoutWithFallback(Activity, String, boolean, CheckoutCallbackActionUrls)},
+	 * with the request code and the callback activity of a checkout profile instead of the ones
+	 * of the SDK.
+	 *
+	 * @param activity                   An android Activity
+	 * @param checkoutUrl                iPay checkout url
+	 * @param checkoutProfile            profile registered with
+	 *                                   {@link #registerCheckoutProfile(Context, CheckoutProfile.Builder)}
+	 * @param useCallbackActivity        Should the method send the data to the callback activity
+	 *                                   of the profile for completing the checkout or not
+	 * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during
+	 *                                   the creation of the checkout
+	 * @return the state of the checkout.
+	 */
+	@NonNull
+	@SuppressWarnings("unused")
+	public static CheckoutState performCheckoutWithFallback(@NonNull Activity activity,
+	                                                        @NonNull String checkoutUrl,
+	                                                        @NonNull CheckoutProfile checkoutProfile,
+	                                                        boolean useCallbackActivity,
+	                                                        @NonNull CheckoutCallbackActionUrls
+			                                                        checkoutCallbackActionUrls) {
+		//noinspection ConstantConditions
+		if (checkoutProfile == null) {
+			return CheckoutState.UNABLE_TO_PROCESS;
+		}
+		return performCheckoutWithFallback(activity, checkoutUrl, useCallbackActivity,
+				checkoutCallbackActionUrls, checkoutProfile.getCheckoutRequestCode(),
+				checkoutProfile.getCheckoutCallBackActivity(), null, null);
+	}
+
+	/**
+	 * Same as {@link #performCheckoutWithFallback(Activity, String, CheckoutCallbackActionUrls)},
+	 * but the checkout screen is started for result through the starter, see
+	 * {@link #performCheckout(Activity, String, boolean, ActivityResultStarter)}.
+	 *
+	 * @param activity                   An android Activity
+	 * @param checkoutUrl                iPay checkout url
+	 * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during the
+	 *                                   creation of the checkout
+	 * @param resultStarter              starts the checkout screen for result
+	 * @return the state of the checkout.
+	 */
+	@NonNull
+	@SuppressWarnings({"unused", "ConstantConditions"})
+	public static CheckoutState performCheckoutWithFallback(@NonNull Activity activity,
+	                                                        @NonNull String checkoutUrl,
+	                                                        @NonNull CheckoutCallbackActionUrls
+			                                                        checkoutCallbackActionUrls,
+	                                                        @NonNull ActivityResultStarter
+			                                                        resultStarter) {
+		if (resultStarter == null) {
+			return CheckoutState.UNABLE_TO_PROCESS;
+		}
+		final IPaySDKConfig config = getInitializedConfig(activity);
+		return performCheckoutWithFallback(activity, checkoutUrl, false,
+				checkoutCallbackActionUrls, config.getCheckoutRequestCode(), null, null,
+				resultStarter);
+	}
+
+	/**
+	 * Same as {@link #performCheckout(Activity, String, boolean, boolean)}, but can be called from
+	 * any thread. The checkout url and the environment are checked and the checkout intent is
+	 * prepared on the calling thread, or on a background thread when called on the main thread.
+	 * Only starting the checkout screen is posted to the main looper. Errors are never thrown,
+	 * the returned handle resolves to the state the checkout has failed with instead.
+	 *
+	 * @param activity            An android Activity
+	 * @param checkoutUrl         iPay checkout url
+	 * @param useCallbackActivity Should the method send the data to another activity for completing
+	 *                            the checkout or not
+	 * @return a handle resolving to the state of the checkout once its screen has been started.
+	 */
+	@NonNull
+	@SuppressWarnings("unused")
+	public static PendingCheckout performCheckoutAsync(@NonNull final Activity activity,
+	                                                   @NonNull final String checkoutUrl,
+	                                                   final boolean useCallbackActivity) {
+		final PendingCheckout pendingCheckout = new PendingCheckout();
+		prepareCheckout(pendingCheckout, new Runnable() {
+			@Override
+			public void run() {
+				final IPaySDKConfig config = getInitializedConfig(activity);
+				pendingCheckout.onPrepared(performCheckout(activity, checkoutUrl, false,
+						useCallbackActivity, config.getCheckoutRequestCode(),
+						config.getCheckoutCallBackActivity(), pendingCheckout, null));
+			}
+		});
+		return pendingCheckout;
+	}
+
+	/**
+	 * Same as {@link #performCheckoutWithFallback(Activity, String, boolean, CheckoutCallbackActionUrls)},
+	 * but can be called from any thread, see {@link #performCheckoutAsync(Activity, String, boolean)}.
+	 *
+	 * @param activity                   An android Activity
+	 * @param checkoutUrl                iPay checkout url
+	 * @param useCallbackActivity        Should the method send the data to another activity for
+	 *                                   completing the checkout or not
+	 * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during
+	 *                                   the creation of the checkout
+	 * @return a handle resolving to the state of the checkout once its screen has been started.
+	 */
+	@NonNull
+	@SuppressWarnings("unused")
+	public static PendingCheckout performCheckoutWithFallbackAsync(@NonNull final Activity activity,
+	                                                               @NonNull final String checkoutUrl,
+	                                                               final boolean useCallbackActivity,
+	                                                               @NonNull final CheckoutCallbackActionUrls
+			                                                               checkoutCallbackActionUrls) {
+		final PendingCheckout pendingCheckout = new PendingCheckout();
+		prepareCheckout(pendingCheckout, new Runnable() {
+			@Override
+			public void run() {
+				final IPaySDKConfig config = getInitializedConfig(activity);
+				pendingCheckout.onPrepared(performCheckoutWithFallback(activity, checkoutUrl,
+						useCallbackActivity, checkoutCallbackActionUrls,
+						config.getCheckoutRequestCode(), config.getCheckoutCallBackActivity(),
+						pendingCheckout, null));
+			}
+		});
+		return pendingCheckout;
+	}
+
+	/**
+	 * Runs the preparation of an async checkout on the calling thread, or on the checkout
+	 * executor when called on the main thread, so the package manager lookups of the checks
+	 * never run on the main thread.
+	 *
+	 * @param pendingCheckout handle of the checkout
+	 * @param preparation     checks the checkout and prepares its intent
+	 */
+	private static void prepareCheckout(@NonNull final PendingCheckout pendingCheckout,
+	                                    @NonNull final Runnable preparation) {
+		final Runnable guardedPreparation = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					preparation.run();
+				} catch (Exception e) {
+					Logger.e(TAG, e);
+					pendingCheckout.onPrepared(CheckoutState.UNABLE_TO_PROCESS);
+				}
+			}
+		};
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			checkoutExecutor.execute(guardedPreparation);
+		} else {
+			guardedPreparation.run();
+		}
+	}
+
+	/**
+	 * @param pendingCheckout handle the checkout screen is started through on the main thread,
+	 *                        null to start it right away on the calling thread
+	 * @param resultStarter   starts the checkout screen for result, null for the activity
+	 */
+	private static CheckoutState performCheckoutWithFallback(@Nullable Activity activity,
+	                                                         @Nullable String checkoutUrl,
+	                                                         boolean useCallbackActivity,
+	                                                         @Nullable CheckoutCallbackActionUrls
+			                                                         checkoutCallbackActionUrls,
+	                                                         int checkoutRequestCode,
+	                                                         @Nullable String checkoutCallBackActivity,
+	                                                         @Nullable PendingCheckout pendingCheckout,
+	                                                         @Nullable ActivityResultStarter
+			                                                         resultStarter) {
+		if (activity == null || checkoutUrl == null || checkoutCallbackActionUrls == null) {
 			return CheckoutState.UNABLE_TO_PROCESS;
 		}
 		if (SDKUtils.isValidCheckoutCallbackActionUrls(checkoutCallbackActionUrls)) {
 			return CheckoutState.INVALID_CHECKOUT_CALLBACK_URLS;
 		}
 
+		// Only the web fallback honours useCallbackActivity, the result of a checkout through
+		// iPay app always comes back to the calling activity.
+		final CheckoutState checkoutState = getIPayCheckoutState(activity, checkoutUrl, false,
+				null);
+		switch (checkoutState) {
+			case PROCESSING:
+				return startIPayCheckout(activity, checkoutUrl, false, false,
+						checkoutRequestCode, null, pendingCheckout, resultStarter);
+			case IPAY_APP_NOT_INSTALLED:
+				return performWebCheckout(activity, checkoutUrl, useCallbackActivity,
+						checkoutCallbackActionUrls, checkoutRequestCode, checkoutCallBackActivity,
+						pendingCheckout, resultStarter);
+			default:
+				return checkoutState;
+		}
+	}
+
+	/**
+	 * Performs the checkout through the web fallback of {@link #getWebFallbackMode()}, when iPay
+	 * app isn't installed.
+	 *
+	 * @param activity                   An android Activity
+	 * @param checkoutUrl                iPay checkout url
+	 * @param useCallbackActivity        Should the method send the data to another activity for
+	 *                                   completing the checkout or not
+	 * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during
+	 *                                   the creation of the checkout
+	 * @param checkoutRequestCode        request code to start the checkout for result with
+	 * @param checkoutCallBackActivity   name of the callback activity, null if there is none
+	 * @param pendingCheckout            handle the checkout screen is started through on the main
+	 *                                   thread, null to start it right away on the calling thread
+	 * @param resultStarter              starts the checkout screen for result, null for the
+	 *                                   activity
+	 * @return the state of the checkout.
+	 */
+	private static CheckoutState performWebCheckout(@NonNull Activity activity,
+	                                                @NonNull String checkoutUrl,
+	                                                boolean useCallbackActivity,
+	                                                @NonNull CheckoutCallbackActionUrls
+			                                                checkoutCallbackActionUrls,
+	                                                int checkoutRequestCode,
+	                                                @Nullable String checkoutCallBackActivity,
+	                                                @Nullable PendingCheckout pendingCheckout,
+	                                                @Nullable ActivityResultStarter resultStarter) {
+		if (useCallbackActivity && TextUtils.isEmpty(checkoutCallBackActivity)) {
+			return CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND;
+		}
+
+		final Intent intent;
+		if (getWebFallbackMode() == WebFallbackMode.CUSTOM_TABS
+				&& CustomTabsConnection.bind(activity)) {
+			CustomTabsConnection.mayLaunchUrl(checkoutUrl);
+			intent = new Intent(activity, IPayCheckoutActivity.class);
+			intent.putExtra(IPayCheckoutActivity.CHECKOUT_VIA_CUSTOM_TABS_KEY, true);
+		} else {
+			ConnectionWarmer.warmUp(checkoutUrl);
+			intent = new Intent(activity, IPayWebCheckoutActivity.class);
+			intent.putExtra(IPayWebCheckoutActivity.THIRD_PARTY_CHECKOUT_CALLBACK_URL_KEY,
+					checkoutCallbackActionUrls);
+		}
+		intent.putExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY, checkoutUrl);
+		putCallbackActivityExtras(intent, useCallbackActivity, checkoutCallBackActivity);
+		startCheckoutActivity(activity, intent, useCallbackActivity, checkoutRequestCode,
+				pendingCheckout, resultStarter);
+		return CheckoutState.PROCESSING;
+	}
+
+	/**
+	 * Starts the checkout screen, for result unless the result goes to the callback activity.
+	 *
+	 * @param pendingCheckout handle the checkout screen is started through on the main thread,
+	 *                        null to start it right away on the calling thread
+	 * @param resultStarter   starts the checkout screen for result, null for the activity
+	 */
+	private static void startCheckoutActivity(@NonNull final Activity activity,
+	                                          @NonNull final Intent intent,
+	                                          final boolean useCallbackActivity,
+	                                          final int checkoutRequestCode,
+	                                          @Nullable PendingCheckout pendingCheckout,
+	                                          @Nullable final ActivityResultStarter resultStarter) {
+		if (pendingCheckout != null) {
+			pendingCheckout.startOnMainThread(activity, new Runnable() {
+				@Override
+				public void run() {
+					startCheckoutActivity(activity, intent, useCallbackActivity,
+							checkoutRequestCode, null, resultStarter);
+				}
+			}, CheckoutState.PROCESSING);
+		} else if (useCallbackActivity) {
+			CheckoutResultBus.onCheckoutStarted(activity);
+			ActivityCompat.startActivity(activity, intent, null);
+		} else if (resultStarter != null) {
+			resultStarter.startActivityForResult(intent, checkoutRequestCode);
+		} else {
+			ActivityCompat.startActivityForResult(activity, intent, checkoutRequestCode, null);
+		}
+	}
+
+	/**
+	 * The callback activity travels with the intent, so the checkout screens complete the
+	 * checkout with the callback activity it has been started with.
+	 */
+	private static void putCallbackActivityExtras(@NonNull Intent intent, boolean useCallbackActivity,
+	                                              @Nullable String checkoutCallBackActivity) {
+		intent.putExtra(IPayCheckoutActivity.CHECKOUT_COMPLETE_START_COMPONENT_KEY,
+				useCallbackActivity);
+		if (useCallbackActivity) {
+			intent.putExtra(IPayCheckoutActivity.CHECKOUT_CALLBACK_ACTIVITY_KEY,
+					checkoutCallBackActivity);
+		}
+	}
+
+	/**
+	 * Starts loading the checkout page off-screen when iPay app isn't installed, so a following
+	 * {@link #performCheckoutWithFallback(Activity, String, CheckoutCallbackActionUrls)} for the
+	 * same checkout url shows the already rendered page. In {@link WebFallbackMode#CUSTOM_TABS}
+	 * mode the browser is told to prepare the checkout url instead. Call it as soon as the checkout url is
+	 * known. A preloaded page expires after
+	 * {@link WebCheckoutPreloader#getTimeToLiveMillis()}. This method can be called from any
+	 * thread.
+	 *
+	 * @param context     An android context
+	 * @param checkoutUrl iPay checkout url
+	 * @return true if the checkout page is being preloaded, otherwise false.
+	 */
+	@SuppressWarnings("unused")
+	public static boolean preloadCheckout(@NonNull Context context, @NonNull final String checkoutUrl) {
+		final Context applicationContext;
 		try {
-			final CheckoutState checkoutState = performCheckout(activity, checkoutUrl, true);
-			switch (checkoutState) {
-				case IPAY_APP_NOT_INSTALLED:
-					Intent intent = new Intent(activity, IPayWebCheckoutActivity.class);
-					intent.putExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY, checkoutUrl);
-					intent.putExtra(IPayWebCheckoutActivity.THIRD_PARTY_CHECKOUT_CALLBACK_URL_KEY,
-							checkoutCallbackActionUrls);
-					if (useCallbackActivity && TextUtils.isEmpty(getCheckoutCallBackActivity())) {
-						return CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND;
-					} else {
-						intent.putExtra(IPayCheckoutActivity.CHECKOUT_COMPLETE_START_COMPONENT_KEY,
-								useCallbackActivity);
-					}
-					if (useCallbackActivity) {
-						ActivityCompat.startActivity(activity, intent, null);
-					} else {
-						ActivityCompat.startActivityForResult(activity, intent,
-								getCheckoutRequestCode(), null);
-					}
-					return CheckoutState.PROCESSING;
-				default:
-					return checkoutState;
+			SDKUtils.notNull(context, "context");
+			SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+			if (!SDKUtils.isValidIPayCheckoutUrl(checkoutUrl)
+					|| SDKUtils.isIPayAppInstalled(context, false)) {
+				return false;
 			}
-		} catch (IPaySDKException e) {
-			if (e.getMessage() != null
-					&& e.getMessage().equals(Constants.NO_IPAY_APP_INSTALLED_REASON)) {
-				Intent intent = new Intent(activity, IPayWebCheckoutActivity.class);
-				intent.putExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY, checkoutUrl);
-				intent.putExtra(IPayWebCheckoutActivity.THIRD_PARTY_CHECKOUT_CALLBACK_URL_KEY,
-						checkoutCallbackActionUrls);
-				if (useCallbackActivity && TextUtils.isEmpty(getCheckoutCallBackActivity())) {
-					return CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND;
-				} else {
-					intent.putExtra(IPayCheckoutActivity.CHECKOUT_COMPLETE_START_COMPONENT_KEY,
-							useCallbackActivity);
-				}
-				if (useCallbackActivity) {
-					ActivityCompat.startActivity(activity, intent, null);
-				} else {
-					ActivityCompat.startActivityForResult(activity, intent,
-							getCheckoutRequestCode(), null);
+			applicationContext = context.getApplicationContext();
+		} catch (Exception e) {
+			Logger.e(TAG, e);
+			return false;
+		}
+
+		if (getWebFallbackMode() == WebFallbackMode.CUSTOM_TABS
+				&& CustomTabsConnection.bind(applicationContext)) {
+			CustomTabsConnection.mayLaunchUrl(checkoutUrl);
+		} else if (Looper.myLooper() == Looper.getMainLooper()) {
+			WebCheckoutPreloader.preload(applicationContext, checkoutUrl);
+		} else {
+			new Handler(Looper.getMainLooper()).post(new Runnable() {
+				@Override
+				public void run() {
+					WebCheckoutPreloader.preload(applicationContext, checkoutUrl);
 				}
-				return CheckoutState.PROCESSING;
-			} else {
-				return CheckoutState.UNABLE_TO_PROCESS;
-			}
+			});
+		}
+		return true;
+	}
+
+	/**
+	 * Resolves the iPay checkout host and opens a connection to it in the background, so the
+	 * web checkout doesn't wait for the DNS lookup and the TLS handshake. The SDK does this by
+	 * itself when {@link #performCheckoutWithFallback(Activity, String, CheckoutCallbackActionUrls)}
+	 * finds that iPay app isn't installed. Calling this method earlier, e.g. when the checkout
+	 * screen of the app opens, saves more time. This method can be called from any thread.
+	 *
+	 * @param checkoutUrl iPay checkout url
+	 * @return true if the warm up has been started, otherwise false.
+	 */
+	@SuppressWarnings("unused")
+	public static boolean prewarmCheckout(@NonNull String checkoutUrl) {
+		try {
+			return ConnectionWarmer.warmUp(checkoutUrl);
+		} catch (Exception e) {
+			Logger.e(TAG, e);
+			return false;
 		}
 	}
 
@@ -496,15 +1115,45 @@ public final class IPaySDK {
 	 *
 	 * @return true if initialized, false if not
 	 */
-	public static synchronized boolean isInitialized() {
+	public static boolean isInitialized() {
 		return sdkInitialized;
 	}
 
+	/**
+	 * Forgets the initialization, so the next checkout initializes the SDK again, for the tests.
+	 */
+	@VisibleForTesting
+	static synchronized void resetInitialization() {
+		sdkInitialized = false;
+	}
+
+	/**
+	 * @return the current configuration of the SDK, a snapshot which the later changes don't
+	 * affect.
+	 */
+	@NonNull
+	public static IPaySDKConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Publishes the whole configuration at once, for the tests.
+	 *
+	 * @param config configuration to publish
+	 */
+	@VisibleForTesting
+	static void setConfig(@NonNull IPaySDKConfig config) {
+		SDKUtils.notNull(config, "config");
+		synchronized (CONFIG_LOCK) {
+			IPaySDK.config = config;
+		}
+	}
+
 	/**
 	 * @return boolean value of debug log enabled or not.
 	 */
 	public static boolean isDebugLogEnabled() {
-		return IPaySDK.debugLogEnabled;
+		return config.isDebugLogEnabled();
 	}
 
 	/**
@@ -514,7 +1163,9 @@ public final class IPaySDK {
 	 */
 	@SuppressWarnings("WeakerAccess")
 	public static void setDebugLogEnabled(boolean debugLogEnabled) {
-		IPaySDK.debugLogEnabled = debugLogEnabled;
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setDebugLogEnabled(debugLogEnabled).build();
+		}
 	}
 
 	/**
@@ -523,7 +1174,7 @@ public final class IPaySDK {
 	 */
 	@SuppressWarnings("WeakerAccess")
 	public static int getCheckoutRequestCode() {
-		return IPaySDK.checkoutRequestCode;
+		return config.getCheckoutRequestCode();
 	}
 
 	/**
@@ -534,10 +1185,9 @@ public final class IPaySDK {
 	 */
 	@SuppressWarnings("WeakerAccess")
 	public static void setCheckoutRequestCode(int requestCode) {
-		if (requestCode <= 0) {
-			throw new IllegalArgumentException("request code must be greater than 0");
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setCheckoutRequestCode(requestCode).build();
 		}
-		IPaySDK.checkoutRequestCode = requestCode;
 	}
 
 	/**
@@ -546,7 +1196,7 @@ public final class IPaySDK {
 	@SuppressWarnings("WeakerAccess")
 	@Nullable
 	public static String getCheckoutCallBackActivity() {
-		return IPaySDK.checkoutCallBackActivity;
+		return config.getCheckoutCallBackActivity();
 	}
 
 	/**
@@ -557,12 +1207,24 @@ public final class IPaySDK {
 	 *                                  {@link PackageManager#getActivityInfo(ComponentName, int)}
 	 */
 	@SuppressWarnings("WeakerAccess")
-	@SuppressLint("WrongConstant")
 	public static void setCheckoutCallBackActivity(@NonNull Context context,
 	                                               @NonNull String checkoutCallBackActivity) {
 		SDKUtils.notNull(context, "context");
 		SDKUtils.notNull(checkoutCallBackActivity, "checkoutCallBackActivity");
 
+		validateCheckoutCallBackActivity(context, checkoutCallBackActivity);
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setCheckoutCallBackActivity(checkoutCallBackActivity).build();
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the activity does not exists or not declared in
+	 *                                  AndroidManifest.xml.
+	 */
+	@SuppressLint("WrongConstant")
+	private static void validateCheckoutCallBackActivity(@NonNull Context context,
+	                                                     @NonNull String checkoutCallBackActivity) {
 		final ActivityInfo activityInfo;
 		try {
 			activityInfo = SDKUtils.getActivityInfo(context, checkoutCallBackActivity);
@@ -574,8 +1236,301 @@ public final class IPaySDK {
 			throw new IllegalArgumentException(Constants
 					.CHECKOUT_COMPLETE_CALLBACK_ACTIVITY_NOT_FOUND_REASON);
 		}
+	}
+
+	/**
+	 * Validates and registers a checkout profile, for apps performing checkouts for several
+	 * merchant accounts. The callback activity must be declared in the AndroidManifest.xml and
+	 * the callback url scheme must be declared on {@link IPayCheckoutActivity}. Register the
+	 * profiles once, e.g. in {@link android.app.Application#onCreate()}, and pass them to
+	 * {@link #performCheckout(Activity, String, CheckoutProfile, boolean, boolean)}. This method
+	 * can be called from any thread.
+	 *
+	 * @param context An android context
+	 * @param builder description of the profile
+	 * @return the registered profile.
+	 * @throws IllegalArgumentException if the profile isn't valid or a profile with the same name
+	 *                                  or callback url scheme is already registered.
+	 */
+	@NonNull
+	public static CheckoutProfile registerCheckoutProfile(@NonNull Context context,
+	                                                      @NonNull CheckoutProfile.Builder builder) {
+		SDKUtils.notNull(context, "context");
+		SDKUtils.notNull(builder, "builder");
+
+		String checkoutCallBackActivity = builder.getCheckoutCallBackActivity();
+		if (TextUtils.isEmpty(checkoutCallBackActivity)) {
+			checkoutCallBackActivity = null;
+		} else {
+			if (checkoutCallBackActivity.startsWith(".")) {
+				checkoutCallBackActivity = context.getPackageName() + checkoutCallBackActivity;
+			}
+			validateCheckoutCallBackActivity(context, checkoutCallBackActivity);
+		}
+		final String callbackUrlScheme = builder.getCallbackUrlScheme();
+		if (callbackUrlScheme != null) {
+			if (!callbackUrlScheme.startsWith("ipay")) {
+				throw new IllegalArgumentException(Constants.INVALID_PROFILE_URL_SCHEME_REASON);
+			}
+			if (!SDKUtils.isCallbackUrlSchemeDeclared(context, callbackUrlScheme)) {
+				throw new IllegalArgumentException(Constants.PROFILE_URL_SCHEME_NOT_DECLARED_REASON);
+			}
+		}
+		final CheckoutProfile checkoutProfile = new CheckoutProfile(builder, checkoutCallBackActivity);
+
+		synchronized (CONFIG_LOCK) {
+			if (checkoutProfiles.containsKey(checkoutProfile.getName())
+					|| (callbackUrlScheme != null
+					&& getCheckoutProfileByCallbackUrlScheme(callbackUrlScheme) != null)) {
+				throw new IllegalArgumentException(Constants.PROFILE_ALREADY_REGISTERED_REASON);
+			}
+			final Map<String, CheckoutProfile> profiles = new HashMap<>(checkoutProfiles);
+			profiles.put(checkoutProfile.getName(), checkoutProfile);
+			checkoutProfiles = Collections.unmodifiableMap(profiles);
+		}
+		return checkoutProfile;
+	}
+
+	/**
+	 * Removes a checkout profile. The checkouts which have already started with it aren't
+	 * affected.
+	 *
+	 * @param name name of the profile
+	 * @return true if the profile was registered, otherwise false.
+	 */
+	@SuppressWarnings("UnusedReturnValue")
+	public static boolean unregisterCheckoutProfile(@NonNull String name) {
+		SDKUtils.notNull(name, "name");
+		synchronized (CONFIG_LOCK) {
+			if (!checkoutProfiles.containsKey(name)) {
+				return false;
+			}
+			final Map<String, CheckoutProfile> profiles = new HashMap<>(checkoutProfiles);
+			profiles.remove(name);
+			checkoutProfiles = Collections.unmodifiableMap(profiles);
+			return true;
+		}
+	}
+
+	/**
+	 * @param name name of the profile
+	 * @return the checkout profile registered with the name, null if there is none.
+	 */
+	@Nullable
+	public static CheckoutProfile getCheckoutProfile(@NonNull String name) {
+		return checkoutProfiles.get(name);
+	}
+
+	/**
+	 * @param callbackUrlScheme callback url scheme the iPay app has called back with
+	 * @return the checkout profile of the callback url scheme, null if there is none.
+	 */
+	@Nullable
+	public static CheckoutProfile getCheckoutProfileByCallbackUrlScheme(@Nullable String callbackUrlScheme) {
+		if (callbackUrlScheme == null) {
+			return null;
+		}
+		for (CheckoutProfile checkoutProfile : checkoutProfiles.values()) {
+			if (callbackUrlScheme.equalsIgnoreCase(checkoutProfile.getCallbackUrlScheme())) {
+				return checkoutProfile;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the rendering mode used by the web checkout {@link android.webkit.WebView}.
+	 */
+	@NonNull
+	public static WebViewRenderingMode getWebViewRenderingMode() {
+		return config.getWebViewRenderingMode();
+	}
+
+	/**
+	 * Sets the rendering mode of the web checkout {@link android.webkit.WebView}. The default
+	 * value {@link WebViewRenderingMode#AUTO} uses hardware acceleration unless the device is
+	 * known to render the checkout page incorrectly with it.
+	 *
+	 * @param webViewRenderingMode rendering mode of the web checkout.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static void setWebViewRenderingMode(@NonNull WebViewRenderingMode webViewRenderingMode) {
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setWebViewRenderingMode(webViewRenderingMode).build();
+		}
+	}
+
+	/**
+	 * @return how the checkout is performed when iPay app isn't installed.
+	 */
+	@NonNull
+	public static WebFallbackMode getWebFallbackMode() {
+		return config.getWebFallbackMode();
+	}
+
+	/**
+	 * Sets how {@link #performCheckoutWithFallback(Activity, String, CheckoutCallbackActionUrls)}
+	 * performs the checkout when iPay app isn't installed. With
+	 * {@link WebFallbackMode#CUSTOM_TABS}, the checkout must be created with the callback urls on
+	 * the <code>ipay_callback_url_scheme</code> of the app, so the result comes back through the
+	 * deep link. If no browser on the device supports Custom Tabs the {@link android.webkit.WebView}
+	 * checkout is used.
+	 *
+	 * @param webFallbackMode web fallback mode of the checkout.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static void setWebFallbackMode(@NonNull WebFallbackMode webFallbackMode) {
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setWebFallbackMode(webFallbackMode).build();
+		}
+	}
+
+	/**
+	 * @return true if the web checkout page can post its result directly, otherwise false.
+	 */
+	public static boolean isWebCheckoutResultBridgeEnabled() {
+		return config.isWebCheckoutResultBridgeEnabled();
+	}
+
+	/**
+	 * Lets the iPay checkout page post the result of the web checkout directly to the SDK, so
+	 * the checkout completes without waiting for the redirect to the callback urls. Only pages
+	 * of the iPay origin of the checkout url can post the result, and the callback urls are
+	 * still matched in case the page doesn't. The bridge is only available on Marshmallow and
+	 * above, below the callback urls alone complete the checkout. Disabled by default.
+	 *
+	 * @param webCheckoutResultBridgeEnabled indicates whether the result bridge is enabled or not.
+	 * @see bd.com.ipay.sdk.web.CheckoutResultBridge
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static void setWebCheckoutResultBridgeEnabled(boolean webCheckoutResultBridgeEnabled) {
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setWebCheckoutResultBridgeEnabled(
+					webCheckoutResultBridgeEnabled).build();
+		}
+	}
+
+	/**
+	 * @return true if the iPay app can deliver the checkout result through its service,
+	 * otherwise false.
+	 */
+	public static boolean isIPayServiceChannelEnabled() {
+		return config.isIPayServiceChannelEnabled();
+	}
+
+	/**
+	 * Lets the iPay app deliver the result of a checkout through its checkout service, instead of
+	 * the deep link back into the app. The checkout goes on through the deep link when the
+	 * installed iPay app doesn't have the service. Disabled by default.
+	 *
+	 * @param iPayServiceChannelEnabled indicates whether the service channel is enabled or not.
+	 * @see bd.com.ipay.sdk.ipc.IPayServiceConnection
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static void setIPayServiceChannelEnabled(boolean iPayServiceChannelEnabled) {
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setIPayServiceChannelEnabled(iPayServiceChannelEnabled).build();
+		}
+	}
+
+	/**
+	 * @return time to first byte timeout of a web checkout page load in milliseconds, 0 if
+	 * disabled.
+	 */
+	public static long getWebCheckoutFirstByteTimeoutMillis() {
+		return config.getWebCheckoutFirstByteTimeoutMillis();
+	}
+
+	/**
+	 * @return time to page finished timeout of a web checkout page load in milliseconds, 0 if
+	 * disabled.
+	 */
+	public static long getWebCheckoutPageFinishedTimeoutMillis() {
+		return config.getWebCheckoutPageFinishedTimeoutMillis();
+	}
+
+	/**
+	 * @return session timeout of a web checkout in milliseconds, 0 if disabled.
+	 */
+	public static long getWebCheckoutSessionTimeoutMillis() {
+		return config.getWebCheckoutSessionTimeoutMillis();
+	}
+
+	/**
+	 * Sets the timeouts of the web checkout. When a page load times out it's retried up to
+	 * {@link #getWebCheckoutLoadRetries()} times, after that or when the session times out the
+	 * checkout finishes with {@link CheckoutStatus#TIMEOUT}.
+	 *
+	 * @param firstByteTimeoutMillis    time to first byte timeout of a page load in
+	 *                                  milliseconds, 0 to disable
+	 * @param pageFinishedTimeoutMillis time to page finished timeout of a page load in
+	 *                                  milliseconds, 0 to disable
+	 * @param sessionTimeoutMillis      session timeout of the checkout in milliseconds, 0 to
+	 *                                  disable
+	 * @throws IllegalArgumentException if any of the param values is less than 0.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static void setWebCheckoutTimeouts(long firstByteTimeoutMillis,
+	                                          long pageFinishedTimeoutMillis,
+	                                          long sessionTimeoutMillis) {
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setWebCheckoutTimeouts(firstByteTimeoutMillis,
+					pageFinishedTimeoutMillis, sessionTimeoutMillis).build();
+		}
+	}
 
-		IPaySDK.checkoutCallBackActivity = checkoutCallBackActivity;
+	/**
+	 * @return number of times a timed out web checkout page load is retried.
+	 */
+	public static int getWebCheckoutLoadRetries() {
+		return config.getWebCheckoutLoadRetries();
+	}
+
+	/**
+	 * Sets how many times a timed out web checkout page load is retried. The retries are
+	 * delayed by an exponential backoff starting from 1 second.
+	 *
+	 * @param webCheckoutLoadRetries number of retries, 0 to fail on the first timeout.
+	 * @throws IllegalArgumentException if the param value is less than 0.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static void setWebCheckoutLoadRetries(int webCheckoutLoadRetries) {
+		synchronized (CONFIG_LOCK) {
+			config = config.buildUpon().setWebCheckoutLoadRetries(webCheckoutLoadRetries).build();
+		}
+	}
+
+	/**
+	 * @return the listener of the web checkout load metrics, null if none is set.
+	 */
+	@Nullable
+	public static CheckoutLoadMetrics.Listener getCheckoutLoadMetricsListener() {
+		return IPaySDK.checkoutLoadMetricsListener;
+	}
+
+	/**
+	 * Sets a listener receiving the page load timings of every web checkout, to find where the
+	 * web fallback spends its time. The metrics are also logged when debug log is enabled.
+	 *
+	 * @param checkoutLoadMetricsListener listener of the web checkout load metrics, null to
+	 *                                    remove the listener.
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public static void setCheckoutLoadMetricsListener(@Nullable CheckoutLoadMetrics.Listener
+			                                                  checkoutLoadMetricsListener) {
+		IPaySDK.checkoutLoadMetricsListener = checkoutLoadMetricsListener;
+	}
+
+	/**
+	 * Starts the checkout screen for result in place of the activity, e.g. a fragment of the
+	 * activity, which then receives the result in its {@code onActivityResult}.
+	 */
+	public interface ActivityResultStarter {
+		/**
+		 * @param intent      intent of the checkout screen
+		 * @param requestCode request code of the checkout
+		 */
+		void startActivityForResult(@NonNull Intent intent, int requestCode);
 	}
 
 	/**
@@ -607,16 +1562,64 @@ public final class IPaySDK {
 		INVALID_CHECKOUT_CALLBACK_URLS
 	}
 
+	/**
+	 * Values to define how the web checkout {@link android.webkit.WebView} is rendered.
+	 */
+	public enum WebViewRenderingMode {
+		/**
+		 * Hardware accelerated unless the device is known to have rendering issues.
+		 */
+		AUTO,
+		/**
+		 * Always renders through a hardware layer.
+		 */
+		HARDWARE,
+		/**
+		 * Always rasterizes the page on the CPU.
+		 */
+		SOFTWARE
+	}
+
+	/**
+	 * Values to define how the checkout is performed when iPay app isn't installed.
+	 */
+	public enum WebFallbackMode {
+		/**
+		 * Checkout through the {@link android.webkit.WebView} of
+		 * {@link bd.com.ipay.sdk.activity.IPayWebCheckoutActivity}.
+		 */
+		WEB_VIEW,
+		/**
+		 * Checkout through a Chrome Custom Tab.
+		 */
+		CUSTOM_TABS
+	}
+
 	/**
 	 * Values to define Checkout Status
 	 */
 	public enum CheckoutStatus {
-		SUCCESS, FAILED, CANCELLED;
+		SUCCESS, FAILED, CANCELLED,
+		/**
+		 * The web checkout didn't load in time, see
+		 * {@link #setWebCheckoutTimeouts(long, long, long)}.
+		 */
+		TIMEOUT;
+
+		// values() copies the array on each call, the callback of every checkout looks up here.
+		private static final CheckoutStatus[] VALUES = values();
+
+		@NonNull
+		private final String value;
+
+		CheckoutStatus() {
+			value = name().toLowerCase(Locale.US);
+		}
 
 		@Nullable
 		public static CheckoutStatus getValue(@NonNull String name) {
-			for (CheckoutStatus checkoutStatus : CheckoutStatus.values()) {
-				if (checkoutStatus.toString().toLowerCase().equals(name)) {
+			for (CheckoutStatus checkoutStatus : VALUES) {
+				if (checkoutStatus.value.equals(name)) {
 					return checkoutStatus;
 				}
 			}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import bd.com.ipay.BuildConfig;
+
+/**
+ * <p>
+ * Immutable snapshot of the configuration of {@link IPaySDK}. The SDK publishes a new snapshot
+ * through a single volatile reference on every change, so a snapshot taken with
+ * {@link IPaySDK#getConfig()} never mixes values of two changes, e.g. the timeouts set by two
+ * calls of {@link IPaySDK#setWebCheckoutTimeouts(long, long, long)} or the metadata values
+ * applied by {@link IPaySDK#initialize(android.content.Context)}.
+ * </p>
+ * <p>
+ * Take one snapshot for the whole of an operation instead of calling the getters of
+ * {@link IPaySDK} one by one, which may each see a different configuration.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class IPaySDKConfig {
+	private final boolean debugLogEnabled;
+	private final int checkoutRequestCode;
+	@Nullable
+	private final String checkoutCallBackActivity;
+	@NonNull
+	private final IPaySDK.WebViewRenderingMode webViewRenderingMode;
+	@NonNull
+	private final IPaySDK.WebFallbackMode webFallbackMode;
+	private final boolean webCheckoutResultBridgeEnabled;
+	private final boolean iPayServiceChannelEnabled;
+	private final long webCheckoutFirstByteTimeoutMillis;
+	private final long webCheckoutPageFinishedTimeoutMillis;
+	private final long webCheckoutSessionTimeoutMillis;
+	private final int webCheckoutLoadRetries;
+
+	private IPaySDKConfig(@NonNull Builder builder) {
+		debugLogEnabled = builder.debugLogEnabled;
+		checkoutRequestCode = builder.checkoutRequestCode;
+		checkoutCallBackActivity = builder.checkoutCallBackActivity;
+		webViewRenderingMode = builder.webViewRenderingMode;
+		webFallbackMode = builder.webFallbackMode;
+		webCheckoutResultBridgeEnabled = builder.webCheckoutResultBridgeEnabled;
+		iPayServiceChannelEnabled = builder.iPayServiceChannelEnabled;
+		webCheckoutFirstByteTimeoutMillis = builder.webCheckoutFirstByteTimeoutMillis;
+		webCheckoutPageFinishedTimeoutMillis = builder.webCheckoutPageFinishedTimeoutMillis;
+		webCheckoutSessionTimeoutMillis = builder.webCheckoutSessionTimeoutMillis;
+		webCheckoutLoadRetries = builder.webCheckoutLoadRetries;
+	}
+
+	/**
+	 * @see IPaySDK#isDebugLogEnabled()
+	 */
+	public boolean isDebugLogEnabled() {
+		return debugLogEnabled;
+	}
+
+	/**
+	 * @see IPaySDK#getCheckoutRequestCode()
+	 */
+	public int getCheckoutRequestCode() {
+		return checkoutRequestCode;
+	}
+
+	/**
+	 * @see IPaySDK#getCheckoutCallBackActivity()
+	 */
+	@Nullable
+	public String getCheckoutCallBackActivity() {
+		return checkoutCallBackActivity;
+	}
+
+	/**
+	 * @see IPaySDK#getWebViewRenderingMode()
+	 */
+	@NonNull
+	public IPaySDK.WebViewRenderingMode getWebViewRenderingMode() {
+		return webViewRenderingMode;
+	}
+
+	/**
+	 * @see IPaySDK#getWebFallbackMode()
+	 */
+	@NonNull
+	public IPaySDK.WebFallbackMode getWebFallbackMode() {
+		return webFallbackMode;
+	}
+
+	/**
+	 * @see IPaySDK#isWebCheckoutResultBridgeEnabled()
+	 */
+	public boolean isWebCheckoutResultBridgeEnabled() {
+		return webCheckoutResultBridgeEnabled;
+	}
+
+	/**
+	 * @see IPaySDK#isIPayServiceChannelEnabled()
+	 */
+	public boolean isIPayServiceChannelEnabled() {
+		return iPayServiceChannelEnabled;
+	}
+
+	/**
+	 * @see IPaySDK#getWebCheckoutFirstByteTimeoutMillis()
+	 */
+	public long getWebCheckoutFirstByteTimeoutMillis() {
+		return webCheckoutFirstByteTimeoutMillis;
+	}
+
+	/**
+	 * @see IPaySDK#getWebCheckoutPageFinishedTimeoutMillis()
+	 */
+	public long getWebCheckoutPageFinishedTimeoutMillis() {
+		return webCheckoutPageFinishedTimeoutMillis;
+	}
+
+	/**
+	 * @see IPaySDK#getWebCheckoutSessionTimeoutMillis()
+	 */
+	public long getWebCheckoutSessionTimeoutMillis() {
+		return webCheckoutSessionTimeoutMillis;
+	}
+
+	/**
+	 * @see IPaySDK#getWebCheckoutLoadRetries()
+	 */
+	public int getWebCheckoutLoadRetries() {
+		return webCheckoutLoadRetries;
+	}
+
+	/**
+	 * @return a builder starting from the values of this configuration.
+	 */
+	@NonNull
+	Builder buildUpon() {
+		return new Builder(this);
+	}
+
+	@Override
+	public String toString() {
+		return "IPaySDKConfig{" +
+				"debugLogEnabled=" + debugLogEnabled +
+				", checkoutRequestCode=" + checkoutRequestCode +
+				", checkoutCallBackActivity='" + checkoutCallBackActivity + '\'' +
+				", webViewRenderingMode=" + webViewRenderingMode +
+				", webFallbackMode=" + webFallbackMode +
+				", webCheckoutResultBridgeEnabled=" + webCheckoutResultBridgeEnabled +
+				", iPayServiceChannelEnabled=" + iPayServiceChannelEnabled +
+				", webCheckoutFirstByteTimeoutMillis=" + webCheckoutFirstByteTimeoutMillis +
+				", webCheckoutPageFinishedTimeoutMillis=" + webCheckoutPageFinishedTimeoutMillis +
+				", webCheckoutSessionTimeoutMillis=" + webCheckoutSessionTimeoutMillis +
+				", webCheckoutLoadRetries=" + webCheckoutLoadRetries +
+				'}';
+	}
+
+	/**
+	 * Builds the configurations {@link IPaySDK} publishes. The values are validated as they are
+	 * set, the callback activity is validated by {@link IPaySDK} before it's set here, as that
+	 * needs a context.
+	 */
+	static final class Builder {
+		private boolean debugLogEnabled = BuildConfig.DEBUG;
+		private int checkoutRequestCode = IPaySDK.DEFAULT_CHECKOUT_REQUEST_CODE;
+		private String checkoutCallBackActivity;
+		private IPaySDK.WebViewRenderingMode webViewRenderingMode = IPaySDK.WebViewRenderingMode.AUTO;
+		private IPaySDK.WebFallbackMode webFallbackMode = IPaySDK.WebFallbackMode.WEB_VIEW;
+		private boolean webCheckoutResultBridgeEnabled;
+		private boolean iPayServiceChannelEnabled;
+		private long webCheckoutFirstByteTimeoutMillis
+				= IPaySDK.DEFAULT_WEB_CHECKOUT_FIRST_BYTE_TIMEOUT_MILLIS;
+		private long webCheckoutPageFinishedTimeoutMillis
+				= IPaySDK.DEFAULT_WEB_CHECKOUT_PAGE_FINISHED_TIMEOUT_MILLIS;
+		private long webCheckoutSessionTimeoutMillis
+				= IPaySDK.DEFAULT_WEB_CHECKOUT_SESSION_TIMEOUT_MILLIS;
+		private int webCheckoutLoadRetries = IPaySDK.DEFAULT_WEB_CHECKOUT_LOAD_RETRIES;
+
+		Builder() {
+		}
+
+		private Builder(@NonNull IPaySDKConfig config) {
+			debugLogEnabled = config.debugLogEnabled;
+			checkoutRequestCode = config.checkoutRequestCode;
+			checkoutCallBackActivity = config.checkoutCallBackActivity;
+			webViewRenderingMode = config.webViewRenderingMode;
+			webFallbackMode = config.webFallbackMode;
+			webCheckoutResultBridgeEnabled = config.webCheckoutResultBridgeEnabled;
+			iPayServiceChannelEnabled = config.iPayServiceChannelEnabled;
+			webCheckoutFirstByteTimeoutMillis = config.webCheckoutFirstByteTimeoutMillis;
+			webCheckoutPageFinishedTimeoutMillis = config.webCheckoutPageFinishedTimeoutMillis;
+			webCheckoutSessionTimeoutMillis = config.webCheckoutSessionTimeoutMillis;
+			webCheckoutLoadRetries = config.webCheckoutLoadRetries;
+		}
+
+		Builder setDebugLogEnabled(boolean debugLogEnabled) {
+			this.debugLogEnabled = debugLogEnabled;
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException if the param value is less than 1.
+		 */
+		Builder setCheckoutRequestCode(int checkoutRequestCode) {
+			if (checkoutRequestCode <= 0) {
+				throw new IllegalArgumentException("request code must be greater than 0");
+			}
+			this.checkoutRequestCode = checkoutRequestCode;
+			return this;
+		}
+
+		Builder setCheckoutCallBackActivity(@Nullable String checkoutCallBackActivity) {
+			this.checkoutCallBackActivity = checkoutCallBackActivity;
+			return this;
+		}
+
+		Builder setWebViewRenderingMode(@NonNull IPaySDK.WebViewRenderingMode webViewRenderingMode) {
+			SDKUtils.notNull(webViewRenderingMode, "webViewRenderingMode");
+			this.webViewRenderingMode = webViewRenderingMode;
+			return this;
+		}
+
+		Builder setWebFallbackMode(@NonNull IPaySDK.WebFallbackMode webFallbackMode) {
+			SDKUtils.notNull(webFallbackMode, "webFallbackMode");
+			this.webFallbackMode = webFallbackMode;
+			return this;
+		}
+
+		Builder setWebCheckoutResultBridgeEnabled(boolean webCheckoutResultBridgeEnabled) {
+			this.webCheckoutResultBridgeEnabled = webCheckoutResultBridgeEnabled;
+			return this;
+		}
+
+		Builder setIPayServiceChannelEnabled(boolean iPayServiceChannelEnabled) {
+			this.iPayServiceChannelEnabled = iPayServiceChannelEnabled;
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException if any of the param values is less than 0.
+		 */
+		Builder setWebCheckoutTimeouts(long firstByteTimeoutMillis, long pageFinishedTimeoutMillis,
+		                               long sessionTimeoutMillis) {
+			if (firstByteTimeoutMillis < 0 || pageFinishedTimeoutMillis < 0 || sessionTimeoutMillis < 0) {
+				throw new IllegalArgumentException("timeouts must not be negative");
+			}
+			webCheckoutFirstByteTimeoutMillis = firstByteTimeoutMillis;
+			webCheckoutPageFinishedTimeoutMillis = pageFinishedTimeoutMillis;
+			webCheckoutSessionTimeoutMillis = sessionTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException if the param value is less than 0.
+		 */
+		Builder setWebCheckoutLoadRetries(int webCheckoutLoadRetries) {
+			if (webCheckoutLoadRetries < 0) {
+				throw new IllegalArgumentException("retries must not be negative");
+			}
+			this.webCheckoutLoadRetries = webCheckoutLoadRetries;
+			return this;
+		}
+
+		@NonNull
+		IPaySDKConfig build() {
+			return new IPaySDKConfig(this);
+		}
+	}
+}
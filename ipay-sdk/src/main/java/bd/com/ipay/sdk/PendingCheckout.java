@@ -0,0 +1,263 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Handle of a checkout started with
+ * {@link IPaySDK#performCheckoutAsync(Activity, String, boolean)} or
+ * {@link IPaySDK#performCheckoutWithFallbackAsync(Activity, String, boolean,
+ * bd.com.ipay.sdk.model.CheckoutCallbackActionUrls)}. The checkout is validated and its intent is
+ * prepared off the main thread, only starting the checkout screen is posted to the main looper.
+ * The handle resolves to the {@link IPaySDK.CheckoutState} the checkout has started or failed
+ * with, once the checkout screen has been started.
+ * </p>
+ * <p>
+ * The result of the checkout itself is still delivered to {@code onActivityResult} of the
+ * activity or to the callback activity.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class PendingCheckout implements Future<IPaySDK.CheckoutState> {
+	private static final Class<PendingCheckout> TAG = PendingCheckout.class;
+
+	/**
+	 * Receives the state of the checkout.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the main thread once the state is known, unless the checkout has been
+		 * cancelled.
+		 *
+		 * @param checkoutState state the checkout has started or failed with
+		 */
+		void onCheckoutStateResolved(@NonNull IPaySDK.CheckoutState checkoutState);
+	}
+
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+
+	private final CountDownLatch doneLatch = new CountDownLatch(1);
+	private IPaySDK.CheckoutState checkoutState;
+	private boolean cancelled;
+	private boolean startScheduled;
+	private Listener listener;
+	private Listener notifiedListener;
+
+	PendingCheckout() {
+	}
+
+	/**
+	 * Sets the listener of the state. If the state is already known the listener is called
+	 * right after on the main thread. A listener is called once at most.
+	 *
+	 * @param listener listener of the state, null to remove it
+	 * @return this handle
+	 */
+	@NonNull
+	public PendingCheckout setListener(@Nullable Listener listener) {
+		synchronized (this) {
+			this.listener = listener;
+			if (checkoutState == null || listener == null) {
+				return this;
+			}
+		}
+		postListener(listener);
+		return this;
+	}
+
+	/**
+	 * Cancels the checkout if its screen hasn't been started yet.
+	 *
+	 * @param mayInterruptIfRunning ignored, the preparation of a checkout is never interrupted
+	 * @return true if the checkout has been cancelled, false if it has already been resolved.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		synchronized (this) {
+			if (isDone()) {
+				return false;
+			}
+			cancelled = true;
+			listener = null;
+		}
+		doneLatch.countDown();
+		return true;
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return cancelled || checkoutState != null;
+	}
+
+	/**
+	 * Waits for the state of the checkout. The checkout screen is started on the main thread,
+	 * so this method must not be called there before the checkout is done, use
+	 * {@link #setListener(Listener)} instead.
+	 *
+	 * @return state the checkout has started or failed with.
+	 * @throws IllegalStateException if called on the main thread before the checkout is done
+	 * @throws CancellationException if the checkout has been cancelled
+	 * @throws InterruptedException  if the waiting thread has been interrupted
+	 */
+	@NonNull
+	@Override
+	public IPaySDK.CheckoutState get() throws InterruptedException {
+		checkNotBlockingMainThread();
+		doneLatch.await();
+		return getCheckoutState();
+	}
+
+	/**
+	 * Same as {@link #get()}, waiting at most the given time.
+	 *
+	 * @throws TimeoutException if the state isn't known in time
+	 */
+	@NonNull
+	@Override
+	public IPaySDK.CheckoutState get(long timeout, @NonNull TimeUnit unit)
+			throws InterruptedException, TimeoutException {
+		checkNotBlockingMainThread();
+		if (!doneLatch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return getCheckoutState();
+	}
+
+	private void checkNotBlockingMainThread() {
+		if (!isDone() && Looper.myLooper() == Looper.getMainLooper()) {
+			throw new IllegalStateException("PendingCheckout.get() would block the main thread");
+		}
+	}
+
+	@NonNull
+	private synchronized IPaySDK.CheckoutState getCheckoutState() {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+		return checkoutState;
+	}
+
+	/**
+	 * Posts starting the checkout screen to the main looper. The checkout resolves to the given
+	 * state once the starter has run, or to {@link IPaySDK.CheckoutState#UNABLE_TO_PROCESS} if
+	 * the activity is finishing or the starter throws.
+	 *
+	 * @param activity      activity starting the checkout screen
+	 * @param starter       starts the checkout screen
+	 * @param checkoutState state of the checkout after it has been started
+	 */
+	void startOnMainThread(@NonNull final Activity activity, @NonNull final Runnable starter,
+	                       @NonNull final IPaySDK.CheckoutState checkoutState) {
+		synchronized (this) {
+			startScheduled = true;
+		}
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (isCancelled()) {
+					return;
+				}
+				if (activity.isFinishing()) {
+					resolve(IPaySDK.CheckoutState.UNABLE_TO_PROCESS);
+					return;
+				}
+				try {
+					starter.run();
+					resolve(checkoutState);
+				} catch (Exception e) {
+					Logger.e(TAG, e);
+					resolve(IPaySDK.CheckoutState.UNABLE_TO_PROCESS);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Resolves the checkout with the state of its preparation, unless starting the checkout
+	 * screen has been posted, which resolves the checkout itself.
+	 *
+	 * @param checkoutState state the preparation has ended with
+	 */
+	void onPrepared(@NonNull IPaySDK.CheckoutState checkoutState) {
+		synchronized (this) {
+			if (startScheduled) {
+				return;
+			}
+		}
+		resolve(checkoutState);
+	}
+
+	private void resolve(@NonNull IPaySDK.CheckoutState checkoutState) {
+		final Listener listener;
+		synchronized (this) {
+			if (isDone()) {
+				return;
+			}
+			this.checkoutState = checkoutState;
+			listener = this.listener;
+		}
+		doneLatch.countDown();
+		if (listener != null) {
+			postListener(listener);
+		}
+	}
+
+	/**
+	 * Posts calling the listener. Both {@link #resolve(IPaySDK.CheckoutState)} and
+	 * {@link #setListener(Listener)} post it when they race, so the listener is only called if
+	 * it's still the listener of the handle and hasn't been called yet.
+	 *
+	 * @param listener listener set when the call was posted
+	 */
+	private void postListener(@NonNull final Listener listener) {
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				final IPaySDK.CheckoutState checkoutState;
+				synchronized (PendingCheckout.this) {
+					if (listener != PendingCheckout.this.listener || listener == notifiedListener
+							|| cancelled) {
+						return;
+					}
+					notifiedListener = listener;
+					checkoutState = PendingCheckout.this.checkoutState;
+				}
+				listener.onCheckoutStateResolved(checkoutState);
+			}
+		});
+	}
+}
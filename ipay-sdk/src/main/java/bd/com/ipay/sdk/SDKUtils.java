@@ -23,10 +23,15 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
 import android.net.Uri;
+import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
+import android.view.View;
+
+import java.util.List;
 
 import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
 import bd.com.ipay.sdk.exception.IPaySDKException;
@@ -207,6 +212,27 @@ public final class SDKUtils {
 		}
 	}
 
+	/**
+	 * Checks if the given package is installed, without logging or throwing for the missing
+	 * package, which is an expected outcome here.
+	 *
+	 * @param context     An android context
+	 * @param packageName package name of the app
+	 * @return whether the app is installed or not.
+	 */
+	static boolean isPackageInstalled(@NonNull Context context, @NonNull String packageName) {
+		final PackageManager packageManager = context.getPackageManager();
+		if (packageManager == null) {
+			return false;
+		}
+		try {
+			return packageManager.getPackageInfo(packageName, 0) != null;
+		} catch (PackageManager.NameNotFoundException e) {
+			// The only way PackageManager reports a missing package.
+			return false;
+		}
+	}
+
 	/**
 	 * Checks if Chrome is installed or not.
 	 *
@@ -322,6 +348,20 @@ public final class SDKUtils {
 			if (!string.startsWith("ipay")) {
 				throw new IllegalStateException(Constants.INVALID_URL_SCHEME_ADDED_REASON);
 			}
+			// The App Link is optional, it's configured alongside the url scheme.
+			final String callbackAppLink = getCallbackAppLink(context);
+			if (callbackAppLink != null) {
+				final Uri callbackAppLinkUri = Uri.parse(callbackAppLink);
+				if (!"https".equals(callbackAppLinkUri.getScheme())
+						|| TextUtils.isEmpty(callbackAppLinkUri.getHost())) {
+					throw new IllegalStateException(Constants.INVALID_APP_LINK_ADDED_REASON);
+				}
+				final String sampleCallbackUrl = callbackAppLink
+						+ (callbackAppLink.endsWith("/") ? "" : "/") + "IPAY-0/success";
+				if (!isCallbackUriDeclared(context, Uri.parse(sampleCallbackUrl))) {
+					throw new IllegalStateException(Constants.APP_LINK_NOT_DECLARED_REASON);
+				}
+			}
 			return true;
 		} catch (Exception e) {
 			if (initializeCallback != null) {
@@ -338,6 +378,53 @@ public final class SDKUtils {
 		}
 	}
 
+	/**
+	 * @param context           An android context
+	 * @param callbackUrlScheme callback url scheme
+	 * @return true if the callback url scheme opens {@link IPayCheckoutActivity} of the app,
+	 * otherwise false.
+	 */
+	static boolean isCallbackUrlSchemeDeclared(@NonNull Context context, @NonNull String callbackUrlScheme) {
+		return isCallbackUriDeclared(context, Uri.parse(callbackUrlScheme + "://"));
+	}
+
+	/**
+	 * @param context     An android context
+	 * @param callbackUri callback url
+	 * @return true if the callback url opens {@link IPayCheckoutActivity} of the app, otherwise
+	 * false.
+	 */
+	private static boolean isCallbackUriDeclared(@NonNull Context context, @NonNull Uri callbackUri) {
+		final Intent intent = new Intent(Intent.ACTION_VIEW, callbackUri);
+		intent.setPackage(context.getPackageName());
+		final List<ResolveInfo> resolveInfos = context.getPackageManager().queryIntentActivities(intent, 0);
+		if (resolveInfos != null) {
+			for (ResolveInfo resolveInfo : resolveInfos) {
+				if (resolveInfo.activityInfo != null
+						&& IPayCheckoutActivity.class.getName().equals(resolveInfo.activityInfo.name)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param context An android context
+	 * @return the verified App Link the app receives the checkout callback on, from
+	 * <code>ipay_callback_app_link</code> of strings.xml, null if the app hasn't added one.
+	 */
+	@Nullable
+	public static String getCallbackAppLink(@NonNull Context context) {
+		final int id = context.getResources().getIdentifier("ipay_callback_app_link", "string",
+				context.getPackageName());
+		if (id == 0) {
+			return null;
+		}
+		final String callbackAppLink = context.getString(id).trim();
+		return callbackAppLink.isEmpty() ? null : callbackAppLink;
+	}
+
 	/**
 	 * Opens the play store to install iPay.
 	 *
@@ -365,6 +452,48 @@ public final class SDKUtils {
 				checkoutCallbackActionUrls.getSuccessUrl().equals(Constants.EMPTY_STRING);
 	}
 
+	/**
+	 * Resolves the layer type of the web checkout {@link android.webkit.WebView} for the given
+	 * rendering mode.
+	 *
+	 * @param renderingMode rendering mode of the web checkout
+	 * @return one of {@link View#LAYER_TYPE_NONE}, {@link View#LAYER_TYPE_HARDWARE} or
+	 * {@link View#LAYER_TYPE_SOFTWARE}.
+	 */
+	public static int getWebViewLayerType(@NonNull IPaySDK.WebViewRenderingMode renderingMode) {
+		SDKUtils.notNull(renderingMode, "renderingMode");
+		switch (renderingMode) {
+			case HARDWARE:
+				return View.LAYER_TYPE_HARDWARE;
+			case SOFTWARE:
+				return View.LAYER_TYPE_SOFTWARE;
+			case AUTO:
+			default:
+				// LAYER_TYPE_NONE lets the WebView draw straight into the hardware accelerated window
+				// without the extra memory of an offscreen layer.
+				return isWebViewHardwareAccelerationSupported()
+						? View.LAYER_TYPE_NONE : View.LAYER_TYPE_SOFTWARE;
+		}
+	}
+
+	/**
+	 * Checks whether the device is known to render the web checkout incorrectly with hardware
+	 * acceleration. The pre-KitKat WebView and the emulators without a GPU are in this list.
+	 *
+	 * @return true if hardware acceleration can be used for the web checkout, otherwise false.
+	 */
+	public static boolean isWebViewHardwareAccelerationSupported() {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+			return false;
+		}
+		for (String hardware : Constants.WEB_VIEW_SOFTWARE_RENDERING_HARDWARE) {
+			if (hardware.equalsIgnoreCase(Build.HARDWARE)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Opens Browser/App that handle the given uri.
 	 *
@@ -25,9 +25,17 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.ActivityCompat;
 
+import java.util.Set;
+
 import bd.com.ipay.R;
+import bd.com.ipay.sdk.CheckoutProfile;
+import bd.com.ipay.sdk.CheckoutResultBus;
 import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.ipc.IPayServiceConnection;
+import bd.com.ipay.sdk.util.CheckoutCallbackParser;
 import bd.com.ipay.sdk.util.Logger;
+import bd.com.ipay.sdk.web.CustomTabsConnection;
 
 /**
  * @author iPay Bangladesh Ltd.
@@ -38,6 +46,8 @@ public class IPayCheckoutActivity extends IPaySDKBaseActivity {
 	private static final int THIRD_PARTY_APP_TO_IPAY_APP_REQUEST_CODE = 0xc001;
 	public static final String IPAY_CHECKOUT_URL_KEY = "ipay_checkout_url";
 	public static final String CHECKOUT_COMPLETE_START_COMPONENT_KEY = "checkout_complete_start_component";
+	public static final String CHECKOUT_CALLBACK_ACTIVITY_KEY = "checkout_callback_activity";
+	public static final String CHECKOUT_VIA_CUSTOM_TABS_KEY = "checkout_via_custom_tabs";
 
 	private final Handler backPressHandler = new Handler();
 	private final Runnable backPressHandlerRunnable = new Runnable() {
@@ -48,7 +58,11 @@ public class IPayCheckoutActivity extends IPaySDKBaseActivity {
 		}
 	};
 
+	private boolean useCallbackActivity;
 	private ComponentName checkoutActivityCallbackComponentName;
+	private IPayServiceConnection serviceConnection;
+	private boolean customTabsLaunched;
+	private boolean checkoutResultDelivered;
 
 	@Override
 	protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -60,7 +74,13 @@ public class IPayCheckoutActivity extends IPaySDKBaseActivity {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.activity_ipay_checkout);
 		if (checkIsCallbackIntent(getIntent())) {
-			final String checkoutActivityName = IPaySDK.getCheckoutCallBackActivity();
+			// Started by the callback itself, the merchant is known by the callback url scheme.
+			//noinspection ConstantConditions
+			final CheckoutProfile checkoutProfile = IPaySDK.getCheckoutProfileByCallbackUrlScheme(
+					getIntent().getData().getScheme());
+			final String checkoutActivityName = checkoutProfile != null
+					? checkoutProfile.getCheckoutCallBackActivity() : IPaySDK.getCheckoutCallBackActivity();
+			useCallbackActivity = true;
 			if (checkoutActivityName != null)
 				checkoutActivityCallbackComponentName = new ComponentName(getPackageName(), checkoutActivityName);
 			//noinspection ConstantConditions
@@ -75,14 +95,24 @@ public class IPayCheckoutActivity extends IPaySDKBaseActivity {
 		final String checkoutUrl = intent.getStringExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY);
 		if (intent.hasExtra(CHECKOUT_COMPLETE_START_COMPONENT_KEY) &&
 				intent.getBooleanExtra(CHECKOUT_COMPLETE_START_COMPONENT_KEY, false)) {
-			final String checkoutActivityName = IPaySDK.getCheckoutCallBackActivity();
+			useCallbackActivity = true;
+			final String checkoutActivityName = getCheckoutCallBackActivity(intent);
 			if (checkoutActivityName != null)
 				checkoutActivityCallbackComponentName = new ComponentName(getPackageName(), checkoutActivityName);
 		}
-		Intent checkoutIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(checkoutUrl));
-		checkoutIntent.setPackage(IPaySDK.IPAY_APP_PACKAGE_NAME);
 		try {
-			ActivityCompat.startActivityForResult(this, checkoutIntent, THIRD_PARTY_APP_TO_IPAY_APP_REQUEST_CODE, null);
+			if (intent.getBooleanExtra(CHECKOUT_VIA_CUSTOM_TABS_KEY, false)) {
+				// The result comes back through the callback url scheme in onNewIntent.
+				ActivityCompat.startActivity(this, CustomTabsConnection.createCheckoutIntent(checkoutUrl), null);
+				customTabsLaunched = true;
+			} else {
+				if (IPaySDK.isIPayServiceChannelEnabled()) {
+					connectToIPayService(checkoutUrl);
+				}
+				Intent checkoutIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(checkoutUrl));
+				checkoutIntent.setPackage(IPaySDK.IPAY_APP_PACKAGE_NAME);
+				ActivityCompat.startActivityForResult(this, checkoutIntent, THIRD_PARTY_APP_TO_IPAY_APP_REQUEST_CODE, null);
+			}
 		} catch (Exception e) {
 			Logger.e(TAG, e);
 			if (getCallingActivity() != null) {
@@ -92,15 +122,63 @@ public class IPayCheckoutActivity extends IPaySDKBaseActivity {
 		}
 	}
 
+	/**
+	 * Binds to the checkout service of the iPay app, so the result can come back through it
+	 * instead of the deep link. The deep link still completes the checkout when the service
+	 * isn't there or doesn't deliver.
+	 *
+	 * @param checkoutUrl iPay checkout url
+	 */
+	private void connectToIPayService(String checkoutUrl) {
+		serviceConnection = new IPayServiceConnection(this, new IPayServiceConnection.Listener() {
+			@Override
+			public void onCheckoutRegistered(@NonNull Set<String> capabilities) {
+				Logger.d(TAG, "Checkout registered on the iPay service, capabilities " + capabilities);
+			}
+
+			@Override
+			public void onCheckoutResult(@NonNull IPaySDK.CheckoutStatus checkoutStatus,
+			                             @Nullable String checkoutId) {
+				backPressHandler.removeCallbacks(backPressHandlerRunnable);
+				deliverCheckoutResult(checkoutStatus, checkoutId);
+			}
+
+			@Override
+			public void onUnavailable() {
+				Logger.d(TAG, "iPay service unavailable, waiting for the deep link");
+			}
+		});
+		if (!serviceConnection.connect(checkoutUrl)) {
+			serviceConnection = null;
+		}
+	}
+
 	private void performCheckoutCallbackAction(@NonNull Uri data) {
 		Logger.d(TAG, "performCheckoutCallbackAction(data " + data + ")");
+		final String callbackUrl = data.toString();
+		final String callbackAppLink = SDKUtils.getCallbackAppLink(this);
+		final String checkoutStatus = CheckoutCallbackParser.getCheckoutStatus(callbackUrl, callbackAppLink);
+		deliverCheckoutResult(checkoutStatus != null ? IPaySDK.CheckoutStatus.getValue(checkoutStatus) : null,
+				CheckoutCallbackParser.getCheckoutId(callbackUrl, callbackAppLink));
+	}
+
+	private void deliverCheckoutResult(@Nullable IPaySDK.CheckoutStatus checkoutStatus,
+	                                   @Nullable String checkoutId) {
+		// The result may come through both the service and the deep link.
+		if (checkoutResultDelivered) {
+			return;
+		}
+		checkoutResultDelivered = true;
+		if (serviceConnection != null) {
+			serviceConnection.disconnect();
+			serviceConnection = null;
+		}
 		Intent intent = new Intent();
-		final String urlScheme = data.getScheme();
-		String checkoutId = data.toString().replaceAll(urlScheme + "://(.*)/(.*)", "$1");
-		String checkoutStatus = data.toString().replaceAll(urlScheme + "://(.*)/(.*)", "$2");
-		intent.putExtra(IPaySDK.CHECKOUT_STATUS_KEY, IPaySDK.CheckoutStatus.getValue(checkoutStatus));
+		intent.putExtra(IPaySDK.CHECKOUT_STATUS_KEY, checkoutStatus);
 		intent.putExtra(IPaySDK.CHECKOUT_ID_KEY, checkoutId);
-		if (checkoutActivityCallbackComponentName != null) {
+		if (useCallbackActivity && CheckoutResultBus.post(checkoutStatus, checkoutId)) {
+			Logger.d(TAG, "Checkout result delivered through the result bus");
+		} else if (checkoutActivityCallbackComponentName != null) {
 			try {
 				intent.setComponent(checkoutActivityCallbackComponentName);
 				ActivityCompat.startActivity(this, intent, null);
@@ -113,6 +191,19 @@ public class IPayCheckoutActivity extends IPaySDKBaseActivity {
 		finish();
 	}
 
+	/**
+	 * @param intent intent the checkout has been started with
+	 * @return the callback activity the checkout has been started with, the one of the SDK for
+	 * an intent without it.
+	 */
+	@Nullable
+	public static String getCheckoutCallBackActivity(@NonNull Intent intent) {
+		if (intent.hasExtra(CHECKOUT_CALLBACK_ACTIVITY_KEY)) {
+			return intent.getStringExtra(CHECKOUT_CALLBACK_ACTIVITY_KEY);
+		}
+		return IPaySDK.getCheckoutCallBackActivity();
+	}
+
 	private boolean checkIsCallbackIntent(@Nullable Intent intent) {
 		if (intent != null && intent.getAction() != null) {
 			switch (intent.getAction()) {
@@ -136,6 +227,25 @@ public class IPayCheckoutActivity extends IPaySDKBaseActivity {
 		}
 	}
 
+	@Override
+	protected void onDestroy() {
+		backPressHandler.removeCallbacks(backPressHandlerRunnable);
+		if (serviceConnection != null) {
+			serviceConnection.disconnect();
+			serviceConnection = null;
+		}
+		super.onDestroy();
+	}
+
+	@Override
+	protected void onRestart() {
+		super.onRestart();
+		// Coming back from the Custom Tab without the callback means the user closed it.
+		if (customTabsLaunched && !isFinishing()) {
+			backPressHandler.postDelayed(backPressHandlerRunnable, 1000);
+		}
+	}
+
 	@Override
 	protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
 		super.onActivityResult(requestCode, resultCode, data);
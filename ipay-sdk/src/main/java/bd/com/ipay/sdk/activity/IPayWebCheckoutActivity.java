@@ -15,31 +15,27 @@
  */
 package bd.com.ipay.sdk.activity;
 
-import android.annotation.SuppressLint;
-import android.annotation.TargetApi;
 import android.app.AlertDialog;
 import android.content.ComponentName;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.app.ActivityCompat;
 import android.view.MenuItem;
 import android.view.View;
-import android.webkit.WebChromeClient;
-import android.webkit.WebResourceRequest;
-import android.webkit.WebView;
-import android.webkit.WebViewClient;
+import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import android.widget.ProgressBar;
 
 import bd.com.ipay.R;
+import bd.com.ipay.sdk.CheckoutResultBus;
 import bd.com.ipay.sdk.IPaySDK;
-import bd.com.ipay.sdk.SDKUtils;
 import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
 import bd.com.ipay.sdk.util.Logger;
+import bd.com.ipay.sdk.web.WebCheckoutController;
 
 /**
  * @author iPay Bangladesh Ltd.
@@ -49,12 +45,12 @@ public class IPayWebCheckoutActivity extends IPaySDKBaseActivity {
 	private static final Class<IPayWebCheckoutActivity> TAG = IPayWebCheckoutActivity.class;
 	public static final String THIRD_PARTY_CHECKOUT_CALLBACK_URL_KEY = "THIRD_PARTY_CHECKOUT_CALLBACK_URL";
 
+	private boolean useCallbackActivity;
 	private ComponentName checkoutActivityCallbackComponentName;
-	private String checkoutUrl;
-	private WebView webView;
+	private WebCheckoutController webCheckoutController;
 	private AlertDialog alertDialog;
+	private boolean checkoutFinished;
 
-	@SuppressLint("SetJavaScriptEnabled")
 	@Override
 	protected void onCreate(@Nullable Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -62,71 +58,23 @@ public class IPayWebCheckoutActivity extends IPaySDKBaseActivity {
 		if (getActionBar() != null) {
 			getActionBar().setDisplayHomeAsUpEnabled(true);
 		}
-		final boolean isChromeAvailable = SDKUtils.isChromeInstalled(this);
-		webView = findViewById(R.id.web_view);
 		final ImageButton closeButton = findViewById(R.id.cancel_button);
 		final ProgressBar progressBar = findViewById(R.id.progress_bar);
+		final FrameLayout webViewContainer = findViewById(R.id.web_view_container);
 
 		final CheckoutCallbackActionUrls checkoutCallbackActionUrls = getIntent().getParcelableExtra(THIRD_PARTY_CHECKOUT_CALLBACK_URL_KEY);
-		checkoutUrl = getIntent().getStringExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY);
+		final String checkoutUrl = getIntent().getStringExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY);
 
 		if (getIntent().hasExtra(IPayCheckoutActivity.CHECKOUT_COMPLETE_START_COMPONENT_KEY) &&
 				getIntent().getBooleanExtra(IPayCheckoutActivity.CHECKOUT_COMPLETE_START_COMPONENT_KEY, false)) {
-			final String checkoutActivityName = IPaySDK.getCheckoutCallBackActivity();
+			useCallbackActivity = true;
+			final String checkoutActivityName = IPayCheckoutActivity.getCheckoutCallBackActivity(getIntent());
 			if (checkoutActivityName != null)
 				checkoutActivityCallbackComponentName = new ComponentName(getPackageName(), checkoutActivityName);
 		} else {
 			checkoutActivityCallbackComponentName = null;
 		}
 
-		if (SDKUtils.isValidCheckoutCallbackActionUrls(checkoutCallbackActionUrls)) {
-			finishCheckout(IPaySDK.CheckoutStatus.FAILED);
-		}
-
-		progressBar.setMax(100);
-		webView.setWebViewClient(new WebViewClient() {
-			@TargetApi(Build.VERSION_CODES.LOLLIPOP)
-			@Override
-			public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
-				if (request.getUrl().toString().matches(checkoutCallbackActionUrls.getSuccessUrl())) {
-					finishCheckout(IPaySDK.CheckoutStatus.SUCCESS);
-					return false;
-				} else if (request.getUrl().toString().matches(checkoutCallbackActionUrls.getFailedUrl())) {
-					finishCheckout(IPaySDK.CheckoutStatus.FAILED);
-					return false;
-				} else if (request.getUrl().toString().matches(checkoutCallbackActionUrls.getCancelledUrl())) {
-					finishCheckout(IPaySDK.CheckoutStatus.CANCELLED);
-					return false;
-				} else {
-					return super.shouldOverrideUrlLoading(view, request);
-				}
-			}
-
-			@Override
-			public boolean shouldOverrideUrlLoading(WebView view, String url) {
-				if (url.matches(checkoutCallbackActionUrls.getSuccessUrl())) {
-					finishCheckout(IPaySDK.CheckoutStatus.SUCCESS);
-					return false;
-				} else if (url.matches(checkoutCallbackActionUrls.getFailedUrl())) {
-					finishCheckout(IPaySDK.CheckoutStatus.FAILED);
-					return false;
-				} else if (url.matches(checkoutCallbackActionUrls.getCancelledUrl())) {
-					finishCheckout(IPaySDK.CheckoutStatus.CANCELLED);
-					return false;
-				} else {
-					return super.shouldOverrideUrlLoading(view, url);
-				}
-			}
-		});
-
-		if (isChromeAvailable) {
-			webView.setWebChromeClient(new WebChromeClient() {
-
-			});
-		} else {
-			progressBar.setVisibility(View.GONE);
-		}
-
 		closeButton.setOnClickListener(new View.OnClickListener() {
 			@Override
 			public void onClick(View v) {
@@ -134,22 +82,70 @@ public class IPayWebCheckoutActivity extends IPaySDKBaseActivity {
 			}
 		});
 
-		webView.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
-		webView.getSettings().setJavaScriptEnabled(true);
-		webView.getSettings().setDomStorageEnabled(true);
-		webView.getSettings().setDatabaseEnabled(true);
-		webView.loadUrl(checkoutUrl);
+		webCheckoutController = new WebCheckoutController(this, webViewContainer, progressBar,
+				new WebCheckoutController.Listener() {
+					@Override
+					public void onCheckoutFinished(@NonNull IPaySDK.CheckoutStatus checkoutStatus,
+					                               @Nullable String checkoutId) {
+						finishCheckout(checkoutStatus, checkoutId);
+					}
+				});
+		webCheckoutController.start(checkoutUrl, checkoutCallbackActionUrls);
+	}
+
+	@Override
+	protected void onResume() {
+		super.onResume();
+		webCheckoutController.onResume();
+	}
+
+	@Override
+	protected void onPause() {
+		webCheckoutController.onPause();
+		super.onPause();
+	}
+
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		webCheckoutController.onTrimMemory(level);
+	}
+
+	@Override
+	protected void onDestroy() {
+		if (alertDialog != null) {
+			alertDialog.dismiss();
+			alertDialog = null;
+		}
+		if (webCheckoutController != null) {
+			webCheckoutController.destroy();
+		}
+		super.onDestroy();
+	}
+
+	/**
+	 * @return the controller running the checkout of this screen.
+	 */
+	@VisibleForTesting
+	WebCheckoutController getWebCheckoutController() {
+		return webCheckoutController;
 	}
 
-	private void finishCheckout(IPaySDK.CheckoutStatus checkoutStatus) {
+	private void finishCheckout(IPaySDK.CheckoutStatus checkoutStatus, @Nullable String checkoutId) {
+		if (checkoutFinished) {
+			return;
+		}
+		checkoutFinished = true;
+
 		final Intent intent = new Intent();
 		intent.putExtra(IPaySDK.CHECKOUT_STATUS_KEY, checkoutStatus);
-		final Uri uri = Uri.parse(checkoutUrl);
-		if (!uri.getPathSegments().isEmpty() && uri.getPathSegments().contains("checkout") && uri.getPathSegments().contains("pay")) {
-			intent.putExtra(IPaySDK.CHECKOUT_ID_KEY, uri.getPathSegments().get(uri.getPathSegments().size() - 1));
+		if (checkoutId != null) {
+			intent.putExtra(IPaySDK.CHECKOUT_ID_KEY, checkoutId);
 		}
 
-		if (checkoutActivityCallbackComponentName != null) {
+		if (useCallbackActivity && CheckoutResultBus.post(checkoutStatus, checkoutId)) {
+			Logger.d(TAG, "Checkout result delivered through the result bus");
+		} else if (checkoutActivityCallbackComponentName != null) {
 			try {
 				intent.setComponent(checkoutActivityCallbackComponentName);
 				ActivityCompat.startActivity(this, intent, null);
@@ -176,9 +172,7 @@ public class IPayWebCheckoutActivity extends IPaySDKBaseActivity {
 	@Override
 	public void onBackPressed() {
 		super.onBackPressed();
-		if (webView.canGoBack()) {
-			webView.goBack();
-		} else {
+		if (!webCheckoutController.goBack()) {
 			showCancelAlertDialog();
 		}
 	}
@@ -196,7 +190,7 @@ public class IPayWebCheckoutActivity extends IPaySDKBaseActivity {
 						@Override
 						public void onClick(DialogInterface dialog, int which) {
 							dialog.cancel();
-							finishCheckout(IPaySDK.CheckoutStatus.CANCELLED);
+							webCheckoutController.cancel();
 						}
 					})
 					.create();
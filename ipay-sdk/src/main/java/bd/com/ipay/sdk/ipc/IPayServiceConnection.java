@@ -0,0 +1,273 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.ipc;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * {@link Messenger} channel to the checkout service exported by the iPay app. Over the channel
+ * the iPay app delivers the result of a checkout directly, instead of through the deep link of
+ * the <code>ipay_callback_url_scheme</code> back into the app.
+ * </p>
+ * <p>
+ * The protocol, all messages carry their data in {@link Message#getData()}:
+ * </p>
+ * <ol>
+ * <li>The SDK binds to the service of {@link #ACTION_CHECKOUT_SERVICE} in the iPay app and sends
+ * {@link #MSG_HELLO} with its {@link #PROTOCOL_VERSION} in {@link Message#arg1} and its
+ * messenger in {@link Message#replyTo}.</li>
+ * <li>The service replies {@link #MSG_HELLO_REPLY} with the protocol version it speaks in
+ * {@link Message#arg1} and its capabilities under {@link #KEY_CAPABILITIES}.</li>
+ * <li>If the service has {@link #CAPABILITY_CHECKOUT_RESULT}, the SDK sends
+ * {@link #MSG_REGISTER_CHECKOUT} with the checkout url under {@link #KEY_CHECKOUT_URL}. The service
+ * then skips the deep link of that checkout.</li>
+ * <li>Once the checkout is completed the service sends {@link #MSG_CHECKOUT_RESULT} with the
+ * status under {@link IPaySDK#CHECKOUT_STATUS_KEY}, one of success, failed or cancelled, and the
+ * id under {@link IPaySDK#CHECKOUT_ID_KEY}.</li>
+ * </ol>
+ * <p>
+ * When the service is absent, speaks another protocol version or lacks the capability, the
+ * checkout goes on through the deep link. All methods must be called from the main thread.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class IPayServiceConnection {
+	private static final Class<IPayServiceConnection> TAG = IPayServiceConnection.class;
+
+	public static final String ACTION_CHECKOUT_SERVICE = "bd.com.ipay.android.action.CHECKOUT_SERVICE";
+	public static final int PROTOCOL_VERSION = 1;
+
+	public static final int MSG_HELLO = 1;
+	public static final int MSG_HELLO_REPLY = 2;
+	public static final int MSG_REGISTER_CHECKOUT = 3;
+	public static final int MSG_CHECKOUT_RESULT = 4;
+
+	public static final String KEY_CAPABILITIES = "capabilities";
+	public static final String KEY_CHECKOUT_URL = "checkout_url";
+	public static final String CAPABILITY_CHECKOUT_RESULT = "checkout_result";
+
+	/**
+	 * Receives the events of the channel on the main thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called once the service has accepted to deliver the result of the checkout.
+		 *
+		 * @param capabilities capabilities of the service
+		 */
+		void onCheckoutRegistered(@NonNull Set<String> capabilities);
+
+		/**
+		 * Called once with the result of the checkout.
+		 *
+		 * @param checkoutStatus status of the checkout
+		 * @param checkoutId     id of the checkout, null if the service didn't send it
+		 */
+		void onCheckoutResult(@NonNull IPaySDK.CheckoutStatus checkoutStatus, @Nullable String checkoutId);
+
+		/**
+		 * Called when the channel can't deliver the result, the checkout must go on through the
+		 * deep link. Not called after {@link #disconnect()}.
+		 */
+		void onUnavailable();
+	}
+
+	@NonNull
+	private final Context context;
+	@NonNull
+	private final Listener listener;
+	private final Messenger replyMessenger = new Messenger(new Handler(Looper.getMainLooper()) {
+		@Override
+		public void handleMessage(Message msg) {
+			onMessage(msg);
+		}
+	});
+	private final ServiceConnection serviceConnection = new ServiceConnection() {
+		@Override
+		public void onServiceConnected(ComponentName name, IBinder service) {
+			Logger.d(TAG, "Connected to " + name);
+			serviceMessenger = new Messenger(service);
+			final Message hello = Message.obtain(null, MSG_HELLO, PROTOCOL_VERSION, 0);
+			send(hello);
+		}
+
+		@Override
+		public void onServiceDisconnected(ComponentName name) {
+			Logger.w(TAG, "Disconnected from " + name);
+			serviceMessenger = null;
+			unavailable();
+		}
+	};
+
+	private String checkoutUrl;
+	private Messenger serviceMessenger;
+	private boolean bound;
+	private boolean finished;
+
+	/**
+	 * @param context  an android context, the application context is bound to the service
+	 * @param listener listener of the channel
+	 */
+	public IPayServiceConnection(@NonNull Context context, @NonNull Listener listener) {
+		SDKUtils.notNull(context, "context");
+		SDKUtils.notNull(listener, "listener");
+		this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+		this.listener = listener;
+	}
+
+	/**
+	 * @param context an android context
+	 * @return true if the installed iPay app exports the checkout service, otherwise false.
+	 */
+	public static boolean isServiceAvailable(@NonNull Context context) {
+		return !context.getPackageManager().queryIntentServices(createServiceIntent(), 0).isEmpty();
+	}
+
+	@NonNull
+	private static Intent createServiceIntent() {
+		return new Intent(ACTION_CHECKOUT_SERVICE).setPackage(IPaySDK.IPAY_APP_PACKAGE_NAME);
+	}
+
+	/**
+	 * Binds to the checkout service of the iPay app and registers the checkout on it.
+	 *
+	 * @param checkoutUrl iPay checkout url
+	 * @return true if the binding has started, false if the service is absent. The listener
+	 * isn't called in that case.
+	 */
+	@MainThread
+	public boolean connect(@NonNull String checkoutUrl) {
+		SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+		if (bound) {
+			throw new IllegalStateException("already connected");
+		}
+		this.checkoutUrl = checkoutUrl;
+		try {
+			bound = isServiceAvailable(context)
+					&& context.bindService(createServiceIntent(), serviceConnection, Context.BIND_AUTO_CREATE);
+		} catch (SecurityException e) {
+			Logger.e(TAG, e);
+			bound = false;
+		}
+		if (!bound) {
+			finished = true;
+		}
+		return bound;
+	}
+
+	/**
+	 * Unbinds from the service, the listener isn't called anymore.
+	 */
+	@MainThread
+	public void disconnect() {
+		finished = true;
+		serviceMessenger = null;
+		if (bound) {
+			bound = false;
+			try {
+				context.unbindService(serviceConnection);
+			} catch (IllegalArgumentException e) {
+				Logger.w(TAG, e);
+			}
+		}
+	}
+
+	private void onMessage(@NonNull Message msg) {
+		if (finished) {
+			return;
+		}
+		switch (msg.what) {
+			case MSG_HELLO_REPLY:
+				final String[] capabilities = msg.getData().getStringArray(KEY_CAPABILITIES);
+				final Set<String> capabilitySet = capabilities != null
+						? new HashSet<>(Arrays.asList(capabilities)) : Collections.<String>emptySet();
+				if (msg.arg1 != PROTOCOL_VERSION || !capabilitySet.contains(CAPABILITY_CHECKOUT_RESULT)) {
+					Logger.w(TAG, "Checkout service of protocol version " + msg.arg1 + " with "
+							+ capabilitySet + " can't deliver the result");
+					unavailable();
+					return;
+				}
+				final Message register = Message.obtain(null, MSG_REGISTER_CHECKOUT);
+				register.getData().putString(KEY_CHECKOUT_URL, checkoutUrl);
+				if (send(register)) {
+					listener.onCheckoutRegistered(Collections.unmodifiableSet(capabilitySet));
+				}
+				break;
+			case MSG_CHECKOUT_RESULT:
+				final Bundle data = msg.getData();
+				final String status = data.getString(IPaySDK.CHECKOUT_STATUS_KEY);
+				final IPaySDK.CheckoutStatus checkoutStatus = status != null
+						? IPaySDK.CheckoutStatus.getValue(status) : null;
+				if (checkoutStatus == null || checkoutStatus == IPaySDK.CheckoutStatus.TIMEOUT) {
+					Logger.w(TAG, "Dropping malformed checkout result " + status);
+					return;
+				}
+				final String checkoutId = data.getString(IPaySDK.CHECKOUT_ID_KEY);
+				disconnect();
+				listener.onCheckoutResult(checkoutStatus, checkoutId);
+				break;
+			default:
+				Logger.w(TAG, "Dropping unknown message " + msg.what);
+		}
+	}
+
+	private boolean send(@NonNull Message msg) {
+		if (serviceMessenger == null) {
+			return false;
+		}
+		msg.replyTo = replyMessenger;
+		try {
+			serviceMessenger.send(msg);
+			return true;
+		} catch (RemoteException e) {
+			Logger.e(TAG, e);
+			unavailable();
+			return false;
+		}
+	}
+
+	private void unavailable() {
+		if (!finished) {
+			disconnect();
+			listener.onUnavailable();
+		}
+	}
+}
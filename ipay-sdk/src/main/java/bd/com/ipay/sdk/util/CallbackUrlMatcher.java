@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Classifies a url against the success, failed and cancelled callback urls of a checkout. The
+ * callback urls are compiled once per checkout into a single pattern, so a url is classified in
+ * one pass instead of recompiling a regex for every callback url on every navigation.
+ * </p>
+ * <p>
+ * When none of the callback urls contain regex meta characters (other than the '.' which every
+ * url has), they are treated as plain urls. In that case a url matches when it is equal to the
+ * callback url or starts with it followed by a query string or a fragment.
+ * </p>
+ * <p>
+ * This class has no Android dependency.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CallbackUrlMatcher {
+	public static final int NO_MATCH = -1;
+	public static final int SUCCESS = 0;
+	public static final int FAILED = 1;
+	public static final int CANCELLED = 2;
+
+	private static final String REGEX_META_CHARACTERS = "\\^$*+?()[]{}|";
+
+	@Nullable
+	private final String[] literalUrls;
+	@Nullable
+	private final Pattern pattern;
+	private final int[] groups;
+
+	private CallbackUrlMatcher(@Nullable String[] literalUrls, @Nullable Pattern pattern,
+	                           int[] groups) {
+		this.literalUrls = literalUrls;
+		this.pattern = pattern;
+		this.groups = groups;
+	}
+
+	/**
+	 * Compiles the callback urls into a matcher. Plain urls are matched as literal prefixes, in
+	 * any other case the urls are matched as regular expressions like {@link String#matches(String)}.
+	 *
+	 * @param successUrl   success callback url or regex
+	 * @param failedUrl    failed callback url or regex
+	 * @param cancelledUrl cancelled callback url or regex
+	 * @return a matcher of the callback urls.
+	 * @throws java.util.regex.PatternSyntaxException if any of the callback url isn't a plain url
+	 *                                                and isn't a valid regex either.
+	 */
+	@NonNull
+	public static CallbackUrlMatcher compile(@NonNull String successUrl, @NonNull String failedUrl,
+	                                         @NonNull String cancelledUrl) {
+		if (isLiteral(successUrl) && isLiteral(failedUrl) && isLiteral(cancelledUrl)) {
+			return literal(successUrl, failedUrl, cancelledUrl);
+		} else {
+			return regex(successUrl, failedUrl, cancelledUrl);
+		}
+	}
+
+	/**
+	 * Compiles the callback urls into a literal prefix matcher regardless of their content.
+	 *
+	 * @param successUrl   success callback url
+	 * @param failedUrl    failed callback url
+	 * @param cancelledUrl cancelled callback url
+	 * @return a literal prefix matcher of the callback urls.
+	 */
+	@NonNull
+	public static CallbackUrlMatcher literal(@NonNull String successUrl, @NonNull String failedUrl,
+	                                         @NonNull String cancelledUrl) {
+		return new CallbackUrlMatcher(new String[]{successUrl, failedUrl, cancelledUrl}, null,
+				new int[0]);
+	}
+
+	/**
+	 * Compiles the callback urls into a regex matcher regardless of their content.
+	 *
+	 * @param successUrl   success callback regex
+	 * @param failedUrl    failed callback regex
+	 * @param cancelledUrl cancelled callback regex
+	 * @return a regex matcher of the callback urls.
+	 * @throws java.util.regex.PatternSyntaxException if any of the callback url isn't a valid regex.
+	 */
+	@NonNull
+	public static CallbackUrlMatcher regex(@NonNull String successUrl, @NonNull String failedUrl,
+	                                       @NonNull String cancelledUrl) {
+		// The capturing groups of the callback urls shift the group index of each alternative.
+		final int successGroup = 1;
+		final int failedGroup = successGroup + groupCount(successUrl) + 1;
+		final int cancelledGroup = failedGroup + groupCount(failedUrl) + 1;
+		final Pattern pattern = Pattern.compile("(" + successUrl + ")|(" + failedUrl + ")|("
+				+ cancelledUrl + ")");
+		return new CallbackUrlMatcher(null, pattern,
+				new int[]{successGroup, failedGroup, cancelledGroup});
+	}
+
+	/**
+	 * @return true if the callback urls are matched as literal prefixes, otherwise false.
+	 */
+	public boolean isLiteral() {
+		return literalUrls != null;
+	}
+
+	/**
+	 * Classifies the url against the callback urls. If the url matches more than one callback
+	 * url, the success url gets the priority over the failed url, which gets the priority over
+	 * the cancelled url.
+	 *
+	 * @param url url to classify
+	 * @return one of {@link #SUCCESS}, {@link #FAILED}, {@link #CANCELLED} or {@link #NO_MATCH}.
+	 */
+	public int match(@Nullable String url) {
+		if (url == null) {
+			return NO_MATCH;
+		}
+		if (literalUrls != null) {
+			for (int i = 0; i < literalUrls.length; i++) {
+				if (matchesLiteral(url, literalUrls[i])) {
+					return i;
+				}
+			}
+			return NO_MATCH;
+		}
+
+		//noinspection ConstantConditions
+		final Matcher matcher = pattern.matcher(url);
+		if (matcher.matches()) {
+			for (int i = 0; i < groups.length; i++) {
+				if (matcher.start(groups[i]) != -1) {
+					return i;
+				}
+			}
+		}
+		return NO_MATCH;
+	}
+
+	private static boolean matchesLiteral(@NonNull String url, @NonNull String literalUrl) {
+		if (!url.startsWith(literalUrl)) {
+			return false;
+		}
+		if (url.length() == literalUrl.length()) {
+			return true;
+		}
+		final char next = url.charAt(literalUrl.length());
+		return next == '?' || next == '#';
+	}
+
+	private static boolean isLiteral(@NonNull String url) {
+		for (int i = 0; i < url.length(); i++) {
+			if (REGEX_META_CHARACTERS.indexOf(url.charAt(i)) != -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int groupCount(@NonNull String regex) {
+		return Pattern.compile(regex).matcher("").groupCount();
+	}
+}
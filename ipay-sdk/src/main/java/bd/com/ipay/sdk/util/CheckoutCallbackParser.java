@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * <p>
+ * Parses the deep link the iPay app calls back with, <code>scheme://checkoutId/status</code>.
+ * The checkout id is everything between the scheme and the last '/', the status is everything
+ * after it, same as the <code>scheme://(.*)/(.*)</code> regex the callback was parsed with before.
+ * </p>
+ * <p>
+ * A verified App Link callback, <code>https://host/path/checkoutId/status</code>, is parsed the
+ * same way when the App Link of the app is given, the checkout id then starts after the App
+ * Link instead of after the scheme. A web url which doesn't start with the App Link isn't a
+ * callback url. The query and the fragment of the url are ignored.
+ * </p>
+ * <p>
+ * The url is scanned with {@link String#indexOf(String)} instead of a regex, the only
+ * allocations are the returned substrings. This class has no Android dependency.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CheckoutCallbackParser {
+	private static final String SCHEME_SEPARATOR = "://";
+	private static final String HTTP_SCHEME = "http://";
+	private static final String HTTPS_SCHEME = "https://";
+
+	private CheckoutCallbackParser() {
+		// Prohibiting from creation of an instance
+	}
+
+	/**
+	 * @param callbackUrl callback url the iPay app called back with
+	 * @return the checkout id of the callback url, null if the url isn't a callback url.
+	 */
+	@Nullable
+	public static String getCheckoutId(@NonNull String callbackUrl) {
+		return getCheckoutId(callbackUrl, null);
+	}
+
+	/**
+	 * @param callbackUrl     callback url the iPay app called back with
+	 * @param callbackAppLink App Link the app receives the callback on, like
+	 *                        <code>https://merchant.com/ipay</code>, null if there is none
+	 * @return the checkout id of the callback url, null if the url isn't a callback url.
+	 */
+	@Nullable
+	public static String getCheckoutId(@NonNull String callbackUrl, @Nullable String callbackAppLink) {
+		final int start = getPathStart(callbackUrl, callbackAppLink);
+		if (start == -1) {
+			return null;
+		}
+		return callbackUrl.substring(start, callbackUrl.lastIndexOf('/', getPathEnd(callbackUrl) - 1));
+	}
+
+	/**
+	 * @param callbackUrl callback url the iPay app called back with
+	 * @return the checkout status of the callback url, like success, null if the url isn't a
+	 * callback url.
+	 */
+	@Nullable
+	public static String getCheckoutStatus(@NonNull String callbackUrl) {
+		return getCheckoutStatus(callbackUrl, null);
+	}
+
+	/**
+	 * @param callbackUrl     callback url the iPay app called back with
+	 * @param callbackAppLink App Link the app receives the callback on, null if there is none
+	 * @return the checkout status of the callback url, like success, null if the url isn't a
+	 * callback url.
+	 */
+	@Nullable
+	public static String getCheckoutStatus(@NonNull String callbackUrl, @Nullable String callbackAppLink) {
+		if (getPathStart(callbackUrl, callbackAppLink) == -1) {
+			return null;
+		}
+		final int end = getPathEnd(callbackUrl);
+		return callbackUrl.substring(callbackUrl.lastIndexOf('/', end - 1) + 1, end);
+	}
+
+	/**
+	 * @return the index right after the App Link when the url starts with it, otherwise right
+	 * after the scheme separator. -1 if the url has no scheme, is a web url which doesn't start
+	 * with the App Link, or has no '/' between the start and the query.
+	 */
+	private static int getPathStart(@NonNull String callbackUrl, @Nullable String callbackAppLink) {
+		int start;
+		if (isWebUrl(callbackUrl)) {
+			// Only the App Link of the app is a callback, any other web url isn't.
+			if (callbackAppLink == null || callbackAppLink.isEmpty()
+					|| !callbackUrl.startsWith(callbackAppLink)) {
+				return -1;
+			}
+			start = callbackAppLink.length();
+			if (callbackAppLink.charAt(start - 1) != '/') {
+				// Only a whole path segment matches, https://merchant.com/ipay isn't a prefix of
+				// https://merchant.com/ipayment/...
+				if (callbackUrl.length() == start || callbackUrl.charAt(start) != '/') {
+					return -1;
+				}
+				start++;
+			}
+		} else {
+			final int separator = callbackUrl.indexOf(SCHEME_SEPARATOR);
+			if (separator < 1) {
+				return -1;
+			}
+			start = separator + SCHEME_SEPARATOR.length();
+		}
+		final int end = getPathEnd(callbackUrl);
+		return end > start && callbackUrl.lastIndexOf('/', end - 1) >= start ? start : -1;
+	}
+
+	/**
+	 * @return the index of the query or the fragment of the url, its length if it has neither.
+	 */
+	private static int getPathEnd(@NonNull String callbackUrl) {
+		for (int i = 0; i < callbackUrl.length(); i++) {
+			final char c = callbackUrl.charAt(i);
+			if (c == '?' || c == '#') {
+				return i;
+			}
+		}
+		return callbackUrl.length();
+	}
+
+	private static boolean isWebUrl(@NonNull String callbackUrl) {
+		return callbackUrl.regionMatches(true, 0, HTTPS_SCHEME, 0, HTTPS_SCHEME.length())
+				|| callbackUrl.regionMatches(true, 0, HTTP_SCHEME, 0, HTTP_SCHEME.length());
+	}
+}
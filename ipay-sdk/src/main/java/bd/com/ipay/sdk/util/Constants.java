@@ -73,9 +73,35 @@ public class Constants {
 			"Callback url scheme doesn't start with prefix `ipay`, please add a valid url scheme to your strings.xml like below\n" +
 					"<string name=\"ipay_callback_url_scheme\">IPAY_PROVIDED_URL_SCHEME</string>";
 
+	public static final String INVALID_APP_LINK_ADDED_REASON =
+			"Callback App Link isn't an https url with a host, please add a valid App Link to your strings.xml like below\n" +
+					"<string name=\"ipay_callback_app_link\">https://YOUR_DOMAIN/YOUR_PATH</string>";
+
+	public static final String APP_LINK_NOT_DECLARED_REASON =
+			"Callback App Link is not declared on IPayCheckoutActivity, please add an intent-filter with " +
+					"android:autoVerify=\"true\" and <data android:scheme=\"https\" android:host=\"YOUR_DOMAIN\" " +
+					"android:pathPrefix=\"/YOUR_PATH\" /> to IPayCheckoutActivity in your AndroidManifest.xml";
+
+	public static final String INVALID_PROFILE_URL_SCHEME_REASON =
+			"Callback url scheme of the checkout profile doesn't start with prefix `ipay`";
+
+	public static final String PROFILE_URL_SCHEME_NOT_DECLARED_REASON =
+			"Callback url scheme of the checkout profile is not declared on IPayCheckoutActivity, please add " +
+					"<data android:scheme=\"IPAY_PROVIDED_URL_SCHEME\" /> to an intent-filter of " +
+					"IPayCheckoutActivity in your AndroidManifest.xml like the ipay_callback_url_scheme";
+
+	public static final String PROFILE_ALREADY_REGISTERED_REASON =
+			"A checkout profile with the same name or callback url scheme is already registered";
+
 	public static final String CHROME_STABLE_PACKAGE = "com.android.chrome";
 	public static final String CHROME_BETA_PACKAGE = "com.chrome.beta";
 	public static final String CHROME_DEV_PACKAGE = "com.chrome.dev";
 	public static final String CHROME_LOCAL_PACKAGE = "com.google.android.apps.chrome";
 
+	/**
+	 * {@link android.os.Build#HARDWARE} values of the devices which have no usable GPU for
+	 * rendering the web checkout.
+	 */
+	public static final String[] WEB_VIEW_SOFTWARE_RENDERING_HARDWARE = {"goldfish", "vbox86"};
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.util;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.Locale;
+
+import bd.com.ipay.sdk.IPaySDK;
+
+/**
+ * Measures the frame times of the UI thread through {@link Choreographer} and logs a summary of
+ * them. Used to compare the rendering modes of the web checkout. The monitor only runs while the
+ * SDK debug log is enabled and on devices running Jelly Bean or above.
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class FrameTimeMonitor {
+	private static final Class<FrameTimeMonitor> TAG = FrameTimeMonitor.class;
+	private static final long NANOS_PER_MILLI = 1000000L;
+	private static final long JANK_FRAME_THRESHOLD_NANOS = 32 * NANOS_PER_MILLI;
+
+	@NonNull
+	private final String name;
+	private Object frameCallback;
+
+	private long lastFrameTimeNanos;
+	private long totalFrameTimeNanos;
+	private long maxFrameTimeNanos;
+	private int frameCount;
+	private int jankFrameCount;
+
+	public FrameTimeMonitor(@NonNull String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Starts measuring the frame times. Must be called from the UI thread.
+	 */
+	public void start() {
+		if (!IPaySDK.isDebugLogEnabled() || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+				|| frameCallback != null) {
+			return;
+		}
+		startFrameCallback();
+	}
+
+	/**
+	 * Stops measuring the frame times and logs the summary of the frames measured so far.
+	 * Must be called from the UI thread.
+	 */
+	public void stop() {
+		if (frameCallback == null) {
+			return;
+		}
+		stopFrameCallback();
+		if (frameCount > 0) {
+			Logger.d(TAG, String.format(Locale.US, "%s: %d frames, average %.2fms, max %.2fms, "
+							+ "%d janky frames", name, frameCount,
+					(double) totalFrameTimeNanos / frameCount / NANOS_PER_MILLI,
+					(double) maxFrameTimeNanos / NANOS_PER_MILLI, jankFrameCount));
+		}
+		lastFrameTimeNanos = 0;
+		totalFrameTimeNanos = 0;
+		maxFrameTimeNanos = 0;
+		frameCount = 0;
+		jankFrameCount = 0;
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void startFrameCallback() {
+		final Choreographer.FrameCallback callback = new Choreographer.FrameCallback() {
+			@Override
+			public void doFrame(long frameTimeNanos) {
+				if (frameCallback != this) {
+					return;
+				}
+				if (lastFrameTimeNanos != 0) {
+					final long frameDuration = frameTimeNanos - lastFrameTimeNanos;
+					totalFrameTimeNanos += frameDuration;
+					maxFrameTimeNanos = Math.max(maxFrameTimeNanos, frameDuration);
+					frameCount++;
+					if (frameDuration > JANK_FRAME_THRESHOLD_NANOS) {
+						jankFrameCount++;
+					}
+				}
+				lastFrameTimeNanos = frameTimeNanos;
+				Choreographer.getInstance().postFrameCallback(this);
+			}
+		};
+		frameCallback = callback;
+		Choreographer.getInstance().postFrameCallback(callback);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void stopFrameCallback() {
+		Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+		frameCallback = null;
+	}
+}
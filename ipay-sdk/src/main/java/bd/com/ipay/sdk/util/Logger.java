@@ -17,6 +17,7 @@ package bd.com.ipay.sdk.util;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
 import java.io.PrintWriter;
@@ -31,6 +32,20 @@ import bd.com.ipay.sdk.IPaySDK;
  */
 public class Logger {
 	private static final int MAX_LOG_LENGTH = 4000;
+	private static final Printer LOG_PRINTER = new Printer() {
+		@Override
+		public int println(int priority, @NonNull String tag, @NonNull String msg) {
+			return Log.println(priority, tag, msg);
+		}
+	};
+
+	/**
+	 * Destination of the log lines, {@link Log} outside of the benchmarks.
+	 */
+	@VisibleForTesting
+	interface Printer {
+		int println(int priority, @NonNull String tag, @NonNull String msg);
+	}
 
 	private Logger() {
 		// Prohibiting from creation of an instance
@@ -41,15 +56,15 @@ public class Logger {
 	}
 
 	public static int v(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		return println(Log.VERBOSE, tag, String.format("%s\n%s", msg, getStackTraceString(tr)));
+		return isLoggable() ? println(Log.VERBOSE, tag, withStackTrace(msg, tr)) : -1;
 	}
 
 	public static int v(@NonNull Class<?> tag, @NonNull String msg) {
-		return v(smartTag(tag), msg);
+		return isLoggable() ? v(smartTag(tag), msg) : -1;
 	}
 
 	public static int v(@NonNull Class<?> tag, @NonNull String msg, @Nullable Throwable tr) {
-		return v(smartTag(tag), msg, tr);
+		return isLoggable() ? v(smartTag(tag), msg, tr) : -1;
 	}
 
 	public static int d(@NonNull String tag, @NonNull String msg) {
@@ -57,15 +72,15 @@ public class Logger {
 	}
 
 	public static int d(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		return println(Log.DEBUG, tag, String.format("%s\n%s", msg, getStackTraceString(tr)));
+		return isLoggable() ? println(Log.DEBUG, tag, withStackTrace(msg, tr)) : -1;
 	}
 
 	public static int d(@NonNull Class<?> tag, @NonNull String msg) {
-		return d(smartTag(tag), msg);
+		return isLoggable() ? d(smartTag(tag), msg) : -1;
 	}
 
 	public static int d(@NonNull Class<?> tag, @NonNull String msg, @Nullable Throwable tr) {
-		return d(smartTag(tag), msg, tr);
+		return isLoggable() ? d(smartTag(tag), msg, tr) : -1;
 	}
 
 	public static int i(@NonNull String tag, @NonNull String msg) {
@@ -73,15 +88,15 @@ public class Logger {
 	}
 
 	public static int i(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		return println(Log.INFO, tag, String.format("%s\n%s", msg, getStackTraceString(tr)));
+		return isLoggable() ? println(Log.INFO, tag, withStackTrace(msg, tr)) : -1;
 	}
 
 	public static int i(@NonNull Class<?> tag, @NonNull String msg) {
-		return i(smartTag(tag), msg);
+		return isLoggable() ? i(smartTag(tag), msg) : -1;
 	}
 
 	public static int i(@NonNull Class<?> tag, @NonNull String msg, @Nullable Throwable tr) {
-		return i(smartTag(tag), msg, tr);
+		return isLoggable() ? i(smartTag(tag), msg, tr) : -1;
 	}
 
 	public static int w(@NonNull String tag, @NonNull String msg) {
@@ -89,23 +104,23 @@ public class Logger {
 	}
 
 	public static int w(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		return println(Log.WARN, tag, String.format("%s\n%s", msg, getStackTraceString(tr)));
+		return isLoggable() ? println(Log.WARN, tag, withStackTrace(msg, tr)) : -1;
 	}
 
 	public static int w(@NonNull String tag, @NonNull Throwable tr) {
-		return println(Log.WARN, tag, getStackTraceString(tr));
+		return isLoggable() ? println(Log.WARN, tag, getStackTraceString(tr)) : -1;
 	}
 
 	public static int w(@NonNull Class<?> tag, @NonNull String msg) {
-		return w(smartTag(tag), msg);
+		return isLoggable() ? w(smartTag(tag), msg) : -1;
 	}
 
 	public static int w(@NonNull Class<?> tag, @NonNull String msg, @Nullable Throwable tr) {
-		return w(smartTag(tag), msg, tr);
+		return isLoggable() ? w(smartTag(tag), msg, tr) : -1;
 	}
 
 	public static int w(@NonNull Class<?> tag, @NonNull Throwable tr) {
-		return w(smartTag(tag), tr);
+		return isLoggable() ? w(smartTag(tag), tr) : -1;
 	}
 
 	public static int wtf(@NonNull String tag, @NonNull String msg) {
@@ -113,23 +128,23 @@ public class Logger {
 	}
 
 	public static int wtf(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		return println(Log.WARN, tag, String.format("%s\n%s", msg, getStackTraceString(tr)));
+		return isLoggable() ? println(Log.WARN, tag, withStackTrace(msg, tr)) : -1;
 	}
 
 	public static int wtf(@NonNull String tag, @NonNull Throwable tr) {
-		return println(Log.WARN, tag, getStackTraceString(tr));
+		return isLoggable() ? println(Log.WARN, tag, getStackTraceString(tr)) : -1;
 	}
 
 	public static int wtf(@NonNull Class<?> tag, @NonNull String msg) {
-		return wtf(smartTag(tag), msg);
+		return isLoggable() ? wtf(smartTag(tag), msg) : -1;
 	}
 
 	public static int wtf(@NonNull Class<?> tag, @NonNull String msg, @Nullable Throwable tr) {
-		return wtf(smartTag(tag), msg, tr);
+		return isLoggable() ? wtf(smartTag(tag), msg, tr) : -1;
 	}
 
 	public static int wtf(@NonNull Class<?> tag, @NonNull Throwable tr) {
-		return wtf(smartTag(tag), tr);
+		return isLoggable() ? wtf(smartTag(tag), tr) : -1;
 	}
 
 	public static int e(@NonNull String tag, @NonNull String msg) {
@@ -137,46 +152,66 @@ public class Logger {
 	}
 
 	public static int e(@NonNull String tag, @NonNull String msg, @Nullable Throwable tr) {
-		return println(Log.WARN, tag, String.format("%s\n%s", msg, getStackTraceString(tr)));
+		return isLoggable() ? println(Log.WARN, tag, withStackTrace(msg, tr)) : -1;
 	}
 
 	public static int e(@NonNull String tag, @NonNull Throwable tr) {
-		return println(Log.WARN, tag, getStackTraceString(tr));
+		return isLoggable() ? println(Log.WARN, tag, getStackTraceString(tr)) : -1;
 	}
 
 	public static int e(@NonNull Class<?> tag, @NonNull String msg) {
-		return e(smartTag(tag), msg);
+		return isLoggable() ? e(smartTag(tag), msg) : -1;
 	}
 
 	public static int e(@NonNull Class<?> tag, @NonNull String msg, @Nullable Throwable tr) {
-		return e(smartTag(tag), msg, tr);
+		return isLoggable() ? e(smartTag(tag), msg, tr) : -1;
 	}
 
 	public static int e(@NonNull Class<?> tag, @NonNull Throwable tr) {
-		return e(smartTag(tag), tr);
+		return isLoggable() ? e(smartTag(tag), tr) : -1;
+	}
+
+	/**
+	 * The public methods check this before building the tag or the message, so a disabled log
+	 * call doesn't allocate.
+	 */
+	private static boolean isLoggable() {
+		return IPaySDK.isDebugLogEnabled();
 	}
 
 	private static int println(int priority, String tag, String message) {
-		if (IPaySDK.isDebugLogEnabled()) {
-			int i = 0;
-			final int length = message.length();
-			int result = -1;
-			while (i < length) {
-				int newLine = message.indexOf('\n', i);
-				newLine = newLine != -1 ? newLine : length;
-				do {
-					int end = Math.min(newLine, i + MAX_LOG_LENGTH);
-					result = Log.println(priority, tag, message.substring(i, end));
-					i = end;
-				} while (i < newLine);
-				i++;
-			}
-			return result;
+		if (isLoggable()) {
+			return println(LOG_PRINTER, priority, tag, message);
 		} else {
 			return -1;
 		}
 	}
 
+	/**
+	 * Prints the message line by line, splitting the lines longer than the limit of logcat.
+	 */
+	@VisibleForTesting
+	static int println(@NonNull Printer printer, int priority, String tag, String message) {
+		int i = 0;
+		final int length = message.length();
+		int result = -1;
+		while (i < length) {
+			int newLine = message.indexOf('\n', i);
+			newLine = newLine != -1 ? newLine : length;
+			do {
+				int end = Math.min(newLine, i + MAX_LOG_LENGTH);
+				result = printer.println(priority, tag, message.substring(i, end));
+				i = end;
+			} while (i < newLine);
+			i++;
+		}
+		return result;
+	}
+
+	private static String withStackTrace(@NonNull String msg, @Nullable Throwable tr) {
+		return String.format("%s\n%s", msg, getStackTraceString(tr));
+	}
+
 	private static String getStackTraceString(@Nullable Throwable tr) {
 		if (tr == null) {
 			return "";
@@ -199,8 +234,9 @@ public class Logger {
 		return sw.toString();
 	}
 
+	@VisibleForTesting
 	@NonNull
-	private static String smartTag(@NonNull Class<?> tag) {
+	static String smartTag(@NonNull Class<?> tag) {
 		final String[] splitterString;
 		if (tag.getCanonicalName() != null) {
 			splitterString = tag.getCanonicalName().split("\\.");
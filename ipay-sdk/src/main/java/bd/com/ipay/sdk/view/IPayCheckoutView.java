@@ -0,0 +1,321 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.view;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.webkit.CookieManager;
+import android.webkit.WebStorage;
+import android.webkit.WebView;
+import android.widget.FrameLayout;
+import android.widget.ProgressBar;
+
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+import bd.com.ipay.sdk.util.Logger;
+import bd.com.ipay.sdk.web.WebCheckoutController;
+
+/**
+ * <p>
+ * View running the iPay web checkout inside the app's own screen, a dialog or a bottom sheet,
+ * without launching an activity. It runs the same web checkout flow as
+ * {@link bd.com.ipay.sdk.activity.IPayWebCheckoutActivity}, the result is reported to the
+ * {@link OnCheckoutResultListener} instead of an activity result.
+ * </p>
+ * <p>
+ * Back presses should be forwarded to {@link #goBack()}, and {@link #destroy()} must be called
+ * when the checkout is left without a result, from <code>onDestroy</code> of the host for
+ * example. The web view is released by itself once the result is reported.
+ * </p>
+ * <p>
+ * For devices running back to back checkouts, like a POS tablet, the view can be put in kiosk
+ * mode with {@link #setKioskModeEnabled(boolean)}. It then keeps its web view, the cached assets
+ * of the checkout and the resolved chrome availability between checkouts, the next checkout is
+ * started with {@link #startCheckout} again. The cookies, web storage, history and form data of
+ * the previous checkout are cleared once its result is reported. As cookies and web storage are
+ * shared by all web views, this also clears those of the other web views of the app.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public class IPayCheckoutView extends FrameLayout {
+	private static final Class<IPayCheckoutView> TAG = IPayCheckoutView.class;
+
+	/**
+	 * Receives the result of the checkout run by an {@link IPayCheckoutView}.
+	 */
+	public interface OnCheckoutResultListener {
+		/**
+		 * Called once on the main thread when the checkout is completed.
+		 *
+		 * @param checkoutStatus status of the checkout
+		 * @param checkoutId     id of the checkout, null if unknown
+		 */
+		void onCheckoutResult(@NonNull IPaySDK.CheckoutStatus checkoutStatus, @Nullable String checkoutId);
+	}
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final FrameLayout webViewContainer;
+	private final ProgressBar progressBar;
+	private final ComponentCallbacks2 componentCallbacks = new ComponentCallbacks2() {
+		@Override
+		public void onTrimMemory(int level) {
+			if (webCheckoutController != null) {
+				webCheckoutController.onTrimMemory(level);
+			}
+		}
+
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
+		}
+
+		@Override
+		public void onLowMemory() {
+			onTrimMemory(TRIM_MEMORY_COMPLETE);
+		}
+	};
+
+	private WebCheckoutController webCheckoutController;
+	private OnCheckoutResultListener onCheckoutResultListener;
+	private boolean attached;
+	private boolean kioskModeEnabled;
+	private WebView kioskWebView;
+	private Boolean isChromeAvailable;
+
+	public IPayCheckoutView(@NonNull Context context) {
+		this(context, null);
+	}
+
+	public IPayCheckoutView(@NonNull Context context, @Nullable AttributeSet attrs) {
+		this(context, attrs, 0);
+	}
+
+	public IPayCheckoutView(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+		super(context, attrs, defStyleAttr);
+		webViewContainer = new FrameLayout(context);
+		addView(webViewContainer, new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+				ViewGroup.LayoutParams.MATCH_PARENT));
+		progressBar = new ProgressBar(context, null, android.R.attr.progressBarStyleHorizontal);
+		progressBar.setVisibility(View.GONE);
+		addView(progressBar, new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+				(int) (4 * context.getResources().getDisplayMetrics().density), Gravity.TOP));
+	}
+
+	/**
+	 * Starts a checkout in this view, destroying the checkout already running in it if any. If
+	 * the callback urls aren't valid the listener is called right away with
+	 * {@link IPaySDK.CheckoutStatus#FAILED}.
+	 *
+	 * @param checkoutUrl                iPay checkout url
+	 * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during the
+	 *                                   creation of the checkout
+	 * @param onCheckoutResultListener   listener of the result
+	 */
+	@MainThread
+	public void startCheckout(@NonNull String checkoutUrl,
+	                          @NonNull CheckoutCallbackActionUrls checkoutCallbackActionUrls,
+	                          @NonNull OnCheckoutResultListener onCheckoutResultListener) {
+		SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+		SDKUtils.notNull(checkoutCallbackActionUrls, "checkoutCallbackActionUrls");
+		SDKUtils.notNull(onCheckoutResultListener, "onCheckoutResultListener");
+		if (kioskModeEnabled) {
+			recycle();
+		} else {
+			destroy();
+		}
+		if (isChromeAvailable == null || !kioskModeEnabled) {
+			isChromeAvailable = SDKUtils.isChromeInstalled(getContext());
+		}
+		this.onCheckoutResultListener = onCheckoutResultListener;
+		webCheckoutController = new WebCheckoutController(getContext(), webViewContainer, progressBar,
+				isChromeAvailable, new WebCheckoutController.Listener() {
+					@Override
+					public void onCheckoutFinished(@NonNull IPaySDK.CheckoutStatus checkoutStatus,
+					                               @Nullable String checkoutId) {
+						deliverResult(checkoutStatus, checkoutId);
+					}
+				});
+		if (webCheckoutController.start(checkoutUrl, checkoutCallbackActionUrls, kioskWebView)) {
+			kioskWebView = null;
+			if (attached) {
+				webCheckoutController.onResume();
+			}
+		}
+	}
+
+	/**
+	 * Cancels the running checkout, the listener is called with
+	 * {@link IPaySDK.CheckoutStatus#CANCELLED}.
+	 */
+	@MainThread
+	public void cancelCheckout() {
+		if (webCheckoutController != null) {
+			webCheckoutController.cancel();
+		}
+	}
+
+	/**
+	 * Navigates back in the checkout pages, meant to be called on back presses.
+	 *
+	 * @return true if the checkout went back, false if there's no page to go back to.
+	 */
+	@MainThread
+	public boolean goBack() {
+		return webCheckoutController != null && webCheckoutController.goBack();
+	}
+
+	/**
+	 * @return true if a checkout is running in this view, otherwise false.
+	 */
+	public boolean isCheckoutRunning() {
+		return webCheckoutController != null && !webCheckoutController.isFinished();
+	}
+
+	public boolean isKioskModeEnabled() {
+		return kioskModeEnabled;
+	}
+
+	/**
+	 * Sets whether the web view is kept for the next checkout, see {@link IPayCheckoutView}.
+	 * Turning the kiosk mode off destroys the web view kept for the next checkout.
+	 *
+	 * @param kioskModeEnabled true to keep the web view between checkouts, false by default
+	 */
+	@MainThread
+	public void setKioskModeEnabled(boolean kioskModeEnabled) {
+		this.kioskModeEnabled = kioskModeEnabled;
+		if (!kioskModeEnabled && kioskWebView != null) {
+			kioskWebView.destroy();
+			kioskWebView = null;
+		}
+	}
+
+	/**
+	 * Stops the running checkout without reporting a result and releases its web view, including
+	 * the one kept in kiosk mode.
+	 */
+	@MainThread
+	public void destroy() {
+		handler.removeCallbacksAndMessages(null);
+		onCheckoutResultListener = null;
+		if (webCheckoutController != null) {
+			webCheckoutController.destroy();
+			webCheckoutController = null;
+		}
+		if (kioskWebView != null) {
+			kioskWebView.destroy();
+			kioskWebView = null;
+		}
+		progressBar.setVisibility(View.GONE);
+	}
+
+	/**
+	 * Stops the running checkout without reporting a result and keeps its web view, cleared of
+	 * the data of the checkout, for the next one.
+	 */
+	private void recycle() {
+		handler.removeCallbacksAndMessages(null);
+		onCheckoutResultListener = null;
+		if (webCheckoutController != null) {
+			final WebView webView = webCheckoutController.release();
+			webCheckoutController = null;
+			if (webView != null) {
+				if (kioskWebView != null) {
+					kioskWebView.destroy();
+				}
+				kioskWebView = webView;
+			}
+			clearSessionData();
+		}
+		progressBar.setVisibility(View.GONE);
+	}
+
+	/**
+	 * Clears the cookies and web storage of the previous checkout, so nothing of it leaks into
+	 * the next one.
+	 */
+	@SuppressWarnings("deprecation")
+	private static void clearSessionData() {
+		try {
+			final CookieManager cookieManager = CookieManager.getInstance();
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+				cookieManager.removeAllCookies(null);
+				cookieManager.flush();
+			} else {
+				cookieManager.removeAllCookie();
+			}
+			WebStorage.getInstance().deleteAllData();
+		} catch (RuntimeException e) {
+			// Thrown when the WebView provider is missing or being updated.
+			Logger.e(TAG, e);
+		}
+	}
+
+	private void deliverResult(@NonNull IPaySDK.CheckoutStatus checkoutStatus, @Nullable String checkoutId) {
+		final OnCheckoutResultListener listener = onCheckoutResultListener;
+		final WebCheckoutController controller = webCheckoutController;
+		onCheckoutResultListener = null;
+		// The result may come from a callback of the web view, it's released once that returns.
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (controller == webCheckoutController) {
+					if (kioskModeEnabled) {
+						recycle();
+					} else {
+						destroy();
+					}
+				}
+			}
+		});
+		if (listener != null) {
+			listener.onCheckoutResult(checkoutStatus, checkoutId);
+		}
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		attached = true;
+		getContext().getApplicationContext().registerComponentCallbacks(componentCallbacks);
+		if (webCheckoutController != null) {
+			webCheckoutController.onResume();
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		if (webCheckoutController != null) {
+			webCheckoutController.onPause();
+		}
+		getContext().getApplicationContext().unregisterComponentCallbacks(componentCallbacks);
+		attached = false;
+		super.onDetachedFromWindow();
+	}
+}
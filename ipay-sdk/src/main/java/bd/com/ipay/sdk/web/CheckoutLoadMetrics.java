@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Aggregates the page load timings of one web checkout. The timings reported by the
+ * {@link android.webkit.WebViewClient} and {@link android.webkit.WebChromeClient} are measured
+ * in milliseconds from the start of the checkout screen. The Navigation Timing and Resource
+ * Timing entries read from the page are measured in milliseconds from the start of the
+ * navigation of the page. The heap usage is recorded in bytes before the web view is created and
+ * after it's destroyed.
+ * </p>
+ * <p>
+ * A value of {@link #NOT_RECORDED} means the event didn't happen or the page didn't report it.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CheckoutLoadMetrics {
+	private static final Class<CheckoutLoadMetrics> TAG = CheckoutLoadMetrics.class;
+	public static final long NOT_RECORDED = -1;
+
+	/**
+	 * Script evaluated after the page has finished loading. The result is serialized to JSON by
+	 * the web view, so it returns a plain object instead of a string.
+	 */
+	public static final String PERFORMANCE_TIMING_SCRIPT = "(function() {"
+			+ "if (!window.performance || !window.performance.timing) return null;"
+			+ "var t = window.performance.timing, s = t.navigationStart, r = [];"
+			+ "function d(v) { return v > 0 ? v - s : -1; }"
+			+ "if (window.performance.getEntriesByType) {"
+			+ "var e = window.performance.getEntriesByType('resource');"
+			+ "for (var i = 0; i < e.length; i++) r.push({name: e[i].name,"
+			+ " duration: Math.round(e[i].duration), transferSize: e[i].transferSize || 0});"
+			+ "}"
+			+ "return {domainLookupStart: d(t.domainLookupStart), domainLookupEnd: d(t.domainLookupEnd),"
+			+ " connectStart: d(t.connectStart), connectEnd: d(t.connectEnd),"
+			+ " requestStart: d(t.requestStart), responseStart: d(t.responseStart),"
+			+ " responseEnd: d(t.responseEnd),"
+			+ " domContentLoaded: d(t.domContentLoadedEventEnd), loadEventEnd: d(t.loadEventEnd),"
+			+ " resources: r};"
+			+ "})();";
+
+	/**
+	 * Receives the load metrics of every web checkout when the checkout screen is closed.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the main thread when the checkout screen is closed.
+		 *
+		 * @param metrics load metrics of the checkout.
+		 */
+		void onCheckoutLoadMetrics(@NonNull CheckoutLoadMetrics metrics);
+	}
+
+	@NonNull
+	private final String checkoutUrl;
+	private final long startTimeMillis;
+	private boolean preloaded;
+
+	private long pageStartedMillis = NOT_RECORDED;
+	private long firstVisualChangeMillis = NOT_RECORDED;
+	private long pageFinishedMillis = NOT_RECORDED;
+	private int pageLoadCount;
+	private int errorCount;
+	private int renderProcessGoneCount;
+	private int lastErrorCode;
+	@Nullable
+	private String lastErrorUrl;
+
+	private long javaHeapBeforeBytes = NOT_RECORDED;
+	private long nativeHeapBeforeBytes = NOT_RECORDED;
+	private long javaHeapAfterBytes = NOT_RECORDED;
+	private long nativeHeapAfterBytes = NOT_RECORDED;
+
+	private long dnsMillis = NOT_RECORDED;
+	private long connectMillis = NOT_RECORDED;
+	private long timeToFirstByteMillis = NOT_RECORDED;
+	private long responseEndMillis = NOT_RECORDED;
+	private long domContentLoadedMillis = NOT_RECORDED;
+	private long loadEventEndMillis = NOT_RECORDED;
+	private int resourceCount;
+	private int cachedResourceCount;
+	private long slowestResourceMillis = NOT_RECORDED;
+	@Nullable
+	private String slowestResourceUrl;
+
+	public CheckoutLoadMetrics(@NonNull String checkoutUrl) {
+		this(checkoutUrl, SystemClock.elapsedRealtime());
+	}
+
+	@VisibleForTesting
+	CheckoutLoadMetrics(@NonNull String checkoutUrl, long startTimeMillis) {
+		this.checkoutUrl = checkoutUrl;
+		this.startTimeMillis = startTimeMillis;
+	}
+
+	public void onPreloaded() {
+		preloaded = true;
+	}
+
+	/**
+	 * Records the Java and native heap in use before the checkout web view is created.
+	 */
+	public void recordHeapBefore() {
+		javaHeapBeforeBytes = getJavaHeapUsedBytes();
+		nativeHeapBeforeBytes = Debug.getNativeHeapAllocatedSize();
+	}
+
+	/**
+	 * Records the Java and native heap in use after the checkout web view is destroyed.
+	 */
+	public void recordHeapAfter() {
+		javaHeapAfterBytes = getJavaHeapUsedBytes();
+		nativeHeapAfterBytes = Debug.getNativeHeapAllocatedSize();
+	}
+
+	private static long getJavaHeapUsedBytes() {
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public void onPageStarted() {
+		onPageStarted(SystemClock.elapsedRealtime());
+	}
+
+	@VisibleForTesting
+	void onPageStarted(long nowMillis) {
+		pageLoadCount++;
+		if (pageStartedMillis == NOT_RECORDED) {
+			pageStartedMillis = nowMillis - startTimeMillis;
+		}
+	}
+
+	/**
+	 * Records the first visual change of the page, either when the web view commits the first
+	 * frame of the page or when it first reports a load progress.
+	 */
+	public void onFirstVisualChange() {
+		onFirstVisualChange(SystemClock.elapsedRealtime());
+	}
+
+	@VisibleForTesting
+	void onFirstVisualChange(long nowMillis) {
+		if (firstVisualChangeMillis == NOT_RECORDED) {
+			firstVisualChangeMillis = nowMillis - startTimeMillis;
+		}
+	}
+
+	public void onPageFinished() {
+		onPageFinished(SystemClock.elapsedRealtime());
+	}
+
+	@VisibleForTesting
+	void onPageFinished(long nowMillis) {
+		if (pageFinishedMillis == NOT_RECORDED) {
+			pageFinishedMillis = nowMillis - startTimeMillis;
+		}
+	}
+
+	public void onReceivedError(int errorCode, @Nullable String url) {
+		errorCount++;
+		lastErrorCode = errorCode;
+		lastErrorUrl = url;
+	}
+
+	public void onRenderProcessGone() {
+		renderProcessGoneCount++;
+	}
+
+	/**
+	 * Records the Navigation Timing and Resource Timing entries returned by
+	 * {@link #PERFORMANCE_TIMING_SCRIPT}. Malformed or empty results are ignored.
+	 *
+	 * @param json result of the script
+	 */
+	public void onPerformanceTiming(@Nullable String json) {
+		if (json == null || !json.startsWith("{")) {
+			return;
+		}
+		try {
+			final JSONObject timing = new JSONObject(json);
+			dnsMillis = duration(timing, "domainLookupStart", "domainLookupEnd");
+			connectMillis = duration(timing, "connectStart", "connectEnd");
+			timeToFirstByteMillis = duration(timing, "requestStart", "responseStart");
+			responseEndMillis = timing.optLong("responseEnd", NOT_RECORDED);
+			domContentLoadedMillis = timing.optLong("domContentLoaded", NOT_RECORDED);
+			loadEventEndMillis = timing.optLong("loadEventEnd", NOT_RECORDED);
+
+			final JSONArray resources = timing.optJSONArray("resources");
+			if (resources != null) {
+				resourceCount = resources.length();
+				for (int i = 0; i < resources.length(); i++) {
+					final JSONObject resource = resources.getJSONObject(i);
+					final long duration = resource.optLong("duration", NOT_RECORDED);
+					if (duration > slowestResourceMillis) {
+						slowestResourceMillis = duration;
+						slowestResourceUrl = resource.optString("name", null);
+					}
+					// A resource served from the cache has no transfer size.
+					if (resource.optLong("transferSize", NOT_RECORDED) == 0) {
+						cachedResourceCount++;
+					}
+				}
+			}
+		} catch (JSONException e) {
+			Logger.e(TAG, e);
+		}
+	}
+
+	private static long duration(@NonNull JSONObject timing, @NonNull String start,
+	                             @NonNull String end) {
+		final long startMillis = timing.optLong(start, NOT_RECORDED);
+		final long endMillis = timing.optLong(end, NOT_RECORDED);
+		if (startMillis < 0 || endMillis < startMillis) {
+			return NOT_RECORDED;
+		}
+		return endMillis - startMillis;
+	}
+
+	@NonNull
+	public String getCheckoutUrl() {
+		return checkoutUrl;
+	}
+
+	/**
+	 * @return true if the checkout page was preloaded before the checkout screen opened.
+	 */
+	public boolean isPreloaded() {
+		return preloaded;
+	}
+
+	public long getPageStartedMillis() {
+		return pageStartedMillis;
+	}
+
+	public long getFirstVisualChangeMillis() {
+		return firstVisualChangeMillis;
+	}
+
+	public long getPageFinishedMillis() {
+		return pageFinishedMillis;
+	}
+
+	/**
+	 * @return number of pages started in the web view, including redirects and pages after the
+	 * checkout page.
+	 */
+	public int getPageLoadCount() {
+		return pageLoadCount;
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @return number of times the renderer of the checkout web view was gone.
+	 */
+	public int getRenderProcessGoneCount() {
+		return renderProcessGoneCount;
+	}
+
+	public int getLastErrorCode() {
+		return lastErrorCode;
+	}
+
+	@Nullable
+	public String getLastErrorUrl() {
+		return lastErrorUrl;
+	}
+
+	public long getJavaHeapBeforeBytes() {
+		return javaHeapBeforeBytes;
+	}
+
+	public long getNativeHeapBeforeBytes() {
+		return nativeHeapBeforeBytes;
+	}
+
+	public long getJavaHeapAfterBytes() {
+		return javaHeapAfterBytes;
+	}
+
+	public long getNativeHeapAfterBytes() {
+		return nativeHeapAfterBytes;
+	}
+
+	public long getDnsMillis() {
+		return dnsMillis;
+	}
+
+	public long getConnectMillis() {
+		return connectMillis;
+	}
+
+	public long getTimeToFirstByteMillis() {
+		return timeToFirstByteMillis;
+	}
+
+	public long getResponseEndMillis() {
+		return responseEndMillis;
+	}
+
+	public long getDomContentLoadedMillis() {
+		return domContentLoadedMillis;
+	}
+
+	public long getLoadEventEndMillis() {
+		return loadEventEndMillis;
+	}
+
+	public int getResourceCount() {
+		return resourceCount;
+	}
+
+	public int getCachedResourceCount() {
+		return cachedResourceCount;
+	}
+
+	public long getSlowestResourceMillis() {
+		return slowestResourceMillis;
+	}
+
+	@Nullable
+	public String getSlowestResourceUrl() {
+		return slowestResourceUrl;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US, "CheckoutLoadMetrics{preloaded=%b, pageStarted=%d, "
+						+ "firstVisualChange=%d, pageFinished=%d, pageLoads=%d, errors=%d, "
+						+ "renderProcessGone=%d, dns=%d, "
+						+ "connect=%d, ttfb=%d, responseEnd=%d, domContentLoaded=%d, loadEventEnd=%d, "
+						+ "resources=%d, cachedResources=%d, slowestResource=%d %s, javaHeap=%d->%d, "
+						+ "nativeHeap=%d->%d}", preloaded,
+				pageStartedMillis, firstVisualChangeMillis, pageFinishedMillis, pageLoadCount,
+				errorCount, renderProcessGoneCount, dnsMillis, connectMillis, timeToFirstByteMillis, responseEndMillis,
+				domContentLoadedMillis, loadEventEndMillis, resourceCount, cachedResourceCount,
+				slowestResourceMillis, slowestResourceUrl, javaHeapBeforeBytes, javaHeapAfterBytes,
+				nativeHeapBeforeBytes, nativeHeapAfterBytes);
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.os.Handler;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+
+/**
+ * <p>
+ * Watches the page loads of a web checkout and reports when one of them takes too long, so the
+ * checkout fails fast instead of showing a blank page over a bad network. Three timeouts are
+ * watched, a value of 0 disables the timeout:
+ * </p>
+ * <ul>
+ * <li>{@link #TIMEOUT_FIRST_BYTE}: from the start of a page load until the web view reports the
+ * first content of the response.</li>
+ * <li>{@link #TIMEOUT_PAGE_FINISHED}: from the start of a page load until the page is finished.</li>
+ * <li>{@link #TIMEOUT_SESSION}: from the start of the checkout until it's completed.</li>
+ * </ul>
+ * <p>
+ * All methods must be called from the thread of the given handler.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CheckoutLoadWatchdog {
+	public static final int TIMEOUT_FIRST_BYTE = 0;
+	public static final int TIMEOUT_PAGE_FINISHED = 1;
+	public static final int TIMEOUT_SESSION = 2;
+
+	/**
+	 * Receives the timeouts of the watchdog.
+	 */
+	public interface Listener {
+		/**
+		 * Called once a timeout has elapsed. The page load timeouts are cleared at this point,
+		 * the session timeout is not watched anymore after it's reported.
+		 *
+		 * @param timeout one of {@link #TIMEOUT_FIRST_BYTE}, {@link #TIMEOUT_PAGE_FINISHED} or
+		 *                {@link #TIMEOUT_SESSION}
+		 */
+		void onTimeout(int timeout);
+	}
+
+	@NonNull
+	private final Handler handler;
+	@NonNull
+	private final Listener listener;
+	private final long firstByteTimeoutMillis;
+	private final long pageFinishedTimeoutMillis;
+	private final long sessionTimeoutMillis;
+
+	private final Runnable firstByteRunnable = new TimeoutRunnable(TIMEOUT_FIRST_BYTE);
+	private final Runnable pageFinishedRunnable = new TimeoutRunnable(TIMEOUT_PAGE_FINISHED);
+	private final Runnable sessionRunnable = new TimeoutRunnable(TIMEOUT_SESSION);
+
+	/**
+	 * @param handler                   handler of the thread the timeouts are reported on
+	 * @param listener                  listener of the timeouts
+	 * @param firstByteTimeoutMillis    time to first byte timeout in milliseconds, 0 to disable
+	 * @param pageFinishedTimeoutMillis time to page finished timeout in milliseconds, 0 to disable
+	 * @param sessionTimeoutMillis      checkout session timeout in milliseconds, 0 to disable
+	 */
+	public CheckoutLoadWatchdog(@NonNull Handler handler, @NonNull Listener listener,
+	                            long firstByteTimeoutMillis, long pageFinishedTimeoutMillis,
+	                            long sessionTimeoutMillis) {
+		this.handler = handler;
+		this.listener = listener;
+		this.firstByteTimeoutMillis = firstByteTimeoutMillis;
+		this.pageFinishedTimeoutMillis = pageFinishedTimeoutMillis;
+		this.sessionTimeoutMillis = sessionTimeoutMillis;
+	}
+
+	/**
+	 * Starts the session timeout.
+	 */
+	@MainThread
+	public void startSession() {
+		schedule(sessionRunnable, sessionTimeoutMillis);
+	}
+
+	/**
+	 * Restarts the page load timeouts for a new page load.
+	 */
+	@MainThread
+	public void onPageStarted() {
+		schedule(firstByteRunnable, firstByteTimeoutMillis);
+		schedule(pageFinishedRunnable, pageFinishedTimeoutMillis);
+	}
+
+	@MainThread
+	public void onFirstByte() {
+		handler.removeCallbacks(firstByteRunnable);
+	}
+
+	@MainThread
+	public void onPageFinished() {
+		handler.removeCallbacks(firstByteRunnable);
+		handler.removeCallbacks(pageFinishedRunnable);
+	}
+
+	/**
+	 * Stops watching every timeout.
+	 */
+	@MainThread
+	public void stop() {
+		onPageFinished();
+		handler.removeCallbacks(sessionRunnable);
+	}
+
+	private void schedule(@NonNull Runnable runnable, long timeoutMillis) {
+		handler.removeCallbacks(runnable);
+		if (timeoutMillis > 0) {
+			handler.postDelayed(runnable, timeoutMillis);
+		}
+	}
+
+	private final class TimeoutRunnable implements Runnable {
+		private final int timeout;
+
+		TimeoutRunnable(int timeout) {
+			this.timeout = timeout;
+		}
+
+		@Override
+		public void run() {
+			if (timeout != TIMEOUT_SESSION) {
+				onPageFinished();
+			}
+			listener.onTimeout(timeout);
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.annotation.TargetApi;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.webkit.WebMessage;
+import android.webkit.WebMessagePort;
+import android.webkit.WebView;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Channel the iPay checkout page posts the final status of the checkout to, so the web checkout
+ * completes as soon as the status is known instead of waiting for the redirect to a merchant
+ * callback url. The callback url matching stays in place as the fallback.
+ * </p>
+ * <p>
+ * The page posts a JSON message like <code>{"status": "success", "checkout_id": "..."}</code>,
+ * the status is one of success, failed or cancelled. A {@link WebMessagePort} is handed to the
+ * page once it's loaded, through a {@link WebMessage} of {@link #WEB_MESSAGE_HANDSHAKE} targeted
+ * to the iPay origin of the checkout url, and the page posts the status through that port. The
+ * target origin makes sure no other page or frame ever holds the port.
+ * </p>
+ * <p>
+ * The bridge is only available on Marshmallow and above. Below, the result is detected through
+ * the callback urls alone. A {@link WebView#addJavascriptInterface} is exposed to every frame of
+ * every page and can't tell the caller's origin, so it's not used as a fallback.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CheckoutResultBridge {
+	private static final Class<CheckoutResultBridge> TAG = CheckoutResultBridge.class;
+	public static final String WEB_MESSAGE_HANDSHAKE = "ipay_sdk_checkout_bridge";
+
+	/**
+	 * Receives the status posted by the checkout page.
+	 */
+	public interface Listener {
+		/**
+		 * Called once on the main thread with the first valid status posted by the page.
+		 *
+		 * @param checkoutStatus status of the checkout
+		 * @param checkoutId     id of the checkout, null if the page didn't post it
+		 */
+		void onCheckoutResult(@NonNull IPaySDK.CheckoutStatus checkoutStatus,
+		                      @Nullable String checkoutId);
+	}
+
+	@NonNull
+	private final String allowedOrigin;
+	@NonNull
+	private final Listener listener;
+	private final Handler handler = new Handler(Looper.getMainLooper());
+
+	private boolean delivered;
+	private Object messagePort;
+
+	/**
+	 * @param allowedOrigin origin allowed to post the status, see {@link #getAllowedOrigin(String)}
+	 * @param listener      listener of the status
+	 */
+	public CheckoutResultBridge(@NonNull String allowedOrigin, @NonNull Listener listener) {
+		SDKUtils.notNull(allowedOrigin, "allowedOrigin");
+		SDKUtils.notNull(listener, "listener");
+		this.allowedOrigin = allowedOrigin;
+		this.listener = listener;
+	}
+
+	/**
+	 * @param checkoutUrl iPay checkout url
+	 * @return the https origin of the checkout url if it's an iPay host, otherwise null.
+	 */
+	@Nullable
+	public static String getAllowedOrigin(@Nullable String checkoutUrl) {
+		final String origin = getOrigin(checkoutUrl);
+		if (origin == null || !origin.startsWith("https://")) {
+			return null;
+		}
+		final String host = Uri.parse(origin).getHost();
+		if (host.equals(SDKUtils.IPAY_COM_BD) || host.endsWith("." + SDKUtils.IPAY_COM_BD)) {
+			return origin;
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the bridge is available on the device, otherwise false.
+	 */
+	public static boolean isSupported() {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+	}
+
+	/**
+	 * Closes the message port handed to the page.
+	 */
+	@MainThread
+	public void detach() {
+		closeMessagePort();
+	}
+
+	@MainThread
+	public void onPageStarted() {
+		// A port handed to the previous page must not outlive it.
+		closeMessagePort();
+	}
+
+	/**
+	 * Hands a message port to the page if it's on the iPay origin.
+	 *
+	 * @param webView web view of the checkout
+	 * @param url     url of the loaded page
+	 */
+	@MainThread
+	public void onPageFinished(@NonNull WebView webView, @Nullable String url) {
+		if (isSupported() && messagePort == null && allowedOrigin.equals(getOrigin(url))) {
+			openMessagePort(webView);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.M)
+	private void openMessagePort(@NonNull WebView webView) {
+		final WebMessagePort[] ports = webView.createWebMessageChannel();
+		ports[0].setWebMessageCallback(new WebMessagePort.WebMessageCallback() {
+			@Override
+			public void onMessage(WebMessagePort port, WebMessage message) {
+				onMessageReceived(message.getData(), allowedOrigin);
+			}
+		}, handler);
+		messagePort = ports[0];
+		// The target origin makes sure no other origin ever receives the port.
+		webView.postWebMessage(new WebMessage(WEB_MESSAGE_HANDSHAKE, new WebMessagePort[]{ports[1]}),
+				Uri.parse(allowedOrigin));
+	}
+
+	@TargetApi(Build.VERSION_CODES.M)
+	private void closeMessagePort() {
+		if (messagePort != null && isSupported()) {
+			((WebMessagePort) messagePort).close();
+			messagePort = null;
+		}
+	}
+
+	/**
+	 * Delivers the status of the message if it comes from the allowed origin. Can be called from
+	 * any thread.
+	 *
+	 * @param message message posted by the page
+	 * @param origin  origin of the page which posted the message
+	 */
+	@VisibleForTesting
+	void onMessageReceived(@Nullable String message, @Nullable String origin) {
+		if (!allowedOrigin.equals(origin)) {
+			Logger.w(TAG, "Dropping checkout result posted from " + origin);
+			return;
+		}
+		final Result result = parse(message);
+		if (result == null) {
+			Logger.w(TAG, "Dropping malformed checkout result " + message);
+			return;
+		}
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (!delivered) {
+					delivered = true;
+					listener.onCheckoutResult(result.checkoutStatus, result.checkoutId);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param message message posted by the page
+	 * @return the result of the message, null if the message isn't a valid result.
+	 */
+	@VisibleForTesting
+	@Nullable
+	static Result parse(@Nullable String message) {
+		if (message == null) {
+			return null;
+		}
+		try {
+			final JSONObject json = new JSONObject(message);
+			final IPaySDK.CheckoutStatus checkoutStatus = IPaySDK.CheckoutStatus.getValue(
+					json.optString("status").toLowerCase(Locale.US));
+			if (checkoutStatus == null || checkoutStatus == IPaySDK.CheckoutStatus.TIMEOUT) {
+				return null;
+			}
+			final String checkoutId = json.optString("checkout_id", null);
+			return new Result(checkoutStatus, checkoutId == null || checkoutId.isEmpty()
+					? null : checkoutId);
+		} catch (JSONException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param url url of a page
+	 * @return the origin of the url in lower case, null if the url has no scheme or host.
+	 */
+	@Nullable
+	static String getOrigin(@Nullable String url) {
+		if (url == null) {
+			return null;
+		}
+		final Uri uri = Uri.parse(url);
+		if (uri.getScheme() == null || uri.getHost() == null) {
+			return null;
+		}
+		final String origin = uri.getScheme().toLowerCase(Locale.US) + "://"
+				+ uri.getHost().toLowerCase(Locale.US);
+		return uri.getPort() != -1 ? origin + ":" + uri.getPort() : origin;
+	}
+
+	@VisibleForTesting
+	static final class Result {
+		@NonNull
+		final IPaySDK.CheckoutStatus checkoutStatus;
+		@Nullable
+		final String checkoutId;
+
+		Result(@NonNull IPaySDK.CheckoutStatus checkoutStatus, @Nullable String checkoutId) {
+			this.checkoutStatus = checkoutStatus;
+			this.checkoutId = checkoutId;
+		}
+	}
+}
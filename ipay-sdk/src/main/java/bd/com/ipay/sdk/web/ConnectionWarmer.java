@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Warms up the connection to the iPay checkout host before the web checkout starts. The host
+ * name is resolved and a keep-alive TLS connection is opened to it in the background, so the
+ * DNS lookup and the TLS handshake are done by the time the checkout page is requested.
+ * </p>
+ * <p>
+ * The resolved address is kept by the system DNS cache which the {@link android.webkit.WebView}
+ * shares. The opened connection stays in the connection pool of {@link HttpURLConnection}, which
+ * is reused by {@link WebAssetCache} for the static assets of the checkout page.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class ConnectionWarmer {
+	private static final Class<ConnectionWarmer> TAG = ConnectionWarmer.class;
+
+	/**
+	 * A host isn't warmed up again within this interval.
+	 */
+	private static final long WARM_UP_INTERVAL_MILLIS = 30 * 1000;
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+	private static final int READ_TIMEOUT_MILLIS = 10000;
+
+	private static final Map<String, Long> lastWarmUpTimes = new HashMap<>();
+	private static final Executor executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(@NonNull Runnable runnable) {
+			final Thread thread = new Thread(runnable, "iPaySDK-ConnectionWarmer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private ConnectionWarmer() {
+		// Prohibiting from creation of an instance
+	}
+
+	/**
+	 * Warms up the connection to the host of the checkout url in the background. Only the hosts
+	 * of {@link SDKUtils#IPAY_COM_BD} are warmed up. This method can be called from any thread.
+	 *
+	 * @param checkoutUrl iPay checkout url
+	 * @return true if the warm up has been started, false if the url isn't a valid checkout
+	 * url or its host has been warmed up recently.
+	 */
+	public static boolean warmUp(@NonNull String checkoutUrl) {
+		SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+		if (!SDKUtils.isValidIPayCheckoutUrl(checkoutUrl)) {
+			return false;
+		}
+		final URL originUrl = getOriginUrl(checkoutUrl);
+		if (originUrl == null || !shouldWarmUp(originUrl)) {
+			return false;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					warmUpBlocking(originUrl);
+				} catch (IOException e) {
+					Logger.w(TAG, "Unable to warm up " + originUrl, e);
+				}
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Resolves the host of the url and opens a keep-alive connection to it.
+	 *
+	 * @param originUrl origin of the checkout host
+	 * @throws IOException if the host can't be resolved or connected.
+	 */
+	@WorkerThread
+	static void warmUpBlocking(@NonNull URL originUrl) throws IOException {
+		final long startTime = SystemClock.elapsedRealtime();
+		InetAddress.getAllByName(originUrl.getHost());
+		final long resolvedTime = SystemClock.elapsedRealtime();
+
+		final HttpURLConnection connection = (HttpURLConnection) originUrl.openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+		connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+		connection.setRequestMethod("HEAD");
+		final int responseCode = connection.getResponseCode();
+		// Closing the stream instead of disconnecting returns the connection to the pool.
+		final InputStream inputStream = responseCode < HttpURLConnection.HTTP_BAD_REQUEST
+				? connection.getInputStream() : connection.getErrorStream();
+		if (inputStream != null) {
+			inputStream.close();
+		}
+		Logger.d(TAG, "Warmed up " + originUrl + " in " + (SystemClock.elapsedRealtime() - startTime)
+				+ "ms, DNS " + (resolvedTime - startTime) + "ms, response " + responseCode);
+	}
+
+	private static synchronized boolean shouldWarmUp(@NonNull URL originUrl) {
+		final long now = SystemClock.elapsedRealtime();
+		final String origin = originUrl.toString();
+		final Long lastWarmUpTime = lastWarmUpTimes.get(origin);
+		if (lastWarmUpTime != null && now - lastWarmUpTime < WARM_UP_INTERVAL_MILLIS) {
+			return false;
+		}
+		lastWarmUpTimes.put(origin, now);
+		return true;
+	}
+
+	@Nullable
+	private static URL getOriginUrl(@NonNull String checkoutUrl) {
+		try {
+			final URL url = new URL(checkoutUrl);
+			return new URL(url.getProtocol(), url.getHost(), url.getPort(), "/");
+		} catch (MalformedURLException e) {
+			Logger.e(TAG, e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.customtabs.CustomTabsClient;
+import android.support.customtabs.CustomTabsIntent;
+import android.support.customtabs.CustomTabsServiceConnection;
+import android.support.customtabs.CustomTabsSession;
+
+import java.util.Arrays;
+
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.util.Constants;
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Keeps a connection to the Custom Tabs service of the browser for the Custom Tabs checkout.
+ * Once bound, the browser is warmed up and a checkout url can be hinted through
+ * {@link #mayLaunchUrl(String)}, so the checkout page opens almost instantly and shares the
+ * browser cache.
+ * </p>
+ * <p>
+ * The Custom Tabs checkout detects the result through the callback url scheme deep link,
+ * the same way as the checkout through iPay app. The checkout has to be created with the
+ * callback urls on the <code>ipay_callback_url_scheme</code> of the app.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class CustomTabsConnection {
+	private static final Class<CustomTabsConnection> TAG = CustomTabsConnection.class;
+
+	private static String packageName;
+	private static CustomTabsServiceConnection serviceConnection;
+	private static CustomTabsSession session;
+	private static String pendingMayLaunchUrl;
+
+	private CustomTabsConnection() {
+		// Prohibiting from creation of an instance
+	}
+
+	/**
+	 * @param context An android context
+	 * @return package name of the browser supporting Custom Tabs, Chrome is preferred. Null if
+	 * no browser supports Custom Tabs.
+	 */
+	@Nullable
+	public static synchronized String getPackageName(@NonNull Context context) {
+		SDKUtils.notNull(context, "context");
+		if (packageName == null) {
+			packageName = CustomTabsClient.getPackageName(context, Arrays.asList(
+					Constants.CHROME_STABLE_PACKAGE, Constants.CHROME_BETA_PACKAGE,
+					Constants.CHROME_DEV_PACKAGE, Constants.CHROME_LOCAL_PACKAGE));
+		}
+		return packageName;
+	}
+
+	/**
+	 * @param context An android context
+	 * @return true if a browser on the device supports Custom Tabs, otherwise false.
+	 */
+	public static boolean isAvailable(@NonNull Context context) {
+		return getPackageName(context) != null;
+	}
+
+	/**
+	 * Binds the Custom Tabs service of the browser and warms the browser up. Does nothing if
+	 * the service is already bound or no browser supports Custom Tabs.
+	 *
+	 * @param context An android context
+	 * @return true if the service is bound or being bound, otherwise false.
+	 */
+	public static synchronized boolean bind(@NonNull Context context) {
+		SDKUtils.notNull(context, "context");
+		if (serviceConnection != null) {
+			return true;
+		}
+		final String browserPackageName = getPackageName(context);
+		if (browserPackageName == null) {
+			return false;
+		}
+		final CustomTabsServiceConnection connection = new CustomTabsServiceConnection() {
+			@Override
+			public void onCustomTabsServiceConnected(ComponentName name, CustomTabsClient client) {
+				onConnected(client);
+			}
+
+			@Override
+			public void onServiceDisconnected(ComponentName name) {
+				onDisconnected(this);
+			}
+		};
+		try {
+			if (CustomTabsClient.bindCustomTabsService(context.getApplicationContext(),
+					browserPackageName, connection)) {
+				serviceConnection = connection;
+				return true;
+			}
+		} catch (SecurityException e) {
+			Logger.e(TAG, e);
+		}
+		return false;
+	}
+
+	/**
+	 * Hints the browser that the checkout url is likely to be opened, so it can resolve the host
+	 * and start loading the page. If the service is still being bound, the hint is sent once
+	 * it's connected.
+	 *
+	 * @param checkoutUrl iPay checkout url
+	 */
+	public static synchronized void mayLaunchUrl(@NonNull String checkoutUrl) {
+		SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+		if (session != null) {
+			session.mayLaunchUrl(Uri.parse(checkoutUrl), null, null);
+		} else {
+			pendingMayLaunchUrl = checkoutUrl;
+		}
+	}
+
+	/**
+	 * @param checkoutUrl iPay checkout url
+	 * @return an intent opening the checkout url in a Custom Tab of the bound session.
+	 */
+	@NonNull
+	public static synchronized Intent createCheckoutIntent(@NonNull String checkoutUrl) {
+		SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+		final CustomTabsIntent.Builder builder = session != null
+				? new CustomTabsIntent.Builder(session) : new CustomTabsIntent.Builder();
+		final Intent intent = builder.setShowTitle(true).build().intent;
+		if (packageName != null) {
+			intent.setPackage(packageName);
+		}
+		intent.setData(Uri.parse(checkoutUrl));
+		return intent;
+	}
+
+	/**
+	 * Forgets the browser and the service connection, so the next call resolves the browser
+	 * again. The bound service isn't unbound.
+	 */
+	@VisibleForTesting
+	static synchronized void reset() {
+		packageName = null;
+		serviceConnection = null;
+		session = null;
+		pendingMayLaunchUrl = null;
+	}
+
+	private static synchronized void onConnected(@NonNull CustomTabsClient client) {
+		Logger.d(TAG, "Custom Tabs service connected to " + packageName);
+		client.warmup(0);
+		session = client.newSession(null);
+		if (session != null && pendingMayLaunchUrl != null) {
+			session.mayLaunchUrl(Uri.parse(pendingMayLaunchUrl), null, null);
+		}
+		pendingMayLaunchUrl = null;
+	}
+
+	private static synchronized void onDisconnected(@NonNull CustomTabsServiceConnection connection) {
+		Logger.d(TAG, "Custom Tabs service disconnected");
+		if (serviceConnection == connection) {
+			serviceConnection = null;
+			session = null;
+		}
+	}
+}
@@ -0,0 +1,763 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * LRU disk cache of the static assets (stylesheets, scripts, fonts and images) of the iPay web
+ * checkout page. The web checkout serves these assets from the cache through
+ * {@link android.webkit.WebViewClient#shouldInterceptRequest}, so a repeat checkout loads
+ * mostly from the local storage.
+ * </p>
+ * <p>
+ * Assets marked as immutable or still fresh by their <code>Cache-Control</code> header are
+ * served without touching the network, the others are revalidated with their ETag. The content
+ * hash of every entry is verified before it's served. The least recently used entries are
+ * removed when the size of the cache exceeds its limit.
+ * </p>
+ * <p>
+ * Assets are requested with the cookies, user agent and referer the web view would send, and
+ * served with the response headers they were stored with, so CORS and content security checks
+ * of the page see the same response as without the cache.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class WebAssetCache {
+	private static final Class<WebAssetCache> TAG = WebAssetCache.class;
+
+	/**
+	 * Default size limit of the cache in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE_BYTES = 10 * 1024 * 1024;
+
+	private static final String CACHE_DIRECTORY_NAME = "ipay_web_assets";
+	private static final String DATA_FILE_SUFFIX = ".data";
+	private static final String META_FILE_SUFFIX = ".meta";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private static final String META_URL = "url";
+	private static final String META_ETAG = "etag";
+	private static final String META_MIME_TYPE = "mimeType";
+	private static final String META_ENCODING = "encoding";
+	private static final String META_SHA_256 = "sha256";
+	private static final String META_EXPIRES = "expires";
+	private static final String META_HEADER_PREFIX = "header.";
+
+	private static final String[] CACHEABLE_EXTENSIONS = {".css", ".js", ".woff", ".woff2",
+			".ttf", ".otf", ".eot", ".svg", ".png", ".jpg", ".jpeg", ".gif", ".webp", ".ico"};
+
+	private static final String[] FORWARDED_REQUEST_HEADERS = {"User-Agent", "Referer", "Accept",
+			"Accept-Language", "Origin"};
+	// Headers describing the transfer rather than the asset, the data is stored decoded.
+	private static final String[] UNSTORED_RESPONSE_HEADERS = {"Content-Encoding", "Content-Length",
+			"Transfer-Encoding", "Connection", "Keep-Alive", "Set-Cookie", "Set-Cookie2"};
+	private static final String ANDROID_RESPONSE_HEADER_PREFIX = "X-Android-";
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 15000;
+	private static final int READ_TIMEOUT_MILLIS = 15000;
+	private static final long IMMUTABLE_MAX_AGE_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+	private static WebAssetCache instance;
+
+	@NonNull
+	private final File directory;
+	private final long maxSizeBytes;
+
+	WebAssetCache(@NonNull File directory, long maxSizeBytes) {
+		this.directory = directory;
+		this.maxSizeBytes = maxSizeBytes;
+	}
+
+	/**
+	 * @param context An android context
+	 * @return the shared asset cache of the application.
+	 */
+	@NonNull
+	public static synchronized WebAssetCache getInstance(@NonNull Context context) {
+		SDKUtils.notNull(context, "context");
+		if (instance == null) {
+			instance = new WebAssetCache(new File(context.getApplicationContext().getCacheDir(),
+					CACHE_DIRECTORY_NAME), DEFAULT_MAX_SIZE_BYTES);
+		}
+		return instance;
+	}
+
+	/**
+	 * Checks whether the url points to a static asset which can be cached. Query strings and
+	 * fragments are ignored.
+	 *
+	 * @param url url of the requested resource
+	 * @return true if the url is a cacheable static asset, otherwise false.
+	 */
+	public static boolean isCacheableAsset(@Nullable String url) {
+		if (url == null || !(url.startsWith("https://") || url.startsWith("http://"))) {
+			return false;
+		}
+		int end = url.length();
+		final int queryIndex = url.indexOf('?');
+		if (queryIndex != -1) {
+			end = queryIndex;
+		}
+		final int fragmentIndex = url.indexOf('#');
+		if (fragmentIndex != -1 && fragmentIndex < end) {
+			end = fragmentIndex;
+		}
+		final String path = url.substring(0, end).toLowerCase(Locale.US);
+		for (String extension : CACHEABLE_EXTENSIONS) {
+			if (path.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Serves the request of a static asset of the iPay checkout page from the cache. Called from
+	 * {@link android.webkit.WebViewClient#shouldInterceptRequest} on the WebView network thread.
+	 *
+	 * @param url url of the requested resource
+	 * @return the cached response, or null to let the WebView load the url itself.
+	 */
+	@Nullable
+	public WebResourceResponse intercept(@Nullable String url) {
+		return intercept(url, null, null, null);
+	}
+
+	/**
+	 * Serves the request of a static asset of the iPay checkout page from the cache. Called from
+	 * {@link android.webkit.WebViewClient#shouldInterceptRequest} on the WebView network thread.
+	 *
+	 * @param url            url of the requested resource
+	 * @param requestHeaders headers of the request made by the web view, null if unknown
+	 * @param userAgent      user agent of the web view, used if the request headers have none
+	 * @param referer        url of the page requesting the asset, used if the request headers
+	 *                       have none
+	 * @return the cached response, or null to let the WebView load the url itself.
+	 */
+	@Nullable
+	public WebResourceResponse intercept(@Nullable String url,
+	                                     @Nullable Map<String, String> requestHeaders,
+	                                     @Nullable String userAgent, @Nullable String referer) {
+		if (!isCacheableAsset(url) || !SDKUtils.isValidIPayCheckoutUrl(url)) {
+			return null;
+		}
+		final Map<String, String> headers = new HashMap<>();
+		if (userAgent != null) {
+			headers.put("User-Agent", userAgent);
+		}
+		if (referer != null) {
+			headers.put("Referer", referer);
+		}
+		if (requestHeaders != null) {
+			for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+				final String name = getForwardedRequestHeader(header.getKey());
+				if (name != null && header.getValue() != null) {
+					headers.put(name, header.getValue());
+				}
+			}
+		}
+		final Asset asset = get(url, headers);
+		if (asset == null) {
+			return null;
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			return toWebResourceResponse(asset);
+		}
+		// The status of the response can't be set before lollipop, only a successful one is
+		// served so an error isn't taken for the asset.
+		if (asset.getStatusCode() != HttpURLConnection.HTTP_OK) {
+			return null;
+		}
+		return new WebResourceResponse(asset.getMimeType(), asset.getEncoding(), asset.openStream());
+	}
+
+	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+	@NonNull
+	private static WebResourceResponse toWebResourceResponse(@NonNull Asset asset) {
+		return new WebResourceResponse(asset.getMimeType(), asset.getEncoding(),
+				asset.getStatusCode(), asset.getReasonPhrase(), asset.getResponseHeaders(),
+				asset.openStream());
+	}
+
+	/**
+	 * Returns the asset of the url from the cache, fetching or revalidating it when needed.
+	 * Performs network IO, so it must not be called from the UI thread.
+	 *
+	 * @param url url of a cacheable static asset
+	 * @return the asset, or null if it couldn't be loaded. In that case the caller should load
+	 * the url itself.
+	 */
+	@Nullable
+	public Asset get(@NonNull String url) {
+		return get(url, null);
+	}
+
+	/**
+	 * Returns the asset of the url from the cache, fetching or revalidating it when needed.
+	 * Performs network IO, so it must not be called from the UI thread. An error response of the
+	 * server is returned as is, but isn't cached.
+	 *
+	 * @param url            url of a cacheable static asset
+	 * @param requestHeaders headers sent along with the cookies of the url when the asset is
+	 *                       fetched, null for none
+	 * @return the asset, or null if it couldn't be loaded. In that case the caller should load
+	 * the url itself.
+	 */
+	@Nullable
+	public Asset get(@NonNull String url, @Nullable Map<String, String> requestHeaders) {
+		final String key = sha256Hex(url.getBytes());
+		final File dataFile = new File(directory, key + DATA_FILE_SUFFIX);
+		final File metaFile = new File(directory, key + META_FILE_SUFFIX);
+
+		final Properties meta = readMeta(metaFile);
+		byte[] data = null;
+		if (meta != null && url.equals(meta.getProperty(META_URL))) {
+			data = readVerified(dataFile, meta.getProperty(META_SHA_256));
+			if (data == null) {
+				remove(dataFile, metaFile);
+			}
+		}
+
+		try {
+			if (data != null) {
+				//noinspection ConstantConditions
+				if (System.currentTimeMillis() < parseLong(meta.getProperty(META_EXPIRES))) {
+					touch(dataFile, metaFile);
+					return new Asset(meta, data);
+				}
+				return fetch(url, key, requestHeaders, meta, data);
+			}
+			return fetch(url, key, requestHeaders, null, null);
+		} catch (IOException e) {
+			Logger.w(TAG, "Unable to load " + url, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Removes every entry of the cache.
+	 */
+	public synchronized void clear() {
+		final File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return total size of the cached asset data in bytes.
+	 */
+	public synchronized long size() {
+		long size = 0;
+		final File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(DATA_FILE_SUFFIX)) {
+					size += file.length();
+				}
+			}
+		}
+		return size;
+	}
+
+	@Nullable
+	private Asset fetch(@NonNull String url, @NonNull String key,
+	                    @Nullable Map<String, String> requestHeaders,
+	                    @Nullable Properties cachedMeta, @Nullable byte[] cachedData)
+			throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		// Not disconnecting, the connection goes back to the pool once its stream is closed.
+		connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+		connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+		if (requestHeaders != null) {
+			for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+				connection.setRequestProperty(header.getKey(), header.getValue());
+			}
+		}
+		final CookieManager cookieManager = CookieManager.getInstance();
+		final String cookie = cookieManager.getCookie(url);
+		if (cookie != null) {
+			connection.setRequestProperty("Cookie", cookie);
+		}
+		if (cachedMeta != null && cachedMeta.getProperty(META_ETAG) != null) {
+			connection.setRequestProperty("If-None-Match", cachedMeta.getProperty(META_ETAG));
+		}
+
+		final int responseCode = connection.getResponseCode();
+		for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+			if ("Set-Cookie".equalsIgnoreCase(header.getKey()) && header.getValue() != null) {
+				for (String setCookie : header.getValue()) {
+					cookieManager.setCookie(url, setCookie);
+				}
+			}
+		}
+		if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cachedMeta != null
+				&& cachedData != null) {
+			connection.getInputStream().close();
+			cachedMeta.setProperty(META_EXPIRES, String.valueOf(expiresAt(connection)));
+			writeMeta(key, cachedMeta);
+			return new Asset(cachedMeta, cachedData);
+		}
+
+		final String contentType = connection.getContentType();
+		final String mimeType = parseMimeType(contentType);
+		final String encoding = parseEncoding(contentType);
+		final Map<String, String> responseHeaders = getResponseHeaders(connection);
+		if (responseCode != HttpURLConnection.HTTP_OK) {
+			final InputStream inputStream = responseCode >= HttpURLConnection.HTTP_BAD_REQUEST
+					? connection.getErrorStream() : connection.getInputStream();
+			final byte[] data = inputStream != null ? readFully(inputStream) : new byte[0];
+			// A redirect can't be served in place of the asset, the web view follows it itself.
+			if (responseCode < 200 || (responseCode >= 300 && responseCode < 400)) {
+				return null;
+			}
+			// The web view would request the asset once more if the error wasn't served.
+			return new Asset(responseCode, getReasonPhrase(connection), mimeType, encoding,
+					responseHeaders, data);
+		}
+
+		final byte[] data = readFully(connection.getInputStream());
+		final String etag = connection.getHeaderField("ETag");
+		final String cacheControl = connection.getHeaderField("Cache-Control");
+
+		if (cacheControl == null || !cacheControl.toLowerCase(Locale.US).contains("no-store")) {
+			final long expires = expiresAt(connection);
+			if (etag != null || expires > System.currentTimeMillis()) {
+				final Properties meta = new Properties();
+				meta.setProperty(META_URL, url);
+				meta.setProperty(META_MIME_TYPE, mimeType);
+				if (encoding != null) {
+					meta.setProperty(META_ENCODING, encoding);
+				}
+				if (etag != null) {
+					meta.setProperty(META_ETAG, etag);
+				}
+				meta.setProperty(META_SHA_256, sha256Hex(data));
+				meta.setProperty(META_EXPIRES, String.valueOf(expires));
+				for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+					meta.setProperty(META_HEADER_PREFIX + header.getKey(), header.getValue());
+				}
+				store(key, meta, data);
+			}
+		}
+		return new Asset(HttpURLConnection.HTTP_OK, getReasonPhrase(connection), mimeType,
+				encoding, responseHeaders, data);
+	}
+
+	private synchronized void store(@NonNull String key, @NonNull Properties meta,
+	                                @NonNull byte[] data) {
+		if (data.length > maxSizeBytes) {
+			return;
+		}
+		//noinspection ResultOfMethodCallIgnored
+		directory.mkdirs();
+		final File dataFile = new File(directory, key + DATA_FILE_SUFFIX);
+		final File tempFile = new File(directory, key + DATA_FILE_SUFFIX + TEMP_FILE_SUFFIX);
+		try {
+			writeFully(tempFile, data);
+			if (!tempFile.renameTo(dataFile)) {
+				throw new IOException("Unable to rename " + tempFile);
+			}
+			writeMeta(key, meta);
+		} catch (IOException e) {
+			Logger.w(TAG, "Unable to cache " + meta.getProperty(META_URL), e);
+			remove(dataFile, new File(directory, key + META_FILE_SUFFIX));
+			//noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+			return;
+		}
+		trimToSize();
+	}
+
+	private synchronized void writeMeta(@NonNull String key, @NonNull Properties meta)
+			throws IOException {
+		final File metaFile = new File(directory, key + META_FILE_SUFFIX);
+		final File tempFile = new File(directory, key + META_FILE_SUFFIX + TEMP_FILE_SUFFIX);
+		final OutputStream outputStream = new FileOutputStream(tempFile);
+		try {
+			meta.store(outputStream, null);
+		} finally {
+			outputStream.close();
+		}
+		if (!tempFile.renameTo(metaFile)) {
+			throw new IOException("Unable to rename " + tempFile);
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache fits in its size limit.
+	 */
+	private synchronized void trimToSize() {
+		final File[] dataFiles = directory.listFiles();
+		if (dataFiles == null) {
+			return;
+		}
+		long size = 0;
+		int count = 0;
+		for (int i = 0; i < dataFiles.length; i++) {
+			if (dataFiles[i].getName().endsWith(DATA_FILE_SUFFIX)) {
+				dataFiles[count++] = dataFiles[i];
+				size += dataFiles[i].length();
+			}
+		}
+		if (size <= maxSizeBytes) {
+			return;
+		}
+		final File[] entries = Arrays.copyOf(dataFiles, count);
+		Arrays.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File lhs, File rhs) {
+				final long lhsModified = lhs.lastModified();
+				final long rhsModified = rhs.lastModified();
+				return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+			}
+		});
+		for (int i = 0; i < entries.length && size > maxSizeBytes; i++) {
+			final String name = entries[i].getName();
+			final String key = name.substring(0, name.length() - DATA_FILE_SUFFIX.length());
+			size -= entries[i].length();
+			remove(entries[i], new File(directory, key + META_FILE_SUFFIX));
+		}
+	}
+
+	private static void touch(@NonNull File dataFile, @NonNull File metaFile) {
+		final long now = System.currentTimeMillis();
+		//noinspection ResultOfMethodCallIgnored
+		dataFile.setLastModified(now);
+		//noinspection ResultOfMethodCallIgnored
+		metaFile.setLastModified(now);
+	}
+
+	private static void remove(@NonNull File dataFile, @NonNull File metaFile) {
+		//noinspection ResultOfMethodCallIgnored
+		dataFile.delete();
+		//noinspection ResultOfMethodCallIgnored
+		metaFile.delete();
+	}
+
+	@Nullable
+	private static Properties readMeta(@NonNull File metaFile) {
+		if (!metaFile.isFile()) {
+			return null;
+		}
+		try {
+			final InputStream inputStream = new FileInputStream(metaFile);
+			try {
+				final Properties meta = new Properties();
+				meta.load(inputStream);
+				return meta;
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			Logger.w(TAG, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return the content of the data file if its hash matches the expected hash, otherwise null.
+	 */
+	@Nullable
+	private static byte[] readVerified(@NonNull File dataFile, @Nullable String expectedSha256) {
+		if (expectedSha256 == null || !dataFile.isFile()) {
+			return null;
+		}
+		try {
+			final byte[] data = readFully(new FileInputStream(dataFile));
+			if (expectedSha256.equals(sha256Hex(data))) {
+				return data;
+			}
+			Logger.w(TAG, "Content hash mismatch for " + dataFile.getName());
+		} catch (IOException e) {
+			Logger.w(TAG, e);
+		}
+		return null;
+	}
+
+	@NonNull
+	private static byte[] readFully(@NonNull InputStream inputStream) throws IOException {
+		try {
+			final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static void writeFully(@NonNull File file, @NonNull byte[] data) throws IOException {
+		final OutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(data);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds until the response can be served without revalidation.
+	 */
+	private static long expiresAt(@NonNull HttpURLConnection connection) {
+		final String cacheControl = connection.getHeaderField("Cache-Control");
+		if (cacheControl == null) {
+			return 0;
+		}
+		final String value = cacheControl.toLowerCase(Locale.US);
+		if (value.contains("no-cache")) {
+			return 0;
+		}
+		if (value.contains("immutable")) {
+			return System.currentTimeMillis() + IMMUTABLE_MAX_AGE_MILLIS;
+		}
+		for (String directive : value.split(",")) {
+			directive = directive.trim();
+			if (directive.startsWith("max-age=")) {
+				return System.currentTimeMillis() + parseLong(directive.substring(8)) * 1000;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the name of the request header as it's forwarded, or null if it isn't forwarded.
+	 */
+	@Nullable
+	private static String getForwardedRequestHeader(@Nullable String name) {
+		for (String forwardedName : FORWARDED_REQUEST_HEADERS) {
+			if (forwardedName.equalsIgnoreCase(name)) {
+				return forwardedName;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the headers of the response describing the asset, multiple values of a header are
+	 * joined by commas.
+	 */
+	@NonNull
+	private static Map<String, String> getResponseHeaders(@NonNull HttpURLConnection connection) {
+		final Map<String, String> headers = new HashMap<>();
+		for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+			final String name = header.getKey();
+			if (name == null || header.getValue() == null || header.getValue().isEmpty()
+					|| name.regionMatches(true, 0, ANDROID_RESPONSE_HEADER_PREFIX, 0,
+					ANDROID_RESPONSE_HEADER_PREFIX.length())) {
+				continue;
+			}
+			boolean stored = true;
+			for (String unstoredName : UNSTORED_RESPONSE_HEADERS) {
+				if (unstoredName.equalsIgnoreCase(name)) {
+					stored = false;
+					break;
+				}
+			}
+			if (stored) {
+				final StringBuilder value = new StringBuilder();
+				for (String part : header.getValue()) {
+					if (value.length() > 0) {
+						value.append(", ");
+					}
+					value.append(part);
+				}
+				headers.put(name, value.toString());
+			}
+		}
+		return headers;
+	}
+
+	@NonNull
+	private static String getReasonPhrase(@NonNull HttpURLConnection connection)
+			throws IOException {
+		final String responseMessage = connection.getResponseMessage();
+		// WebResourceResponse doesn't accept an empty reason phrase.
+		if (responseMessage == null || responseMessage.trim().isEmpty()) {
+			return connection.getResponseCode() == HttpURLConnection.HTTP_OK
+					? "OK" : String.valueOf(connection.getResponseCode());
+		}
+		return responseMessage.trim();
+	}
+
+	@NonNull
+	private static String parseMimeType(@Nullable String contentType) {
+		if (contentType == null) {
+			return "application/octet-stream";
+		}
+		final int separatorIndex = contentType.indexOf(';');
+		return (separatorIndex == -1 ? contentType : contentType.substring(0, separatorIndex)).trim();
+	}
+
+	@Nullable
+	private static String parseEncoding(@Nullable String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		for (String parameter : contentType.split(";")) {
+			parameter = parameter.trim();
+			if (parameter.toLowerCase(Locale.US).startsWith("charset=")) {
+				return parameter.substring(8).replace("\"", "");
+			}
+		}
+		return null;
+	}
+
+	private static long parseLong(@Nullable String value) {
+		if (value == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	@NonNull
+	private static String sha256Hex(@NonNull byte[] data) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+			final StringBuilder builder = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				builder.append(Character.forDigit((b >> 4) & 0xf, 16))
+						.append(Character.forDigit(b & 0xf, 16));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A static asset loaded from the cache or the network.
+	 */
+	public static final class Asset {
+		private final int statusCode;
+		@NonNull
+		private final String reasonPhrase;
+		@NonNull
+		private final String mimeType;
+		@Nullable
+		private final String encoding;
+		@NonNull
+		private final Map<String, String> responseHeaders;
+		@NonNull
+		private final byte[] data;
+
+		Asset(int statusCode, @NonNull String reasonPhrase, @NonNull String mimeType,
+		      @Nullable String encoding, @NonNull Map<String, String> responseHeaders,
+		      @NonNull byte[] data) {
+			this.statusCode = statusCode;
+			this.reasonPhrase = reasonPhrase;
+			this.mimeType = mimeType;
+			this.encoding = encoding;
+			this.responseHeaders = Collections.unmodifiableMap(responseHeaders);
+			this.data = data;
+		}
+
+		Asset(@NonNull Properties meta, @NonNull byte[] data) {
+			this(HttpURLConnection.HTTP_OK, "OK", meta.getProperty(META_MIME_TYPE),
+					meta.getProperty(META_ENCODING), getStoredHeaders(meta), data);
+		}
+
+		@NonNull
+		private static Map<String, String> getStoredHeaders(@NonNull Properties meta) {
+			final Map<String, String> headers = new HashMap<>();
+			for (String name : meta.stringPropertyNames()) {
+				if (name.startsWith(META_HEADER_PREFIX)) {
+					headers.put(name.substring(META_HEADER_PREFIX.length()), meta.getProperty(name));
+				}
+			}
+			return headers;
+		}
+
+		/**
+		 * @return status code of the response, 200 unless the server responded with an error.
+		 */
+		public int getStatusCode() {
+			return statusCode;
+		}
+
+		@NonNull
+		public String getReasonPhrase() {
+			return reasonPhrase;
+		}
+
+		@NonNull
+		public String getMimeType() {
+			return mimeType;
+		}
+
+		@Nullable
+		public String getEncoding() {
+			return encoding;
+		}
+
+		/**
+		 * @return headers of the response, without the ones describing its transfer.
+		 */
+		@NonNull
+		public Map<String, String> getResponseHeaders() {
+			return responseHeaders;
+		}
+
+		@NonNull
+		public InputStream openStream() {
+			return new ByteArrayInputStream(data);
+		}
+	}
+}
@@ -0,0 +1,745 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.ValueCallback;
+import android.webkit.WebChromeClient;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+import android.widget.ProgressBar;
+
+import java.util.regex.PatternSyntaxException;
+
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.IPaySDKConfig;
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+import bd.com.ipay.sdk.util.CallbackUrlMatcher;
+import bd.com.ipay.sdk.util.FrameTimeMonitor;
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Runs the web checkout in a {@link WebView} added to a given container, independent of the
+ * screen hosting it. Used by {@link bd.com.ipay.sdk.activity.IPayWebCheckoutActivity} and by
+ * {@link bd.com.ipay.sdk.view.IPayCheckoutView} to embed the checkout in the app's own screen.
+ * </p>
+ * <p>
+ * The controller detects the result of the checkout through the callback urls or the
+ * {@link CheckoutResultBridge}, fails fast through the {@link CheckoutLoadWatchdog}, recovers
+ * from a gone renderer and records the {@link CheckoutLoadMetrics}. All methods must be called
+ * from the UI thread.
+ * </p>
+ * <p>
+ * Only the pages of the checkout origin are watched for a timeout. The bank and 3-D Secure pages
+ * the checkout navigates to have their own pace and are left to the session timeout. A page
+ * which timed out is loaded again only if it was requested with a GET, a form submission is
+ * never sent twice.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class WebCheckoutController {
+	private static final Class<WebCheckoutController> TAG = WebCheckoutController.class;
+	private static final int MAX_RENDER_PROCESS_RECOVERIES = 2;
+	private static final long LOAD_RETRY_BACKOFF_MILLIS = 1000;
+
+	/**
+	 * Receives the result of the checkout.
+	 */
+	public interface Listener {
+		/**
+		 * Called once when the result of the checkout is known, or the checkout can't go on.
+		 *
+		 * @param checkoutStatus status of the checkout
+		 * @param checkoutId     id of the checkout, null if unknown
+		 */
+		void onCheckoutFinished(@NonNull IPaySDK.CheckoutStatus checkoutStatus,
+		                        @Nullable String checkoutId);
+	}
+
+	@NonNull
+	private final Context context;
+	@NonNull
+	private final ViewGroup container;
+	@Nullable
+	private final ProgressBar progressBar;
+	@NonNull
+	private final Listener listener;
+	private final boolean isChromeAvailable;
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final Runnable retryLoadRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (webView != null && !checkoutFinished) {
+				webView.loadUrl(loadingUrl != null ? loadingUrl : checkoutUrl);
+			}
+		}
+	};
+
+	private String checkoutUrl;
+	private String checkoutOrigin;
+	private IPaySDKConfig config;
+	private CallbackUrlMatcher callbackUrlMatcher;
+	private WebAssetCache webAssetCache;
+	private WebView webView;
+	private WebViewClient webViewClient;
+	private WebChromeClient webChromeClient;
+	private Bundle webViewState;
+	private int renderProcessRecoveries;
+	private FrameTimeMonitor frameTimeMonitor;
+	private CheckoutLoadMetrics checkoutLoadMetrics;
+	private CheckoutLoadWatchdog loadWatchdog;
+	private CheckoutResultBridge resultBridge;
+	// Read by the asset cache on the web view network thread.
+	private volatile String loadingUrl;
+	private volatile String userAgent;
+	// Url of the last main frame request which wasn't a GET, null if it was a GET.
+	private volatile String nonGetNavigationUrl;
+	private int loadRetries;
+	private boolean checkoutFinished;
+	private boolean clearHistoryOnPageFinished;
+
+	/**
+	 * @param context     context of the screen hosting the checkout
+	 * @param container   container the web view is added to, it fills the container
+	 * @param progressBar progress bar showing the page load progress, null for none
+	 * @param listener    listener of the result
+	 */
+	public WebCheckoutController(@NonNull Context context, @NonNull ViewGroup container,
+	                             @Nullable ProgressBar progressBar, @NonNull Listener listener) {
+		this(context, container, progressBar, SDKUtils.isChromeInstalled(context), listener);
+	}
+
+	/**
+	 * @param context           context of the screen hosting the checkout
+	 * @param container         container the web view is added to, it fills the container
+	 * @param progressBar       progress bar showing the page load progress, null for none
+	 * @param isChromeAvailable whether chrome is installed, for hosts which resolve it once for
+	 *                          many checkouts
+	 * @param listener          listener of the result
+	 */
+	public WebCheckoutController(@NonNull Context context, @NonNull ViewGroup container,
+	                             @Nullable ProgressBar progressBar, boolean isChromeAvailable,
+	                             @NonNull Listener listener) {
+		SDKUtils.notNull(context, "context");
+		SDKUtils.notNull(container, "container");
+		SDKUtils.notNull(listener, "listener");
+		this.context = context;
+		this.container = container;
+		this.progressBar = progressBar;
+		this.listener = listener;
+		this.isChromeAvailable = isChromeAvailable;
+	}
+
+	/**
+	 * Starts the checkout, from a preloaded page if there's one for the checkout url. If the
+	 * callback urls aren't valid the checkout finishes with
+	 * {@link IPaySDK.CheckoutStatus#FAILED} right away.
+	 *
+	 * @param checkoutUrl                iPay checkout url
+	 * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during
+	 *                                   the creation of the checkout
+	 * @return true if the checkout has started, otherwise false.
+	 */
+	@MainThread
+	public boolean start(@Nullable String checkoutUrl,
+	                     @Nullable CheckoutCallbackActionUrls checkoutCallbackActionUrls) {
+		return start(checkoutUrl, checkoutCallbackActionUrls, null);
+	}
+
+	/**
+	 * Starts the checkout in a web view released by {@link #release()} of a previous checkout,
+	 * instead of a preloaded or a new one.
+	 *
+	 * @param checkoutUrl                iPay checkout url
+	 * @param checkoutCallbackActionUrls all three callback urls which was give to iPay during
+	 *                                   the creation of the checkout
+	 * @param reusableWebView            web view to run the checkout in, null for a preloaded or a
+	 *                                   new one
+	 * @return true if the checkout has started, otherwise false.
+	 */
+	@MainThread
+	public boolean start(@Nullable String checkoutUrl,
+	                     @Nullable CheckoutCallbackActionUrls checkoutCallbackActionUrls,
+	                     @Nullable WebView reusableWebView) {
+		if (webView != null || checkoutFinished) {
+			throw new IllegalStateException("checkout has already started");
+		}
+		this.checkoutUrl = checkoutUrl;
+		checkoutOrigin = CheckoutResultBridge.getOrigin(checkoutUrl);
+		if (checkoutUrl == null || SDKUtils.isValidCheckoutCallbackActionUrls(checkoutCallbackActionUrls)) {
+			finishCheckout(IPaySDK.CheckoutStatus.FAILED, null);
+			return false;
+		}
+		try {
+			callbackUrlMatcher = CallbackUrlMatcher.compile(checkoutCallbackActionUrls.getSuccessUrl(),
+					checkoutCallbackActionUrls.getFailedUrl(), checkoutCallbackActionUrls.getCancelledUrl());
+		} catch (PatternSyntaxException e) {
+			Logger.e(TAG, e);
+			finishCheckout(IPaySDK.CheckoutStatus.FAILED, null);
+			return false;
+		}
+
+		// The whole checkout runs with the configuration it has started with.
+		config = IPaySDK.getConfig();
+		checkoutLoadMetrics = new CheckoutLoadMetrics(checkoutUrl);
+		checkoutLoadMetrics.recordHeapBefore();
+		loadWatchdog = new CheckoutLoadWatchdog(handler, new CheckoutLoadWatchdog.Listener() {
+			@Override
+			public void onTimeout(int timeout) {
+				onLoadTimeout(timeout);
+			}
+		}, config.getWebCheckoutFirstByteTimeoutMillis(),
+				config.getWebCheckoutPageFinishedTimeoutMillis(),
+				config.getWebCheckoutSessionTimeoutMillis());
+		loadWatchdog.startSession();
+		if (config.isWebCheckoutResultBridgeEnabled() && CheckoutResultBridge.isSupported()) {
+			final String allowedOrigin = CheckoutResultBridge.getAllowedOrigin(checkoutUrl);
+			if (allowedOrigin != null) {
+				resultBridge = new CheckoutResultBridge(allowedOrigin, new CheckoutResultBridge.Listener() {
+					@Override
+					public void onCheckoutResult(@NonNull IPaySDK.CheckoutStatus checkoutStatus,
+					                             @Nullable String checkoutId) {
+						Logger.d(TAG, "Checkout result posted by the page " + checkoutStatus);
+						if (webView != null) {
+							webView.stopLoading();
+						}
+						finishCheckout(checkoutStatus, checkoutId);
+					}
+				});
+			}
+		}
+		webAssetCache = WebAssetCache.getInstance(context);
+		final WebCheckoutPreloader.PreloadedPage preloadedPage = reusableWebView == null
+				? WebCheckoutPreloader.takePage(context, checkoutUrl) : null;
+		if (preloadedPage != null) {
+			checkoutLoadMetrics.onPreloaded();
+		}
+		// The blank page the web view was released with must not be navigable back to.
+		clearHistoryOnPageFinished = reusableWebView != null;
+		if (progressBar != null) {
+			progressBar.setMax(100);
+			if (!isChromeAvailable) {
+				progressBar.setVisibility(View.GONE);
+			}
+		}
+		final int layerType = preloadedPage != null ? attachWebView(preloadedPage)
+				: attachWebView(reusableWebView != null ? reusableWebView : new WebView(context));
+
+		final IPaySDK.WebViewRenderingMode renderingMode = config.getWebViewRenderingMode();
+		Logger.d(TAG, "WebView rendering mode " + renderingMode + ", layer type " + layerType);
+		frameTimeMonitor = new FrameTimeMonitor("Web checkout (" + renderingMode + ", layer type "
+				+ layerType + ")");
+		if (preloadedPage == null) {
+			webView.loadUrl(checkoutUrl);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the preloaded web view to the container and sets the checkout clients up on it. The
+	 * page events the web view has seen while it was preloaded are delivered to the clients.
+	 *
+	 * @param preloadedPage preloaded page to show the checkout in
+	 * @return the layer type applied to the web view.
+	 */
+	private int attachWebView(@NonNull WebCheckoutPreloader.PreloadedPage preloadedPage) {
+		final int layerType = attachWebView(preloadedPage.getWebView());
+		preloadedPage.replayPageEvents(webViewClient, webChromeClient);
+		return layerType;
+	}
+
+	/**
+	 * Adds the web view to the container and sets the checkout clients up on it.
+	 *
+	 * @param webView web view to show the checkout in
+	 * @return the layer type applied to the web view.
+	 */
+	private int attachWebView(WebView webView) {
+		this.webView = webView;
+		container.addView(webView, new ViewGroup.LayoutParams(
+				ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+		webViewClient = new WebViewClient() {
+			@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+			@Override
+			public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
+				if (performCallbackUrlAction(request.getUrl().toString())) {
+					return true;
+				} else {
+					return super.shouldOverrideUrlLoading(view, request);
+				}
+			}
+
+			@Override
+			public boolean shouldOverrideUrlLoading(WebView view, String url) {
+				if (performCallbackUrlAction(url)) {
+					return true;
+				} else {
+					return super.shouldOverrideUrlLoading(view, url);
+				}
+			}
+
+			@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+			@Override
+			public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+				// Not calling super, it would intercept the same request again through the
+				// deprecated shouldInterceptRequest(WebView, String).
+				if (request.isForMainFrame()) {
+					nonGetNavigationUrl = "GET".equalsIgnoreCase(request.getMethod())
+							? null : request.getUrl().toString();
+				}
+				if ("GET".equalsIgnoreCase(request.getMethod())) {
+					return webAssetCache.intercept(request.getUrl().toString(),
+							request.getRequestHeaders(), userAgent, loadingUrl);
+				} else {
+					return null;
+				}
+			}
+
+			@Override
+			public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+				final WebResourceResponse response = webAssetCache.intercept(url, null, userAgent,
+						loadingUrl);
+				if (response != null) {
+					return response;
+				} else {
+					return super.shouldInterceptRequest(view, url);
+				}
+			}
+
+			@Override
+			public void onPageStarted(WebView view, String url, Bitmap favicon) {
+				// Redirects aren't always reported to shouldOverrideUrlLoading on older devices.
+				if (!performCallbackUrlAction(url)) {
+					loadingUrl = url;
+					if (resultBridge != null) {
+						resultBridge.onPageStarted();
+					}
+					if (isOnCheckoutOrigin(url)) {
+						loadWatchdog.onPageStarted();
+					} else {
+						// A page of the bank is only bound by the session timeout.
+						loadWatchdog.onPageFinished();
+					}
+					checkoutLoadMetrics.onPageStarted();
+					super.onPageStarted(view, url, favicon);
+				}
+			}
+
+			@Override
+			public void onPageCommitVisible(WebView view, String url) {
+				loadWatchdog.onFirstByte();
+				checkoutLoadMetrics.onFirstVisualChange();
+				super.onPageCommitVisible(view, url);
+			}
+
+			@Override
+			public void onPageFinished(WebView view, String url) {
+				super.onPageFinished(view, url);
+				loadWatchdog.onPageFinished();
+				if (checkoutFinished) {
+					return;
+				}
+				if (clearHistoryOnPageFinished) {
+					clearHistoryOnPageFinished = false;
+					view.clearHistory();
+				}
+				if (resultBridge != null) {
+					resultBridge.onPageFinished(view, url);
+				}
+				// Keeping the state of the last loaded step to restore it if the renderer is gone.
+				webViewState = new Bundle();
+				view.saveState(webViewState);
+				// Only the checkout page itself is measured, not the pages navigated from it.
+				if (checkoutLoadMetrics.getPageFinishedMillis()
+						!= CheckoutLoadMetrics.NOT_RECORDED) {
+					return;
+				}
+				checkoutLoadMetrics.onPageFinished();
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+					evaluatePerformanceTiming(view);
+				}
+			}
+
+			@TargetApi(Build.VERSION_CODES.O)
+			@Override
+			public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+				Logger.w(TAG, "WebView renderer is gone, crashed " + detail.didCrash());
+				if (view == WebCheckoutController.this.webView) {
+					recoverFromRenderProcessGone();
+				}
+				// Returning true, otherwise the app is killed along with the renderer.
+				return true;
+			}
+
+			@Override
+			public void onReceivedError(WebView view, int errorCode, String description, String failingUrl) {
+				checkoutLoadMetrics.onReceivedError(errorCode, failingUrl);
+				super.onReceivedError(view, errorCode, description, failingUrl);
+			}
+		};
+		webView.setWebViewClient(webViewClient);
+
+		webChromeClient = new WebChromeClient() {
+			@Override
+			public void onProgressChanged(WebView view, int newProgress) {
+				super.onProgressChanged(view, newProgress);
+				// WebView reports 10% as soon as the load starts, anything above has content.
+				if (newProgress > 10) {
+					loadWatchdog.onFirstByte();
+					checkoutLoadMetrics.onFirstVisualChange();
+				}
+				if (progressBar != null && isChromeAvailable) {
+					progressBar.setProgress(newProgress);
+					progressBar.setVisibility(newProgress < 100 ? View.VISIBLE : View.GONE);
+				}
+			}
+		};
+		webView.setWebChromeClient(webChromeClient);
+		final int layerType = WebCheckoutSettings.apply(webView);
+		userAgent = webView.getSettings().getUserAgentString();
+		return layerType;
+	}
+
+	/**
+	 * Replaces the web view whose renderer is gone with a fresh one showing the same checkout
+	 * step, so the checkout session on the server stays the same. The last saved state is
+	 * restored, which reloads the current step of its history. Gives up with
+	 * {@link IPaySDK.CheckoutStatus#FAILED} when the renderer keeps dying.
+	 */
+	private void recoverFromRenderProcessGone() {
+		checkoutLoadMetrics.onRenderProcessGone();
+		final String lastUrl = webView.getUrl();
+		destroyWebView();
+		if (checkoutFinished) {
+			return;
+		}
+		if (++renderProcessRecoveries > MAX_RENDER_PROCESS_RECOVERIES) {
+			Logger.e(TAG, "WebView renderer is gone " + renderProcessRecoveries + " times, giving up");
+			finishCheckout(IPaySDK.CheckoutStatus.FAILED, null);
+			return;
+		}
+		attachWebView(new WebView(context));
+		if (webViewState == null || webView.restoreState(webViewState) == null) {
+			webView.loadUrl(lastUrl != null ? lastUrl : checkoutUrl);
+		}
+	}
+
+	/**
+	 * Retries the page load which timed out after a backoff, until the retries run out. Then,
+	 * or when the whole session times out, the checkout finishes with
+	 * {@link IPaySDK.CheckoutStatus#TIMEOUT} so the app can offer another way to pay.
+	 *
+	 * @param timeout timeout reported by the {@link CheckoutLoadWatchdog}
+	 */
+	private void onLoadTimeout(int timeout) {
+		Logger.w(TAG, "Web checkout timed out, timeout " + timeout + ", url " + loadingUrl);
+		if (checkoutFinished) {
+			return;
+		}
+		if (timeout != CheckoutLoadWatchdog.TIMEOUT_SESSION
+				&& loadRetries < config.getWebCheckoutLoadRetries()
+				&& isRetryable(loadingUrl != null ? loadingUrl : checkoutUrl)) {
+			final long backoffMillis = LOAD_RETRY_BACKOFF_MILLIS << loadRetries;
+			loadRetries++;
+			webView.stopLoading();
+			handler.postDelayed(retryLoadRunnable, backoffMillis);
+		} else {
+			finishCheckout(IPaySDK.CheckoutStatus.TIMEOUT, null);
+		}
+	}
+
+	/**
+	 * @param url url of a page
+	 * @return true if the page is on the origin of the checkout url, otherwise false.
+	 */
+	private boolean isOnCheckoutOrigin(@Nullable String url) {
+		return checkoutOrigin != null && checkoutOrigin.equals(CheckoutResultBridge.getOrigin(url));
+	}
+
+	/**
+	 * @param url url of the page which timed out
+	 * @return true if the page can be loaded again without sending a request twice.
+	 */
+	private boolean isRetryable(@NonNull String url) {
+		if (!isOnCheckoutOrigin(url)) {
+			return false;
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+			return !url.equals(nonGetNavigationUrl);
+		}
+		// The method of a navigation isn't known before lollipop, only the checkout url loaded
+		// by the controller itself is known to be a GET.
+		return url.equals(checkoutUrl);
+	}
+
+	/**
+	 * Must be called when the screen hosting the checkout becomes visible.
+	 */
+	@MainThread
+	public void onResume() {
+		if (frameTimeMonitor != null) {
+			frameTimeMonitor.start();
+		}
+	}
+
+	/**
+	 * Must be called when the screen hosting the checkout is no longer visible.
+	 */
+	@MainThread
+	public void onPause() {
+		if (frameTimeMonitor != null) {
+			frameTimeMonitor.stop();
+		}
+	}
+
+	/**
+	 * Gives the memory of the web view which can be reloaded back under memory pressure.
+	 *
+	 * @param level trim memory level, see {@link ComponentCallbacks2}
+	 */
+	@MainThread
+	public void onTrimMemory(int level) {
+		Logger.d(TAG, "onTrimMemory(level " + level + ")");
+		// The checkout on screen stays as is, only the memory it can reload is given back.
+		if (webView != null && level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+			webView.clearCache(false);
+			if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+				//noinspection deprecation
+				webView.freeMemory();
+			}
+		}
+	}
+
+	/**
+	 * Navigates back in the checkout pages.
+	 *
+	 * @return true if the web view went back, false if there's no page to go back to.
+	 */
+	@MainThread
+	public boolean goBack() {
+		if (webView != null && webView.canGoBack()) {
+			webView.goBack();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Finishes the checkout with {@link IPaySDK.CheckoutStatus#CANCELLED}.
+	 */
+	@MainThread
+	public void cancel() {
+		finishCheckout(IPaySDK.CheckoutStatus.CANCELLED, null);
+	}
+
+	/**
+	 * @return true if the result of the checkout has been delivered, otherwise false.
+	 */
+	public boolean isFinished() {
+		return checkoutFinished;
+	}
+
+	/**
+	 * @return the web view of the checkout, null if the checkout hasn't started or the controller
+	 * is destroyed.
+	 */
+	@Nullable
+	public WebView getWebView() {
+		return webView;
+	}
+
+	/**
+	 * Stops the checkout, destroys the web view and reports the {@link CheckoutLoadMetrics}. No
+	 * result is delivered after this call.
+	 */
+	@MainThread
+	public void destroy() {
+		stop();
+		destroyWebView();
+		reportMetrics();
+	}
+
+	/**
+	 * Stops the checkout like {@link #destroy()}, but hands the web view back instead of
+	 * destroying it, so a host running back to back checkouts can start the next one in it
+	 * through {@link #start(String, CheckoutCallbackActionUrls, WebView)}. The web view is
+	 * removed from the container and left on a blank page. Cookies and web storage are shared
+	 * by all web views of the app, clearing them is up to the host.
+	 *
+	 * @return the web view of the checkout, null if there's none.
+	 */
+	@MainThread
+	@Nullable
+	public WebView release() {
+		stop();
+		final WebView releasedWebView = webView;
+		if (releasedWebView != null) {
+			webView = null;
+			detachWebView(releasedWebView);
+			releasedWebView.loadUrl("about:blank");
+			releasedWebView.clearHistory();
+			releasedWebView.clearFormData();
+		}
+		reportMetrics();
+		return releasedWebView;
+	}
+
+	private void stop() {
+		checkoutFinished = true;
+		if (loadWatchdog != null) {
+			loadWatchdog.stop();
+		}
+		handler.removeCallbacks(retryLoadRunnable);
+		onPause();
+	}
+
+	private void reportMetrics() {
+		if (checkoutLoadMetrics != null) {
+			checkoutLoadMetrics.recordHeapAfter();
+			Logger.d(TAG, checkoutLoadMetrics.toString());
+			final CheckoutLoadMetrics.Listener metricsListener = IPaySDK.getCheckoutLoadMetricsListener();
+			if (metricsListener != null) {
+				metricsListener.onCheckoutLoadMetrics(checkoutLoadMetrics);
+			}
+			checkoutLoadMetrics = null;
+		}
+	}
+
+	/**
+	 * Releases the web view deterministically instead of leaving it, and the screen it
+	 * references, to the garbage collector.
+	 */
+	private void destroyWebView() {
+		if (webView == null) {
+			return;
+		}
+		detachWebView(webView);
+		if (webView.getContext() instanceof MutableContextWrapper) {
+			// A preloaded web view must not keep the hosting screen as its context.
+			((MutableContextWrapper) webView.getContext()).setBaseContext(context.getApplicationContext());
+		}
+		webView.destroy();
+		webView = null;
+	}
+
+	/**
+	 * Takes the web view out of the container and off the checkout clients.
+	 *
+	 * @param webView web view of the checkout
+	 */
+	private void detachWebView(@NonNull WebView webView) {
+		final ViewParent parent = webView.getParent();
+		if (parent instanceof ViewGroup) {
+			((ViewGroup) parent).removeView(webView);
+		}
+		webView.stopLoading();
+		if (resultBridge != null) {
+			resultBridge.detach();
+		}
+		webView.setWebChromeClient(null);
+		webView.setWebViewClient(new WebViewClient());
+	}
+
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	private void evaluatePerformanceTiming(WebView view) {
+		view.evaluateJavascript(CheckoutLoadMetrics.PERFORMANCE_TIMING_SCRIPT, new ValueCallback<String>() {
+			@Override
+			public void onReceiveValue(String value) {
+				if (checkoutLoadMetrics != null) {
+					checkoutLoadMetrics.onPerformanceTiming(value);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Finishes the checkout if the url is one of the checkout callback urls. The outcome is
+	 * known at this point, so the navigation to the merchant callback page and any other
+	 * in-flight load is cancelled instead of being rendered while the checkout finishes.
+	 *
+	 * @param url url the web view is navigating to
+	 * @return true if the url is a callback url, otherwise false.
+	 */
+	private boolean performCallbackUrlAction(String url) {
+		final int match = callbackUrlMatcher.match(url);
+		if (match != CallbackUrlMatcher.NO_MATCH && webView != null) {
+			webView.stopLoading();
+		}
+		switch (match) {
+			case CallbackUrlMatcher.SUCCESS:
+				finishCheckout(IPaySDK.CheckoutStatus.SUCCESS, null);
+				return true;
+			case CallbackUrlMatcher.FAILED:
+				finishCheckout(IPaySDK.CheckoutStatus.FAILED, null);
+				return true;
+			case CallbackUrlMatcher.CANCELLED:
+				finishCheckout(IPaySDK.CheckoutStatus.CANCELLED, null);
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void finishCheckout(@NonNull IPaySDK.CheckoutStatus checkoutStatus,
+	                            @Nullable String checkoutId) {
+		if (checkoutFinished) {
+			return;
+		}
+		checkoutFinished = true;
+		if (loadWatchdog != null) {
+			loadWatchdog.stop();
+		}
+		handler.removeCallbacks(retryLoadRunnable);
+		listener.onCheckoutFinished(checkoutStatus, checkoutId != null ? checkoutId
+				: getCheckoutId(checkoutUrl));
+	}
+
+	@Nullable
+	private static String getCheckoutId(@Nullable String checkoutUrl) {
+		if (checkoutUrl == null) {
+			return null;
+		}
+		final Uri uri = Uri.parse(checkoutUrl);
+		if (!uri.getPathSegments().isEmpty() && uri.getPathSegments().contains("checkout") && uri.getPathSegments().contains("pay")) {
+			return uri.getPathSegments().get(uri.getPathSegments().size() - 1);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebChromeClient;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import bd.com.ipay.sdk.SDKUtils;
+import bd.com.ipay.sdk.util.Logger;
+
+/**
+ * <p>
+ * Loads the iPay checkout page in an off-screen {@link WebView} before the checkout starts.
+ * The web checkout screen then attaches the already rendered web view instead of loading the
+ * page from scratch.
+ * </p>
+ * <p>
+ * A preloaded page lives for {@link #getTimeToLiveMillis()} and at most
+ * {@link #getMaxPreloadedPages()} pages are kept at a time, the oldest ones are destroyed to make
+ * room for the new ones. All methods must be called from the UI thread.
+ * </p>
+ * <p>
+ * The preloading is capped by the number of pages rather than by memory. The renderer memory of
+ * a web view lives out of the app's heap and can't be measured from the app, so every page is
+ * counted as one web view's worth of memory, and all of them are given back as soon as the
+ * system asks for memory.
+ * </p>
+ * <p>
+ * The page events of the preloaded page, like the page started and finished, are recorded until
+ * the page is taken, so the screen attaching it sees them as if it had loaded the page itself.
+ * </p>
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class WebCheckoutPreloader {
+	private static final Class<WebCheckoutPreloader> TAG = WebCheckoutPreloader.class;
+
+	/**
+	 * Default life time of a preloaded page.
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 2 * 60 * 1000;
+
+	/**
+	 * Default number of pages to keep preloaded at a time.
+	 */
+	public static final int DEFAULT_MAX_PRELOADED_PAGES = 1;
+
+	private static final Map<String, Entry> entries = new LinkedHashMap<>();
+	private static final Handler handler = new Handler(Looper.getMainLooper());
+	private static final Runnable evictExpiredRunnable = new Runnable() {
+		@Override
+		public void run() {
+			evictExpired();
+		}
+	};
+
+	private static final ComponentCallbacks2 componentCallbacks = new ComponentCallbacks2() {
+		@Override
+		public void onTrimMemory(int level) {
+			WebCheckoutPreloader.onTrimMemory(level);
+		}
+
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
+		}
+
+		@Override
+		public void onLowMemory() {
+			WebCheckoutPreloader.onTrimMemory(TRIM_MEMORY_COMPLETE);
+		}
+	};
+	private static boolean componentCallbacksRegistered;
+
+	private static long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+	private static int maxPreloadedPages = DEFAULT_MAX_PRELOADED_PAGES;
+
+	private WebCheckoutPreloader() {
+		// Prohibiting from creation of an instance
+	}
+
+	/**
+	 * Starts loading the checkout page off-screen. Does nothing if the page is already preloaded.
+	 *
+	 * @param context     An android context
+	 * @param checkoutUrl iPay checkout url
+	 */
+	@MainThread
+	public static void preload(@NonNull Context context, @NonNull String checkoutUrl) {
+		SDKUtils.notNull(context, "context");
+		SDKUtils.notNull(checkoutUrl, "checkoutUrl");
+		evictExpired();
+		if (entries.containsKey(checkoutUrl) || maxPreloadedPages <= 0) {
+			return;
+		}
+		while (entries.size() >= maxPreloadedPages) {
+			final Iterator<Entry> iterator = entries.values().iterator();
+			final Entry eldest = iterator.next();
+			iterator.remove();
+			Logger.d(TAG, "Evicting preloaded checkout " + eldest.checkoutUrl);
+			eldest.webView.destroy();
+		}
+
+		if (!componentCallbacksRegistered) {
+			context.getApplicationContext().registerComponentCallbacks(componentCallbacks);
+			componentCallbacksRegistered = true;
+		}
+
+		// The web view is created on the application context and moved to the activity context
+		// when it's attached, so it never leaks an activity.
+		final WebView webView = new WebView(new MutableContextWrapper(
+				context.getApplicationContext()));
+		WebCheckoutSettings.apply(webView);
+		final PreloadWebViewClient webViewClient = new PreloadWebViewClient(
+				WebAssetCache.getInstance(context), webView.getSettings().getUserAgentString(),
+				checkoutUrl);
+		webView.setWebViewClient(webViewClient);
+		webView.loadUrl(checkoutUrl);
+		entries.put(checkoutUrl, new Entry(checkoutUrl, webView, webViewClient,
+				SystemClock.elapsedRealtime()));
+		Logger.d(TAG, "Preloading checkout " + checkoutUrl);
+		scheduleEviction();
+	}
+
+	/**
+	 * Takes the preloaded web view of the checkout url and moves it to the given context. The
+	 * caller owns the returned web view and is responsible of destroying it.
+	 *
+	 * @param context     context of the screen the web view will be attached to
+	 * @param checkoutUrl iPay checkout url
+	 * @return the preloaded web view, or null if the page wasn't preloaded or has expired.
+	 */
+	@MainThread
+	@Nullable
+	public static WebView take(@NonNull Context context, @Nullable String checkoutUrl) {
+		final PreloadedPage preloadedPage = takePage(context, checkoutUrl);
+		return preloadedPage != null ? preloadedPage.getWebView() : null;
+	}
+
+	/**
+	 * Takes the preloaded page of the checkout url like {@link #take(Context, String)}, along with
+	 * the page events recorded while it was preloaded.
+	 *
+	 * @param context     context of the screen the web view will be attached to
+	 * @param checkoutUrl iPay checkout url
+	 * @return the preloaded page, or null if the page wasn't preloaded or has expired.
+	 */
+	@MainThread
+	@Nullable
+	static PreloadedPage takePage(@NonNull Context context, @Nullable String checkoutUrl) {
+		SDKUtils.notNull(context, "context");
+		evictExpired();
+		final Entry entry = entries.remove(checkoutUrl);
+		if (entry == null) {
+			return null;
+		}
+		((MutableContextWrapper) entry.webView.getContext()).setBaseContext(context);
+		Logger.d(TAG, "Attaching preloaded checkout " + checkoutUrl);
+		return new PreloadedPage(entry.webView, entry.webViewClient);
+	}
+
+	/**
+	 * Destroys every preloaded page.
+	 */
+	@MainThread
+	public static void evictAll() {
+		for (Entry entry : entries.values()) {
+			entry.webView.destroy();
+		}
+		entries.clear();
+		handler.removeCallbacks(evictExpiredRunnable);
+	}
+
+	/**
+	 * Destroys every preloaded page once the system runs low on memory or the app goes to the
+	 * background. A preloaded page only speeds the checkout up, its renderer memory is the first
+	 * to give back.
+	 *
+	 * @param level trim memory level, see {@link ComponentCallbacks2}
+	 */
+	@MainThread
+	public static void onTrimMemory(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW && !entries.isEmpty()) {
+			Logger.d(TAG, "Evicting preloaded checkouts on trim memory level " + level);
+			evictAll();
+		}
+	}
+
+	/**
+	 * @return number of pages currently preloaded.
+	 */
+	@MainThread
+	public static int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return life time of a preloaded page in milliseconds.
+	 */
+	public static long getTimeToLiveMillis() {
+		return timeToLiveMillis;
+	}
+
+	/**
+	 * @param timeToLiveMillis life time of a preloaded page in milliseconds.
+	 * @throws IllegalArgumentException if the param value is less than or equal to 0.
+	 */
+	@MainThread
+	public static void setTimeToLiveMillis(long timeToLiveMillis) {
+		if (timeToLiveMillis <= 0) {
+			throw new IllegalArgumentException("time to live must be greater than 0");
+		}
+		WebCheckoutPreloader.timeToLiveMillis = timeToLiveMillis;
+		evictExpired();
+	}
+
+	/**
+	 * @return maximum number of pages kept preloaded at a time.
+	 */
+	public static int getMaxPreloadedPages() {
+		return maxPreloadedPages;
+	}
+
+	/**
+	 * Every preloaded page holds a web view with its own renderer memory, so keep this value low.
+	 *
+	 * @param maxPreloadedPages maximum number of pages kept preloaded at a time, 0 disables the
+	 *                          preloading.
+	 * @throws IllegalArgumentException if the param value is less than 0.
+	 */
+	@MainThread
+	public static void setMaxPreloadedPages(int maxPreloadedPages) {
+		if (maxPreloadedPages < 0) {
+			throw new IllegalArgumentException("max preloaded pages must not be negative");
+		}
+		WebCheckoutPreloader.maxPreloadedPages = maxPreloadedPages;
+		while (entries.size() > maxPreloadedPages) {
+			final Iterator<Entry> iterator = entries.values().iterator();
+			iterator.next().webView.destroy();
+			iterator.remove();
+		}
+	}
+
+	private static void evictExpired() {
+		final long now = SystemClock.elapsedRealtime();
+		final Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			final Entry entry = iterator.next();
+			if (now - entry.createdAt >= timeToLiveMillis) {
+				Logger.d(TAG, "Preloaded checkout expired " + entry.checkoutUrl);
+				entry.webView.destroy();
+				iterator.remove();
+			}
+		}
+		scheduleEviction();
+	}
+
+	private static void scheduleEviction() {
+		handler.removeCallbacks(evictExpiredRunnable);
+		if (entries.isEmpty()) {
+			return;
+		}
+		final Entry eldest = entries.values().iterator().next();
+		final long delay = eldest.createdAt + timeToLiveMillis - SystemClock.elapsedRealtime();
+		handler.postDelayed(evictExpiredRunnable, Math.max(0, delay));
+	}
+
+	private static final class Entry {
+		@NonNull
+		final String checkoutUrl;
+		@NonNull
+		final WebView webView;
+		@NonNull
+		final PreloadWebViewClient webViewClient;
+		final long createdAt;
+
+		Entry(@NonNull String checkoutUrl, @NonNull WebView webView,
+		      @NonNull PreloadWebViewClient webViewClient, long createdAt) {
+			this.checkoutUrl = checkoutUrl;
+			this.webView = webView;
+			this.webViewClient = webViewClient;
+			this.createdAt = createdAt;
+		}
+	}
+
+	/**
+	 * A page event of the preloaded web view, delivered to the client of the screen once the page
+	 * is attached.
+	 */
+	private static final class PageEvent {
+		static final int PAGE_STARTED = 0;
+		static final int PAGE_COMMIT_VISIBLE = 1;
+		static final int PAGE_FINISHED = 2;
+		static final int RECEIVED_ERROR = 3;
+
+		final int type;
+		final String url;
+		final int errorCode;
+		final String description;
+
+		PageEvent(int type, String url, int errorCode, String description) {
+			this.type = type;
+			this.url = url;
+			this.errorCode = errorCode;
+			this.description = description;
+		}
+	}
+
+	/**
+	 * A preloaded web view taken for a checkout, with the page events it has seen so far.
+	 */
+	static final class PreloadedPage {
+		@NonNull
+		private final WebView webView;
+		@NonNull
+		private final PreloadWebViewClient preloadWebViewClient;
+
+		PreloadedPage(@NonNull WebView webView, @NonNull PreloadWebViewClient preloadWebViewClient) {
+			this.webView = webView;
+			this.preloadWebViewClient = preloadWebViewClient;
+		}
+
+		@NonNull
+		WebView getWebView() {
+			return webView;
+		}
+
+		/**
+		 * Delivers the page events recorded while the page was preloaded, in order, and the
+		 * current load progress. Must be called right after the clients are set on the web view,
+		 * before the following events arrive.
+		 *
+		 * @param webViewClient   client of the screen the page is attached to
+		 * @param webChromeClient chrome client of the screen, null for none
+		 */
+		@MainThread
+		void replayPageEvents(@NonNull WebViewClient webViewClient,
+		                      @Nullable WebChromeClient webChromeClient) {
+			for (PageEvent pageEvent : preloadWebViewClient.takePageEvents()) {
+				switch (pageEvent.type) {
+					case PageEvent.PAGE_STARTED:
+						webViewClient.onPageStarted(webView, pageEvent.url, null);
+						break;
+					case PageEvent.PAGE_COMMIT_VISIBLE:
+						if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+							webViewClient.onPageCommitVisible(webView, pageEvent.url);
+						}
+						break;
+					case PageEvent.PAGE_FINISHED:
+						webViewClient.onPageFinished(webView, pageEvent.url);
+						break;
+					case PageEvent.RECEIVED_ERROR:
+						//noinspection deprecation
+						webViewClient.onReceivedError(webView, pageEvent.errorCode,
+								pageEvent.description, pageEvent.url);
+						break;
+				}
+			}
+			if (webChromeClient != null && webView.getProgress() > 0) {
+				webChromeClient.onProgressChanged(webView, webView.getProgress());
+			}
+		}
+	}
+
+	/**
+	 * Serves the static assets from the cache and records the page events while the page is
+	 * preloaded. The checkout screen replaces this client when the web view is attached.
+	 */
+	private static final class PreloadWebViewClient extends WebViewClient {
+		@NonNull
+		private final WebAssetCache webAssetCache;
+		@Nullable
+		private final String userAgent;
+		@NonNull
+		private final String checkoutUrl;
+		@NonNull
+		private final List<PageEvent> pageEvents = new ArrayList<>();
+
+		PreloadWebViewClient(@NonNull WebAssetCache webAssetCache, @Nullable String userAgent,
+		                     @NonNull String checkoutUrl) {
+			this.webAssetCache = webAssetCache;
+			this.userAgent = userAgent;
+			this.checkoutUrl = checkoutUrl;
+		}
+
+		@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+		@Override
+		public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+			if ("GET".equalsIgnoreCase(request.getMethod())) {
+				return webAssetCache.intercept(request.getUrl().toString(),
+						request.getRequestHeaders(), userAgent, checkoutUrl);
+			} else {
+				return null;
+			}
+		}
+
+		@Override
+		public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+			return webAssetCache.intercept(url, null, userAgent, checkoutUrl);
+		}
+
+		@Override
+		public void onPageStarted(WebView view, String url, Bitmap favicon) {
+			pageEvents.add(new PageEvent(PageEvent.PAGE_STARTED, url, 0, null));
+		}
+
+		@Override
+		public void onPageCommitVisible(WebView view, String url) {
+			pageEvents.add(new PageEvent(PageEvent.PAGE_COMMIT_VISIBLE, url, 0, null));
+		}
+
+		@Override
+		public void onPageFinished(WebView view, String url) {
+			pageEvents.add(new PageEvent(PageEvent.PAGE_FINISHED, url, 0, null));
+		}
+
+		@Override
+		public void onReceivedError(WebView view, int errorCode, String description, String failingUrl) {
+			pageEvents.add(new PageEvent(PageEvent.RECEIVED_ERROR, failingUrl, errorCode, description));
+		}
+
+		@NonNull
+		List<PageEvent> takePageEvents() {
+			final List<PageEvent> takenPageEvents = new ArrayList<>(pageEvents);
+			pageEvents.clear();
+			return takenPageEvents;
+		}
+
+		@TargetApi(Build.VERSION_CODES.O)
+		@Override
+		public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+			// Nothing to recover for a page nobody has seen yet, it's dropped instead of
+			// letting the app die along with the renderer.
+			final Iterator<Entry> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				final Entry entry = iterator.next();
+				if (entry.webView == view) {
+					Logger.d(TAG, "Preloaded checkout renderer is gone " + entry.checkoutUrl);
+					iterator.remove();
+					break;
+				}
+			}
+			view.destroy();
+			scheduleEviction();
+			return true;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.SDKUtils;
+
+/**
+ * Applies the settings every web checkout {@link WebView} needs, whether it's created by the
+ * checkout screen or preloaded before the checkout starts.
+ *
+ * @author iPay Bangladesh Ltd.
+ * @since 1.0.6
+ */
+public final class WebCheckoutSettings {
+	private WebCheckoutSettings() {
+		// Prohibiting from creation of an instance
+	}
+
+	/**
+	 * @param webView web checkout web view
+	 * @return the layer type applied to the web view, see
+	 * {@link SDKUtils#getWebViewLayerType(IPaySDK.WebViewRenderingMode)}.
+	 */
+	@SuppressLint("SetJavaScriptEnabled")
+	public static int apply(@NonNull WebView webView) {
+		SDKUtils.notNull(webView, "webView");
+		final int layerType = SDKUtils.getWebViewLayerType(IPaySDK.getWebViewRenderingMode());
+		webView.setLayerType(layerType, null);
+		final WebSettings settings = webView.getSettings();
+		settings.setJavaScriptEnabled(true);
+		settings.setDomStorageEnabled(true);
+		settings.setDatabaseEnabled(true);
+		return layerType;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+import bd.com.ipay.sdk.util.CallbackUrlMatcher;
+import bd.com.ipay.sdk.util.CheckoutCallbackParser;
+import bd.com.ipay.sdk.util.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Upper bounds of the bytes allocated by the calls each checkout makes, measured with the
+ * allocation counter of {@link com.sun.management.ThreadMXBean}. A call is warmed up and then
+ * measured over many runs, so the few bytes of the counter itself average out.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AllocationBudgetTest {
+	private static final int WARMUP_CALLS = 20000;
+	private static final int MEASURED_CALLS = 20000;
+
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-AB12CD34EF";
+	private static final String CALLBACK_URL = "ipaymerchant123://IPAY-AB12CD34EF/success";
+	private static final CheckoutCallbackActionUrls CHECKOUT_CALLBACK_ACTION_URLS =
+			new CheckoutCallbackActionUrls("https://shop.com/ipay/success",
+					"https://shop.com/ipay/failed", "https://shop.com/ipay/cancelled");
+
+	private boolean debugLogEnabled;
+	private int sink;
+
+	@Before
+	public void setUp() {
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+	}
+
+	@After
+	public void tearDown() {
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testIsValidIPayCheckoutUrl() {
+		// The android.net.Uri of the url and its host.
+		assertAllocatesAtMost(1024, new Runnable() {
+			@Override
+			public void run() {
+				if (SDKUtils.isValidIPayCheckoutUrl(CHECKOUT_URL)) {
+					sink++;
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testCallbackParsing() {
+		assertEquals(IPaySDK.CheckoutStatus.SUCCESS,
+				IPaySDK.CheckoutStatus.getValue(CheckoutCallbackParser.getCheckoutStatus(CALLBACK_URL)));
+		// Only the checkout id and the status substrings.
+		assertAllocatesAtMost(256, new Runnable() {
+			@Override
+			public void run() {
+				sink += CheckoutCallbackParser.getCheckoutId(CALLBACK_URL).length();
+				sink += IPaySDK.CheckoutStatus.getValue(
+						CheckoutCallbackParser.getCheckoutStatus(CALLBACK_URL)).ordinal();
+			}
+		});
+	}
+
+	@Test
+	public void testDisabledLogger() {
+		IPaySDK.setDebugLogEnabled(false);
+		final Throwable throwable = new IllegalStateException();
+		assertAllocatesAtMost(0, new Runnable() {
+			@Override
+			public void run() {
+				sink += Logger.d(AllocationBudgetTest.class, "performCheckout");
+				sink += Logger.e(AllocationBudgetTest.class, "performCheckout", throwable);
+				sink += Logger.w(AllocationBudgetTest.class, throwable);
+				sink += Logger.i("AllocationBudgetTest", "performCheckout", throwable);
+			}
+		});
+	}
+
+	@Test
+	public void testLiteralCallbackUrlMatching() {
+		final CallbackUrlMatcher matcher = compile(CHECKOUT_CALLBACK_ACTION_URLS);
+		assertTrue(matcher.isLiteral());
+		assertAllocatesAtMost(0, new Runnable() {
+			@Override
+			public void run() {
+				sink += matcher.match("https://shop.com/ipay/failed?id=1");
+				sink += matcher.match(CHECKOUT_URL);
+			}
+		});
+	}
+
+	@Test
+	public void testRegexCallbackUrlMatching() {
+		final CallbackUrlMatcher matcher = compile(new CheckoutCallbackActionUrls(
+				"https://shop\\.com/(ipay|pay)/success.*", "https://shop\\.com/(ipay|pay)/failed.*",
+				"https://shop\\.com/(ipay|pay)/cancel(led)?.*"));
+		// The java.util.regex.Matcher of the url.
+		assertAllocatesAtMost(512, new Runnable() {
+			@Override
+			public void run() {
+				sink += matcher.match("https://shop.com/pay/failed?id=1");
+			}
+		});
+	}
+
+	private static CallbackUrlMatcher compile(CheckoutCallbackActionUrls checkoutCallbackActionUrls) {
+		return CallbackUrlMatcher.compile(checkoutCallbackActionUrls.getSuccessUrl(),
+				checkoutCallbackActionUrls.getFailedUrl(), checkoutCallbackActionUrls.getCancelledUrl());
+	}
+
+	private static void assertAllocatesAtMost(long budgetBytes, Runnable call) {
+		for (int i = 0; i < WARMUP_CALLS; i++) {
+			call.run();
+		}
+		final com.sun.management.ThreadMXBean threadMXBean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_CALLS; i++) {
+			call.run();
+		}
+		final long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		final long allocatedBytesPerCall = allocatedBytes / MEASURED_CALLS;
+		assertTrue(allocatedBytesPerCall + " bytes allocated per call, budget " + budgetBytes,
+				allocatedBytesPerCall <= budgetBytes);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Resources;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Context answering the callback url scheme and the App Link of strings.xml the way a merchant
+ * app does, as the SDK resources only hold the placeholder scheme. Lets the tests initialize the
+ * SDK, see {@link #initializeSdk()} and {@link #resetSdk()}.
+ */
+public class CallbackResourcesContext extends ContextWrapper {
+	private static final String CALLBACK_URL_SCHEME_NAME = "ipay_callback_url_scheme";
+	private static final String CALLBACK_APP_LINK_NAME = "ipay_callback_app_link";
+	private static final int CALLBACK_APP_LINK_ID = 0x7f0fffff;
+
+	private final Resources resources;
+
+	public CallbackResourcesContext(@NonNull Context base, @NonNull final String callbackUrlScheme,
+	                                @Nullable final String callbackAppLink) {
+		super(base);
+		final Resources baseResources = base.getResources();
+		final int callbackUrlSchemeId = baseResources.getIdentifier(CALLBACK_URL_SCHEME_NAME,
+				"string", base.getPackageName());
+		//noinspection deprecation
+		resources = new Resources(baseResources.getAssets(), baseResources.getDisplayMetrics(),
+				baseResources.getConfiguration()) {
+			@Override
+			public int getIdentifier(String name, String defType, String defPackage) {
+				if (CALLBACK_APP_LINK_NAME.equals(name)) {
+					return callbackAppLink != null ? CALLBACK_APP_LINK_ID : 0;
+				}
+				return super.getIdentifier(name, defType, defPackage);
+			}
+
+			@NonNull
+			@Override
+			public String getString(int id) {
+				if (id == callbackUrlSchemeId) {
+					return callbackUrlScheme;
+				} else if (id == CALLBACK_APP_LINK_ID && callbackAppLink != null) {
+					return callbackAppLink;
+				}
+				return super.getString(id);
+			}
+		};
+	}
+
+	@Override
+	public Resources getResources() {
+		return resources;
+	}
+
+	/**
+	 * Initializes the SDK with the callback urls of this context.
+	 */
+	public void initializeSdk() {
+		IPaySDK.initialize(this);
+	}
+
+	/**
+	 * Forgets the initialization of the SDK, which outlives the test otherwise.
+	 */
+	public static void resetSdk() {
+		IPaySDK.resetInitialization();
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowActivity;
+
+import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
+import bd.com.ipay.sdk.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class CheckoutProfileTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final String CALLBACK_URL_SCHEME = "ipaymerchantb";
+	private static final int REQUEST_CODE = 0xb;
+
+	private Activity activity;
+	private String callbackActivityName;
+	private boolean debugLogEnabled;
+
+	@Before
+	public void setUp() {
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+		final PackageManager packageManager = RuntimeEnvironment.application.getPackageManager();
+		final String packageName = RuntimeEnvironment.application.getPackageName();
+		callbackActivityName = packageName + ".MerchantBActivity";
+
+		// Robolectric finds any activity of the app, only the callback url scheme is declared.
+		final Intent callbackIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(CALLBACK_URL_SCHEME + "://"));
+		callbackIntent.setPackage(packageName);
+		final ResolveInfo resolveInfo = new ResolveInfo();
+		resolveInfo.activityInfo = new ActivityInfo();
+		resolveInfo.activityInfo.packageName = packageName;
+		resolveInfo.activityInfo.name = IPayCheckoutActivity.class.getName();
+		shadowOf(packageManager).addResolveInfoForIntent(callbackIntent, resolveInfo);
+
+		final PackageInfo iPayPackageInfo = new PackageInfo();
+		iPayPackageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(packageManager).addPackage(iPayPackageInfo);
+		activity = Robolectric.setupActivity(Activity.class);
+	}
+
+	@After
+	public void tearDown() {
+		IPaySDK.unregisterCheckoutProfile("merchant-b");
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testCheckoutWithProfile() {
+		final CheckoutProfile checkoutProfile = IPaySDK.registerCheckoutProfile(activity,
+				new CheckoutProfile.Builder("merchant-b")
+						.setCallbackUrlScheme(CALLBACK_URL_SCHEME)
+						.setCheckoutRequestCode(REQUEST_CODE)
+						.setCheckoutCallBackActivity(".MerchantBActivity"));
+		assertEquals(callbackActivityName, checkoutProfile.getCheckoutCallBackActivity());
+		assertSame(checkoutProfile, IPaySDK.getCheckoutProfile("merchant-b"));
+		assertSame(checkoutProfile, IPaySDK.getCheckoutProfileByCallbackUrlScheme(CALLBACK_URL_SCHEME));
+
+		assertEquals(IPaySDK.CheckoutState.PROCESSING,
+				IPaySDK.performCheckout(activity, CHECKOUT_URL, checkoutProfile, false, false));
+		final ShadowActivity.IntentForResult intentForResult =
+				shadowOf(activity).getNextStartedActivityForResult();
+		assertEquals(REQUEST_CODE, intentForResult.requestCode);
+
+		assertEquals(IPaySDK.CheckoutState.PROCESSING,
+				IPaySDK.performCheckout(activity, CHECKOUT_URL, checkoutProfile, false, true));
+		assertEquals(callbackActivityName,
+				IPayCheckoutActivity.getCheckoutCallBackActivity(shadowOf(activity).getNextStartedActivity()));
+		// The global configuration isn't touched.
+		assertNull(IPaySDK.getCheckoutCallBackActivity());
+		assertEquals(IPaySDK.CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND,
+				IPaySDK.performCheckout(activity, CHECKOUT_URL, false, true));
+	}
+
+	@Test
+	public void testCallbackOfProfile() {
+		IPaySDK.registerCheckoutProfile(activity, new CheckoutProfile.Builder("merchant-b")
+				.setCallbackUrlScheme(CALLBACK_URL_SCHEME)
+				.setCheckoutCallBackActivity(callbackActivityName));
+
+		final IPayCheckoutActivity checkoutActivity = Robolectric.buildActivity(IPayCheckoutActivity.class,
+				new Intent(Intent.ACTION_VIEW, Uri.parse(CALLBACK_URL_SCHEME + "://IPAY-1/success")))
+				.setup().get();
+		final Intent result = shadowOf(checkoutActivity).getNextStartedActivity();
+		assertEquals(callbackActivityName, result.getComponent().getClassName());
+		assertEquals(IPaySDK.CheckoutStatus.SUCCESS, result.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY));
+		assertEquals("IPAY-1", result.getStringExtra(IPaySDK.CHECKOUT_ID_KEY));
+	}
+
+	@Test
+	public void testInvalidProfiles() {
+		assertInvalid(new CheckoutProfile.Builder("merchant-b").setCallbackUrlScheme("merchantb"),
+				Constants.INVALID_PROFILE_URL_SCHEME_REASON);
+		assertInvalid(new CheckoutProfile.Builder("merchant-b").setCallbackUrlScheme("ipaymerchantc"),
+				Constants.PROFILE_URL_SCHEME_NOT_DECLARED_REASON);
+		assertNull(IPaySDK.getCheckoutProfile("merchant-b"));
+
+		IPaySDK.registerCheckoutProfile(activity, new CheckoutProfile.Builder("merchant-b")
+				.setCallbackUrlScheme(CALLBACK_URL_SCHEME));
+		assertInvalid(new CheckoutProfile.Builder("merchant-b"), Constants.PROFILE_ALREADY_REGISTERED_REASON);
+		assertInvalid(new CheckoutProfile.Builder("merchant-c").setCallbackUrlScheme(CALLBACK_URL_SCHEME),
+				Constants.PROFILE_ALREADY_REGISTERED_REASON);
+		try {
+			new CheckoutProfile.Builder("merchant-c").setCheckoutRequestCode(0);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private void assertInvalid(CheckoutProfile.Builder builder, String reason) {
+		try {
+			IPaySDK.registerCheckoutProfile(activity, builder);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(reason, e.getMessage());
+		}
+	}
+}
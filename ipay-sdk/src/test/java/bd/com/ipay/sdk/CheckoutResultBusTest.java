@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class CheckoutResultBusTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+
+	private final List<String> results = new ArrayList<>();
+	private final CheckoutResultBus.Observer observer = new CheckoutResultBus.Observer() {
+		@Override
+		public void onCheckoutResult(IPaySDK.CheckoutStatus checkoutStatus, String checkoutId) {
+			results.add(checkoutStatus + " " + checkoutId);
+		}
+	};
+	private boolean debugLogEnabled;
+
+	@Before
+	public void setUp() {
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+		// Done by IPaySDK.initialize at app start up.
+		CheckoutResultBus.registerActivityLifecycleCallbacks(RuntimeEnvironment.application);
+	}
+
+	@After
+	public void tearDown() {
+		CheckoutResultBus.unsubscribe(observer);
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testResultsAreBufferedUntilTheActivityIsStarted() {
+		assertFalse(CheckoutResultBus.post(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-0"));
+
+		final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create();
+		CheckoutResultBus.subscribe(controller.get(), observer);
+		CheckoutResultBus.onCheckoutStarted(controller.get());
+		assertTrue(CheckoutResultBus.post(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-1"));
+		assertTrue(CheckoutResultBus.post(IPaySDK.CheckoutStatus.FAILED, "IPAY-2"));
+		assertTrue(results.isEmpty());
+
+		controller.start();
+		assertEquals(2, results.size());
+		assertEquals("SUCCESS IPAY-1", results.get(0));
+		assertEquals("FAILED IPAY-2", results.get(1));
+
+		assertTrue(CheckoutResultBus.post(IPaySDK.CheckoutStatus.CANCELLED, "IPAY-3"));
+		assertEquals("CANCELLED IPAY-3", results.get(2));
+
+		// Destroying the activity ends the subscription.
+		controller.resume().pause().stop().destroy();
+		assertFalse(CheckoutResultBus.hasSubscriptions());
+		assertFalse(CheckoutResultBus.post(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-4"));
+	}
+
+	@Test
+	public void testBufferDropsTheOldestResult() {
+		final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create();
+		CheckoutResultBus.subscribe(controller.get(), observer);
+		CheckoutResultBus.onCheckoutStarted(controller.get());
+		for (int i = 0; i <= CheckoutResultBus.MAX_BUFFERED_RESULTS; i++) {
+			CheckoutResultBus.post(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-" + i);
+		}
+		controller.start();
+		assertEquals(CheckoutResultBus.MAX_BUFFERED_RESULTS, results.size());
+		assertEquals("SUCCESS IPAY-1", results.get(0));
+	}
+
+	@Test
+	public void testCallbackIsDeliveredWithoutAnActivityLaunch() {
+		final Activity activity = Robolectric.setupActivity(Activity.class);
+		CheckoutResultBus.subscribe(activity, observer);
+		CheckoutResultBus.onCheckoutStarted(activity);
+
+		final IPayCheckoutActivity checkoutActivity = Robolectric.buildActivity(IPayCheckoutActivity.class,
+				new Intent(Intent.ACTION_VIEW, Uri.parse("ipaymerchant://IPAY-1/success")))
+				.setup().get();
+		assertNull(shadowOf(checkoutActivity).getNextStartedActivity());
+		assertTrue(checkoutActivity.isFinishing());
+		assertEquals(1, results.size());
+		assertEquals("SUCCESS IPAY-1", results.get(0));
+	}
+
+	@Test
+	public void testResultOfAnotherActivityGoesToTheCallbackActivity() {
+		final Activity checkoutActivity = Robolectric.setupActivity(Activity.class);
+		CheckoutResultBus.onCheckoutStarted(checkoutActivity);
+		CheckoutResultBus.subscribe(Robolectric.setupActivity(OtherActivity.class), observer);
+
+		assertFalse(CheckoutResultBus.post(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-1"));
+		assertTrue(results.isEmpty());
+	}
+
+	@Test
+	public void testResultOfAFinishingActivityGoesToTheCallbackActivity() {
+		final Activity activity = Robolectric.setupActivity(Activity.class);
+		CheckoutResultBus.subscribe(activity, observer);
+		CheckoutResultBus.onCheckoutStarted(activity);
+		activity.finish();
+
+		assertFalse(CheckoutResultBus.post(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-1"));
+		assertTrue(results.isEmpty());
+	}
+
+	@Test
+	public void testBufferedResultsAreDeliveredToTheRecreatedActivity() {
+		final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).setup();
+		CheckoutResultBus.subscribe(controller.get(), observer);
+		CheckoutResultBus.onCheckoutStarted(controller.get());
+		controller.pause().stop();
+		assertTrue(CheckoutResultBus.post(IPaySDK.CheckoutStatus.SUCCESS, "IPAY-1"));
+
+		// A configuration change destroys the activity and subscribes its new instance.
+		controller.destroy();
+		final ActivityController<Activity> recreated = Robolectric.buildActivity(Activity.class).create();
+		CheckoutResultBus.subscribe(recreated.get(), observer);
+		assertTrue(results.isEmpty());
+		recreated.start();
+		assertEquals(1, results.size());
+		assertEquals("SUCCESS IPAY-1", results.get(0));
+	}
+
+	@Test
+	public void testCallbackActivityIsRequiredWithAnObserver() {
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		final Activity activity = Robolectric.setupActivity(Activity.class);
+		shadowOf(activity.getPackageManager()).addPackage(packageInfo);
+		CheckoutResultBus.subscribe(activity, observer);
+		final IPaySDKConfig originalConfig = IPaySDK.getConfig();
+		IPaySDK.setConfig(new IPaySDKConfig.Builder().setDebugLogEnabled(false).build());
+		try {
+			assertEquals(IPaySDK.CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND,
+					IPaySDK.performCheckout(activity, CHECKOUT_URL, false, true));
+			assertNull(shadowOf(activity).getNextStartedActivity());
+		} finally {
+			IPaySDK.setConfig(originalConfig);
+		}
+	}
+
+	public static class OtherActivity extends Activity {
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowActivity;
+
+import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
+import bd.com.ipay.sdk.activity.IPayWebCheckoutActivity;
+import bd.com.ipay.sdk.exception.IPaySDKException;
+import bd.com.ipay.sdk.exception.InvalidCheckoutUrlException;
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+import bd.com.ipay.sdk.util.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class IPaySDKCheckoutTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final CheckoutCallbackActionUrls CALLBACK_URLS = new CheckoutCallbackActionUrls(
+			"https://merchant.com/success", "https://merchant.com/failed", "https://merchant.com/cancelled");
+
+	private Activity activity;
+	private boolean debugLogEnabled;
+
+	@Before
+	public void setUp() {
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+		activity = Robolectric.setupActivity(Activity.class);
+	}
+
+	@After
+	public void tearDown() {
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testInvalidCheckoutUrl() {
+		assertEquals(IPaySDK.CheckoutState.INVALID_CHECKOUT_URL,
+				IPaySDK.performCheckout(activity, "https://www.google.com/checkout/pay/IPAY-1"));
+		assertEquals(IPaySDK.CheckoutState.INVALID_CHECKOUT_URL,
+				IPaySDK.performCheckoutWithFallback(activity, "https://www.google.com/checkout/pay/IPAY-1",
+						CALLBACK_URLS));
+		try {
+			IPaySDK.performCheckout(activity, "https://www.google.com/checkout/pay/IPAY-1", true);
+			fail();
+		} catch (InvalidCheckoutUrlException expected) {
+		}
+		assertNull(shadowOf(activity).getNextStartedActivity());
+	}
+
+	@Test
+	public void testIPayAppNotInstalled() {
+		try {
+			IPaySDK.performCheckout(activity, CHECKOUT_URL, true);
+			fail();
+		} catch (IPaySDKException e) {
+			assertEquals(Constants.NO_IPAY_APP_INSTALLED_REASON, e.getMessage());
+		}
+		assertNull(shadowOf(activity).getNextStartedActivity());
+
+		assertEquals(IPaySDK.CheckoutState.PROCESSING,
+				IPaySDK.performCheckoutWithFallback(activity, CHECKOUT_URL, CALLBACK_URLS));
+		final Intent intent = shadowOf(activity).getNextStartedActivity();
+		assertEquals(IPayWebCheckoutActivity.class.getName(), intent.getComponent().getClassName());
+		assertEquals(CHECKOUT_URL, intent.getStringExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY));
+	}
+
+	@Test
+	public void testIPayAppInstalled() {
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(activity.getPackageManager()).addPackage(packageInfo);
+
+		assertEquals(IPaySDK.CheckoutState.PROCESSING,
+				IPaySDK.performCheckoutWithFallback(activity, CHECKOUT_URL, CALLBACK_URLS));
+		final Intent intent = shadowOf(activity).getNextStartedActivity();
+		assertEquals(IPayCheckoutActivity.class.getName(), intent.getComponent().getClassName());
+		assertEquals(IPaySDK.CheckoutState.INVALID_CHECKOUT_CALLBACK_URLS,
+				IPaySDK.performCheckoutWithFallback(activity, CHECKOUT_URL,
+						new CheckoutCallbackActionUrls("", "", "")));
+	}
+
+	@Test
+	public void testIPayAppResultOfTheFallbackComesBackToTheActivity() {
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(activity.getPackageManager()).addPackage(packageInfo);
+
+		// Only the web fallback honours useCallbackActivity, no callback activity is needed.
+		assertEquals(IPaySDK.CheckoutState.PROCESSING,
+				IPaySDK.performCheckoutWithFallback(activity, CHECKOUT_URL, true, CALLBACK_URLS));
+		final ShadowActivity.IntentForResult intentForResult =
+				shadowOf(activity).getNextStartedActivityForResult();
+		assertEquals(IPayCheckoutActivity.class.getName(),
+				intentForResult.intent.getComponent().getClassName());
+		assertFalse(intentForResult.intent.getBooleanExtra(
+				IPayCheckoutActivity.CHECKOUT_COMPLETE_START_COMPONENT_KEY, false));
+	}
+
+	@Test
+	public void testInitializationKeepsTheFlagsMissingFromTheMetadata() throws PackageManager.NameNotFoundException {
+		final ApplicationInfo applicationInfo = activity.getPackageManager().getApplicationInfo(
+				activity.getPackageName(), PackageManager.GET_META_DATA);
+		final Bundle metaData = new Bundle();
+		metaData.putBoolean("bd.com.ipay.sdk.LogSdkEventsEnabled", false);
+		applicationInfo.metaData = metaData;
+		final IPaySDKConfig originalConfig = IPaySDK.getConfig();
+		IPaySDK.setConfig(new IPaySDKConfig.Builder().setDebugLogEnabled(false)
+				.setIPayServiceChannelEnabled(true).setWebCheckoutResultBridgeEnabled(true).build());
+		IPaySDK.resetInitialization();
+		try {
+			// Fails on the placeholder url scheme, so every checkout initializes again.
+			IPaySDK.initialize(activity.getApplicationContext());
+			IPaySDK.initialize(activity.getApplicationContext());
+			assertTrue(IPaySDK.getConfig().isIPayServiceChannelEnabled());
+			assertTrue(IPaySDK.getConfig().isWebCheckoutResultBridgeEnabled());
+		} finally {
+			applicationInfo.metaData = null;
+			IPaySDK.setConfig(originalConfig);
+		}
+	}
+
+	@Test
+	public void testCheckoutReadsTheConfigOfTheLazyInitialization() throws PackageManager.NameNotFoundException {
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(activity.getPackageManager()).addPackage(packageInfo);
+		final ApplicationInfo applicationInfo = activity.getPackageManager().getApplicationInfo(
+				activity.getPackageName(), PackageManager.GET_META_DATA);
+		final Bundle metaData = new Bundle();
+		metaData.putBoolean("bd.com.ipay.sdk.LogSdkEventsEnabled", false);
+		metaData.putInt("bd.com.ipay.sdk.CallbackRequestCode", 4321);
+		applicationInfo.metaData = metaData;
+		final IPaySDKConfig originalConfig = IPaySDK.getConfig();
+		IPaySDK.setConfig(new IPaySDKConfig.Builder().setDebugLogEnabled(false).build());
+		IPaySDK.resetInitialization();
+		try {
+			assertEquals(IPaySDK.CheckoutState.PROCESSING, IPaySDK.performCheckout(activity, CHECKOUT_URL));
+			assertEquals(4321, shadowOf(activity).getNextStartedActivityForResult().requestCode);
+		} finally {
+			applicationInfo.metaData = null;
+			IPaySDK.setConfig(originalConfig);
+		}
+	}
+
+	@Test
+	public void testCheckoutThroughResultStarter() {
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(activity.getPackageManager()).addPackage(packageInfo);
+		final List<Intent> startedIntents = new ArrayList<>();
+		final List<Integer> requestCodes = new ArrayList<>();
+		final IPaySDK.ActivityResultStarter resultStarter = new IPaySDK.ActivityResultStarter() {
+			@Override
+			public void startActivityForResult(@NonNull Intent intent, int requestCode) {
+				startedIntents.add(intent);
+				requestCodes.add(requestCode);
+			}
+		};
+
+		assertEquals(IPaySDK.CheckoutState.PROCESSING,
+				IPaySDK.performCheckout(activity, CHECKOUT_URL, false, resultStarter));
+		assertNull(shadowOf(activity).getNextStartedActivityForResult());
+		assertEquals(1, startedIntents.size());
+		assertEquals(IPayCheckoutActivity.class.getName(),
+				startedIntents.get(0).getComponent().getClassName());
+		assertEquals(Integer.valueOf(IPaySDK.getCheckoutRequestCode()), requestCodes.get(0));
+		assertEquals(IPaySDK.CheckoutState.UNABLE_TO_PROCESS,
+				IPaySDK.performCheckout(activity, CHECKOUT_URL, false, null));
+	}
+}
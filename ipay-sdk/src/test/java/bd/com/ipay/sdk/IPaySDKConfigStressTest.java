@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Stress test of the configuration of {@link IPaySDK}, in the manner of jcstress: actor threads
+ * run {@link IPaySDK#initialize(android.content.Context)}, the setters and
+ * {@link IPaySDK#performCheckout} concurrently while observer threads classify every
+ * configuration they read. A snapshot of {@link IPaySDK#getConfig()} must never be torn, and
+ * applying the metadata must never lose a value set meanwhile.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IPaySDKConfigStressTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final int METADATA_REQUEST_CODE = 4321;
+	private static final int ROUNDS = 2000;
+	private static final int OBSERVERS = 2;
+
+	private IPaySDKConfig defaultConfig;
+	private IPaySDKConfig originalConfig;
+	private Activity activity;
+
+	private final AtomicBoolean running = new AtomicBoolean(true);
+	private final AtomicReference<String> failure = new AtomicReference<>();
+	private final AtomicLong observations = new AtomicLong();
+
+	@Before
+	public void setUp() throws PackageManager.NameNotFoundException {
+		originalConfig = IPaySDK.getConfig();
+		// Equal timeouts, so a torn configuration can be told from a published one.
+		defaultConfig = new IPaySDKConfig.Builder().setDebugLogEnabled(false)
+				.setWebCheckoutTimeouts(0, 0, 0).build();
+		IPaySDK.setConfig(defaultConfig);
+
+		final PackageManager packageManager = RuntimeEnvironment.application.getPackageManager();
+		final ApplicationInfo applicationInfo = packageManager.getApplicationInfo(
+				RuntimeEnvironment.application.getPackageName(), PackageManager.GET_META_DATA);
+		final Bundle metaData = new Bundle();
+		metaData.putBoolean("bd.com.ipay.sdk.LogSdkEventsEnabled", false);
+		metaData.putInt("bd.com.ipay.sdk.CallbackRequestCode", METADATA_REQUEST_CODE);
+		metaData.putString("bd.com.ipay.sdk.WebViewRenderingMode", "software");
+		metaData.putBoolean("bd.com.ipay.sdk.WebCheckoutResultBridgeEnabled", true);
+		metaData.putBoolean("bd.com.ipay.sdk.IPayServiceChannelEnabled", true);
+		applicationInfo.metaData = metaData;
+
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(packageManager).addPackage(packageInfo);
+		activity = Robolectric.setupActivity(Activity.class);
+	}
+
+	@After
+	public void tearDown() {
+		IPaySDK.setConfig(originalConfig);
+	}
+
+	@Test
+	public void testInitializeIsPublishedAtOnce() throws InterruptedException {
+		// The placeholder callback url scheme keeps the SDK uninitialized, so every initialize
+		// applies the metadata again.
+		IPaySDK.initialize(RuntimeEnvironment.application);
+		assertEquals(METADATA_REQUEST_CODE, IPaySDK.getCheckoutRequestCode());
+		assertTrue(!IPaySDK.isInitialized());
+
+		final List<Thread> threads = new ArrayList<>();
+		final CountDownLatch actorsDone = new CountDownLatch(3);
+		threads.add(actor("initializer", actorsDone, new Runnable() {
+			@Override
+			public void run() {
+				IPaySDK.setConfig(defaultConfig);
+				IPaySDK.initialize(RuntimeEnvironment.application);
+			}
+		}));
+		threads.add(actor("setter", actorsDone, new Runnable() {
+			private long round;
+
+			@Override
+			public void run() {
+				round++;
+				IPaySDK.setWebCheckoutTimeouts(round, round, round);
+				IPaySDK.setWebCheckoutLoadRetries((int) round);
+			}
+		}));
+		threads.add(actor("checkout", actorsDone, new Runnable() {
+			@Override
+			public void run() {
+				// No callback activity is ever configured.
+				final IPaySDK.CheckoutState checkoutState = IPaySDK.performCheckout(activity,
+						CHECKOUT_URL, false, true);
+				if (checkoutState != IPaySDK.CheckoutState.CHECKOUT_COMPLETE_ACTIVITY_NOT_FOUND) {
+					failure.compareAndSet(null, "performCheckout " + checkoutState);
+				}
+			}
+		}));
+		for (int i = 0; i < OBSERVERS; i++) {
+			threads.add(observer());
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		actorsDone.await();
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertNull(failure.get(), failure.get());
+		assertTrue(observations.get() > 0);
+	}
+
+	@Test
+	public void testInitializeLosesNoSetterUpdate() throws InterruptedException {
+		IPaySDK.setWebCheckoutLoadRetries(0);
+		final AtomicInteger loadRetries = new AtomicInteger();
+		final CountDownLatch actorsDone = new CountDownLatch(1);
+		final Thread initializer = actor("initializer", actorsDone, new Runnable() {
+			@Override
+			public void run() {
+				IPaySDK.initialize(RuntimeEnvironment.application);
+			}
+		});
+		// Sets the retries for as long as the metadata is applied. Only this thread sets them, so
+		// they must stay what it has set last.
+		final Thread setter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running.get() && failure.get() == null) {
+					checkLoadRetries(loadRetries.get());
+					IPaySDK.setWebCheckoutLoadRetries(loadRetries.incrementAndGet());
+					checkLoadRetries(loadRetries.get());
+				}
+			}
+		}, "setter");
+		initializer.start();
+		setter.start();
+		actorsDone.await();
+		running.set(false);
+		initializer.join();
+		setter.join();
+
+		assertNull(failure.get(), failure.get());
+		assertEquals(METADATA_REQUEST_CODE, IPaySDK.getCheckoutRequestCode());
+		assertEquals(loadRetries.get(), IPaySDK.getConfig().getWebCheckoutLoadRetries());
+	}
+
+	private void checkLoadRetries(int expectedLoadRetries) {
+		final int loadRetries = IPaySDK.getConfig().getWebCheckoutLoadRetries();
+		if (loadRetries != expectedLoadRetries) {
+			failure.compareAndSet(null, "lost update, " + loadRetries + " retries instead of "
+					+ expectedLoadRetries);
+		}
+	}
+
+	private Thread actor(String name, final CountDownLatch done, final Runnable action) {
+		return new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < ROUNDS && failure.get() == null; i++) {
+						action.run();
+					}
+				} catch (Throwable tr) {
+					failure.compareAndSet(null, tr.toString());
+				} finally {
+					done.countDown();
+				}
+			}
+		}, name);
+	}
+
+	private Thread observer() {
+		return new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (running.get() && failure.get() == null) {
+					observe(IPaySDK.getConfig());
+				}
+			}
+		}, "observer");
+	}
+
+	private void observe(IPaySDKConfig config) {
+		observations.incrementAndGet();
+		if (config.getWebCheckoutFirstByteTimeoutMillis() != config.getWebCheckoutPageFinishedTimeoutMillis()
+				|| config.getWebCheckoutFirstByteTimeoutMillis() != config.getWebCheckoutSessionTimeoutMillis()) {
+			failure.compareAndSet(null, "torn timeouts " + config);
+		}
+		// Either none or all of the metadata values.
+		final boolean metadata = config.getCheckoutRequestCode() == METADATA_REQUEST_CODE;
+		if ((config.getWebViewRenderingMode() == IPaySDK.WebViewRenderingMode.SOFTWARE) != metadata
+				|| config.isWebCheckoutResultBridgeEnabled() != metadata
+				|| config.isIPayServiceChannelEnabled() != metadata) {
+			failure.compareAndSet(null, "torn metadata " + config);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowActivity;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class PendingCheckoutTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final CheckoutCallbackActionUrls CALLBACK_URLS = new CheckoutCallbackActionUrls(
+			"https://merchant.com/success", "https://merchant.com/failed", "https://merchant.com/cancelled");
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	private Activity activity;
+	private boolean debugLogEnabled;
+
+	@Before
+	public void setUp() {
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+		activity = Robolectric.setupActivity(Activity.class);
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(activity.getPackageManager()).addPackage(packageInfo);
+	}
+
+	@After
+	public void tearDown() {
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testCheckoutFromBackgroundThread() throws Exception {
+		final PendingCheckout pendingCheckout = performCheckoutAsyncInBackground(CHECKOUT_URL);
+		final AtomicReference<IPaySDK.CheckoutState> listenerState = new AtomicReference<>();
+		pendingCheckout.setListener(new PendingCheckout.Listener() {
+			@Override
+			public void onCheckoutStateResolved(IPaySDK.CheckoutState checkoutState) {
+				assertTrue(Looper.myLooper() == Looper.getMainLooper());
+				listenerState.set(checkoutState);
+			}
+		});
+		// Only the start is left for the main thread.
+		assertFalse(pendingCheckout.isDone());
+		assertNull(shadowOf(activity).getNextStartedActivity());
+
+		ShadowLooper.idleMainLooper();
+		assertEquals(IPaySDK.CheckoutState.PROCESSING, pendingCheckout.get());
+		assertEquals(IPaySDK.CheckoutState.PROCESSING, listenerState.get());
+		final ShadowActivity.IntentForResult intentForResult =
+				shadowOf(activity).getNextStartedActivityForResult();
+		assertEquals(IPayCheckoutActivity.class.getName(),
+				intentForResult.intent.getComponent().getClassName());
+		assertEquals(IPaySDK.getCheckoutRequestCode(), intentForResult.requestCode);
+	}
+
+	@Test
+	public void testCheckoutFromMainThread() throws Exception {
+		final IPaySDK.CheckoutState checkoutState = awaitOnMainThread(
+				IPaySDK.performCheckoutWithFallbackAsync(activity, CHECKOUT_URL, false, CALLBACK_URLS));
+		assertEquals(IPaySDK.CheckoutState.PROCESSING, checkoutState);
+		final Intent intent = shadowOf(activity).getNextStartedActivity();
+		assertEquals(IPayCheckoutActivity.class.getName(), intent.getComponent().getClassName());
+		assertEquals(CHECKOUT_URL, intent.getStringExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY));
+
+		final PendingCheckout pendingCheckout = IPaySDK.performCheckoutAsync(activity, CHECKOUT_URL, false);
+		try {
+			pendingCheckout.get();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		awaitOnMainThread(pendingCheckout);
+	}
+
+	@Test
+	public void testInvalidCheckoutUrl() throws Exception {
+		final PendingCheckout pendingCheckout =
+				performCheckoutAsyncInBackground("https://www.google.com/checkout/pay/IPAY-1");
+		assertTrue(pendingCheckout.isDone());
+		assertEquals(IPaySDK.CheckoutState.INVALID_CHECKOUT_URL, pendingCheckout.get());
+		ShadowLooper.idleMainLooper();
+		assertNull(shadowOf(activity).getNextStartedActivity());
+	}
+
+	@Test
+	public void testListenerSetAfterResolveIsCalledOnce() throws Exception {
+		final PendingCheckout pendingCheckout =
+				performCheckoutAsyncInBackground("https://www.google.com/checkout/pay/IPAY-1");
+		assertTrue(pendingCheckout.isDone());
+		// Both the resolution and the listener have posted a call, neither has run yet.
+		final AtomicInteger calls = new AtomicInteger();
+		final PendingCheckout.Listener listener = new PendingCheckout.Listener() {
+			@Override
+			public void onCheckoutStateResolved(IPaySDK.CheckoutState checkoutState) {
+				assertEquals(IPaySDK.CheckoutState.INVALID_CHECKOUT_URL, checkoutState);
+				calls.incrementAndGet();
+			}
+		};
+		pendingCheckout.setListener(listener);
+		pendingCheckout.setListener(listener);
+		ShadowLooper.idleMainLooper();
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final PendingCheckout pendingCheckout = performCheckoutAsyncInBackground(CHECKOUT_URL);
+		assertTrue(pendingCheckout.cancel(false));
+		ShadowLooper.idleMainLooper();
+		assertTrue(pendingCheckout.isCancelled());
+		assertNull(shadowOf(activity).getNextStartedActivity());
+		try {
+			pendingCheckout.get();
+			fail();
+		} catch (CancellationException expected) {
+		}
+		assertFalse(pendingCheckout.cancel(false));
+	}
+
+	private PendingCheckout performCheckoutAsyncInBackground(final String checkoutUrl)
+			throws InterruptedException {
+		final AtomicReference<PendingCheckout> pendingCheckout = new AtomicReference<>();
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				pendingCheckout.set(IPaySDK.performCheckoutAsync(activity, checkoutUrl, false));
+			}
+		});
+		thread.start();
+		thread.join(TIMEOUT_MILLIS);
+		return pendingCheckout.get();
+	}
+
+	/**
+	 * Runs the main looper until the checkout, prepared on the checkout executor, is done.
+	 */
+	private static IPaySDK.CheckoutState awaitOnMainThread(PendingCheckout pendingCheckout)
+			throws Exception {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!pendingCheckout.isDone()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("The checkout hasn't been started in time");
+			}
+			Thread.sleep(10);
+			ShadowLooper.idleMainLooper();
+		}
+		return pendingCheckout.get();
+	}
+}
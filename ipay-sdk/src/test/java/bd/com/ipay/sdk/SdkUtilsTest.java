@@ -15,11 +15,19 @@
  */
 package bd.com.ipay.sdk;
 
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ResolveInfo;
+import android.net.Uri;
+import android.view.View;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
+import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
 import bd.com.ipay.sdk.exception.IPaySDKException;
 import bd.com.ipay.sdk.exception.IPaySDKInitializeException;
 import bd.com.ipay.sdk.util.Constants;
@@ -28,6 +36,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
 
 @RunWith(RobolectricTestRunner.class)
 public class SdkUtilsTest {
@@ -94,9 +103,55 @@ public class SdkUtilsTest {
 		assertFalse(SDKUtils.isValidUrlSchemeAdded(RuntimeEnvironment.application, false));
 	}
 
+	@Test
+	public void testIsValidUrlSchemeAddedChecksTheAppLink() {
+		final Context application = RuntimeEnvironment.application;
+		assertTrue(SDKUtils.isValidUrlSchemeAdded(
+				new CallbackResourcesContext(application, "ipaytest", null), false));
+		assertInvalidAppLink(new CallbackResourcesContext(application, "ipaytest",
+				"http://merchant.com/ipay"), Constants.INVALID_APP_LINK_ADDED_REASON);
+		assertInvalidAppLink(new CallbackResourcesContext(application, "ipaytest",
+				"https:///ipay"), Constants.INVALID_APP_LINK_ADDED_REASON);
+		assertInvalidAppLink(new CallbackResourcesContext(application, "ipaytest",
+				"https://merchant.com/ipay"), Constants.APP_LINK_NOT_DECLARED_REASON);
+
+		// Declared on IPayCheckoutActivity, like the intent filter of the App Link does.
+		final ResolveInfo resolveInfo = new ResolveInfo();
+		resolveInfo.activityInfo = new ActivityInfo();
+		resolveInfo.activityInfo.packageName = application.getPackageName();
+		resolveInfo.activityInfo.name = IPayCheckoutActivity.class.getName();
+		shadowOf(application.getPackageManager()).addResolveInfoForIntent(
+				new Intent(Intent.ACTION_VIEW, Uri.parse("https://merchant.com/ipay/IPAY-0/success"))
+						.setPackage(application.getPackageName()), resolveInfo);
+		assertTrue(SDKUtils.isValidUrlSchemeAdded(new CallbackResourcesContext(application, "ipaytest",
+				"https://merchant.com/ipay"), false));
+		assertTrue(SDKUtils.isValidUrlSchemeAdded(new CallbackResourcesContext(application, "ipaytest",
+				"https://merchant.com/ipay/"), false));
+	}
+
+	private static void assertInvalidAppLink(Context context, String reason) {
+		assertFalse(SDKUtils.isValidUrlSchemeAdded(context, false));
+		try {
+			SDKUtils.isValidUrlSchemeAdded(context, true);
+			fail();
+		} catch (IPaySDKException e) {
+			assertEquals(reason, e.getMessage());
+		}
+	}
+
 	@Test
 	public void testHasIPayCheckoutActivityMethod() {
 		assertTrue(SDKUtils.hasIPayCheckoutActivity(RuntimeEnvironment.application, false));
 	}
 
+	@Test
+	public void testGetWebViewLayerTypeMethod() {
+		assertEquals(View.LAYER_TYPE_HARDWARE,
+				SDKUtils.getWebViewLayerType(IPaySDK.WebViewRenderingMode.HARDWARE));
+		assertEquals(View.LAYER_TYPE_SOFTWARE,
+				SDKUtils.getWebViewLayerType(IPaySDK.WebViewRenderingMode.SOFTWARE));
+		assertEquals(View.LAYER_TYPE_NONE,
+				SDKUtils.getWebViewLayerType(IPaySDK.WebViewRenderingMode.AUTO));
+	}
+
 }
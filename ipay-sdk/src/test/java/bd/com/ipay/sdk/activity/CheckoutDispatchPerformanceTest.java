@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.activity;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import bd.com.ipay.sdk.CallbackResourcesContext;
+import bd.com.ipay.sdk.IPaySDK;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Measures a whole checkout dispatch through a fake iPay app: {@link IPaySDK#performCheckout}, the
+ * launch of {@link IPayCheckoutActivity}, the deep link the iPay app calls back with and the
+ * result. The allocations and the package manager calls of a checkout must stay within their
+ * budgets. The allocation budget is generous for Robolectric, it catches regressions of an order
+ * of magnitude, not of a few percent. The median wall time of a checkout is measured and
+ * reported in the assertion messages, but has no budget, it depends too much on the machine
+ * the tests run on.
+ * <p>
+ * The SDK is initialized up front with a valid callback url scheme, as a merchant app is, so
+ * the only package manager call left to a checkout is the install check of iPay app.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = CountingPackageManager.class)
+public class CheckoutDispatchPerformanceTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final String CALLBACK_URL = "ipaytest://IPAY-1/success";
+	private static final int WARMUP_CHECKOUTS = 20;
+	private static final int MEASURED_CHECKOUTS = 50;
+
+	private static final long ALLOCATION_BUDGET_BYTES = 24 * 1024 * 1024;
+	private static final int PACKAGE_MANAGER_CALL_BUDGET = 1;
+
+	private Activity activity;
+	private boolean debugLogEnabled;
+
+	@Before
+	public void setUp() {
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+		final PackageInfo packageInfo = new PackageInfo();
+		packageInfo.packageName = IPaySDK.IPAY_APP_PACKAGE_NAME;
+		shadowOf(Robolectric.setupActivity(Activity.class).getPackageManager()).addPackage(packageInfo);
+		activity = Robolectric.setupActivity(Activity.class);
+		new CallbackResourcesContext(RuntimeEnvironment.application, "ipaytest", null).initializeSdk();
+		assertTrue(IPaySDK.isInitialized());
+	}
+
+	@After
+	public void tearDown() {
+		CallbackResourcesContext.resetSdk();
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testCheckoutDispatchStaysWithinBudget() {
+		for (int i = 0; i < WARMUP_CHECKOUTS; i++) {
+			checkout();
+		}
+
+		final com.sun.management.ThreadMXBean threadMXBean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final long[] wallTimeNanos = new long[MEASURED_CHECKOUTS];
+		long allocatedBytes = 0;
+		int packageManagerCalls = 0;
+		for (int i = 0; i < MEASURED_CHECKOUTS; i++) {
+			CountingPackageManager.resetCalls();
+			final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+			final long start = System.nanoTime();
+			checkout();
+			wallTimeNanos[i] = System.nanoTime() - start;
+			allocatedBytes += threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+			packageManagerCalls = Math.max(packageManagerCalls, CountingPackageManager.getCalls());
+		}
+		Arrays.sort(wallTimeNanos);
+		final long medianWallTimeMicros = wallTimeNanos[MEASURED_CHECKOUTS / 2] / 1000;
+		final long allocatedBytesPerCheckout = allocatedBytes / MEASURED_CHECKOUTS;
+		final String measurements = "median wall time " + medianWallTimeMicros + " us, allocated "
+				+ allocatedBytesPerCheckout + " bytes, " + packageManagerCalls
+				+ " package manager calls";
+		assertTrue(measurements, allocatedBytesPerCheckout <= ALLOCATION_BUDGET_BYTES);
+		assertTrue(measurements, packageManagerCalls <= PACKAGE_MANAGER_CALL_BUDGET);
+	}
+
+	private void checkout() {
+		assertEquals(IPaySDK.CheckoutState.PROCESSING, IPaySDK.performCheckout(activity, CHECKOUT_URL));
+		final Intent checkoutIntent = shadowOf(activity).getNextStartedActivityForResult().intent;
+		final ActivityController<IPayCheckoutActivity> controller =
+				Robolectric.buildActivity(IPayCheckoutActivity.class, checkoutIntent).setup();
+		final Intent iPayIntent = shadowOf(controller.get()).getNextStartedActivity();
+		assertEquals(IPaySDK.IPAY_APP_PACKAGE_NAME, iPayIntent.getPackage());
+
+		controller.newIntent(new Intent(Intent.ACTION_VIEW, Uri.parse(CALLBACK_URL)));
+		assertTrue(controller.get().isFinishing());
+		final Intent result = shadowOf(controller.get()).getResultIntent();
+		assertEquals(IPaySDK.CheckoutStatus.SUCCESS, result.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY));
+		assertEquals("IPAY-1", result.getStringExtra(IPaySDK.CHECKOUT_ID_KEY));
+		controller.pause().stop().destroy();
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.activity;
+
+import android.app.ApplicationPackageManager;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowApplicationPackageManager;
+
+import java.util.List;
+
+/**
+ * Package manager shadow counting the calls the SDK makes, to keep the IPC to the system server
+ * of a checkout in check. The calls Robolectric makes itself, and the nested calls of the shadow,
+ * aren't counted.
+ */
+@Implements(value = ApplicationPackageManager.class, isInAndroidSdk = false, looseSignatures = true)
+public class CountingPackageManager extends ShadowApplicationPackageManager {
+	private static int calls;
+	private static int depth;
+
+	public static void resetCalls() {
+		calls = 0;
+	}
+
+	public static int getCalls() {
+		return calls;
+	}
+
+	private static void enter() {
+		if (depth++ == 0 && isCalledBySdk()) {
+			calls++;
+		}
+	}
+
+	private static void exit() {
+		depth--;
+	}
+
+	private static boolean isCalledBySdk() {
+		for (StackTraceElement element : new Throwable().getStackTrace()) {
+			final String className = element.getClassName();
+			if (className.startsWith("bd.com.ipay.sdk.") && !className.endsWith("Test")
+					&& !className.equals(CountingPackageManager.class.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Implementation
+	@Override
+	protected PackageInfo getPackageInfo(String packageName, int flags)
+			throws PackageManager.NameNotFoundException {
+		enter();
+		try {
+			return super.getPackageInfo(packageName, flags);
+		} finally {
+			exit();
+		}
+	}
+
+	@Implementation
+	@Override
+	protected ApplicationInfo getApplicationInfo(String packageName, int flags)
+			throws PackageManager.NameNotFoundException {
+		enter();
+		try {
+			return super.getApplicationInfo(packageName, flags);
+		} finally {
+			exit();
+		}
+	}
+
+	@Implementation
+	@Override
+	protected ActivityInfo getActivityInfo(ComponentName component, int flags)
+			throws PackageManager.NameNotFoundException {
+		enter();
+		try {
+			return super.getActivityInfo(component, flags);
+		} finally {
+			exit();
+		}
+	}
+
+	@Implementation
+	@Override
+	protected ResolveInfo resolveActivity(Intent intent, int flags) {
+		enter();
+		try {
+			return super.resolveActivity(intent, flags);
+		} finally {
+			exit();
+		}
+	}
+
+	@Implementation
+	@Override
+	protected List<ResolveInfo> queryIntentActivities(Intent intent, int flags) {
+		enter();
+		try {
+			return super.queryIntentActivities(intent, flags);
+		} finally {
+			exit();
+		}
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.activity;
+
+import android.content.ComponentCallbacks2;
+import android.content.Intent;
+import android.net.Uri;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Collections;
+import java.util.Map;
+
+import bd.com.ipay.R;
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+import bd.com.ipay.sdk.web.CheckoutLoadMetrics;
+import bd.com.ipay.sdk.web.WebCheckoutController;
+import bd.com.ipay.sdk.web.WebCheckoutPreloader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class IPayWebCheckoutActivityTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final String OTHER_CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-2";
+
+	private boolean debugLogEnabled;
+
+	@Before
+	public void setUp() {
+		// The frame time monitor of the debug log keeps posting frames to the paused looper.
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+	}
+
+	@After
+	public void tearDown() {
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+		IPaySDK.setCheckoutLoadMetricsListener(null);
+		IPaySDK.setWebCheckoutTimeouts(IPaySDK.DEFAULT_WEB_CHECKOUT_FIRST_BYTE_TIMEOUT_MILLIS,
+				IPaySDK.DEFAULT_WEB_CHECKOUT_PAGE_FINISHED_TIMEOUT_MILLIS,
+				IPaySDK.DEFAULT_WEB_CHECKOUT_SESSION_TIMEOUT_MILLIS);
+		WebCheckoutPreloader.evictAll();
+	}
+
+	@Test
+	public void testWebViewIsDestroyedWithTheActivity() {
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		final FrameLayout container = controller.get().findViewById(R.id.web_view_container);
+		final WebView webView = (WebView) container.getChildAt(0);
+		assertNotNull(webView);
+
+		finishCheckout(controller);
+		assertEquals(0, container.getChildCount());
+		assertTrue(shadowOf(webView).wasDestroyCalled());
+	}
+
+	@Test
+	public void testWebViewIsNotLeakedAfterDestroy() {
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		final FrameLayout container = controller.get().findViewById(R.id.web_view_container);
+		final WebCheckoutController webCheckoutController = controller.get().getWebCheckoutController();
+		final WebView webView = webCheckoutController.getWebView();
+		assertNotNull(webView);
+		assertSame(container, webView.getParent());
+		finishCheckout(controller);
+
+		assertNull(webView.getParent());
+		assertEquals(0, container.getChildCount());
+		assertTrue(shadowOf(webView).wasDestroyCalled());
+		assertNull(webCheckoutController.getWebView());
+	}
+
+	@Test
+	public void testHeapIsReportedAfterTheCheckout() {
+		final CheckoutLoadMetrics[] reported = new CheckoutLoadMetrics[1];
+		IPaySDK.setCheckoutLoadMetricsListener(new CheckoutLoadMetrics.Listener() {
+			@Override
+			public void onCheckoutLoadMetrics(CheckoutLoadMetrics metrics) {
+				reported[0] = metrics;
+			}
+		});
+		finishCheckout(startCheckout());
+
+		assertNotNull(reported[0]);
+		assertEquals(CHECKOUT_URL, reported[0].getCheckoutUrl());
+		assertNotEquals(CheckoutLoadMetrics.NOT_RECORDED, reported[0].getJavaHeapBeforeBytes());
+		assertNotEquals(CheckoutLoadMetrics.NOT_RECORDED, reported[0].getJavaHeapAfterBytes());
+	}
+
+	@Test
+	public void testPreloadedPagesAreEvictedOnTrimMemory() {
+		WebCheckoutPreloader.preload(RuntimeEnvironment.application, OTHER_CHECKOUT_URL);
+		assertEquals(1, WebCheckoutPreloader.size());
+
+		RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+		assertEquals(1, WebCheckoutPreloader.size());
+		RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+		assertEquals(0, WebCheckoutPreloader.size());
+	}
+
+	@Test
+	public void testRenderProcessGoneSwapsInAFreshWebView() {
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		final FrameLayout container = controller.get().findViewById(R.id.web_view_container);
+		final WebView deadWebView = (WebView) container.getChildAt(0);
+
+		assertTrue(renderProcessGone(deadWebView));
+		assertEquals(1, container.getChildCount());
+		final WebView webView = (WebView) container.getChildAt(0);
+		assertNotSame(deadWebView, webView);
+		assertTrue(shadowOf(deadWebView).wasDestroyCalled());
+		assertEquals(CHECKOUT_URL, shadowOf(webView).getLastLoadedUrl());
+		assertFalse(controller.get().isFinishing());
+		finishCheckout(controller);
+	}
+
+	@Test
+	public void testCheckoutFailsWhenTheRendererKeepsDying() {
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		final FrameLayout container = controller.get().findViewById(R.id.web_view_container);
+		for (int i = 0; i < 3; i++) {
+			renderProcessGone((WebView) container.getChildAt(0));
+		}
+
+		assertTrue(controller.get().isFinishing());
+		assertEquals(0, container.getChildCount());
+		assertEquals(IPaySDK.CheckoutStatus.FAILED, shadowOf(controller.get()).getResultIntent()
+				.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY));
+		controller.pause().stop().destroy();
+	}
+
+	@Test
+	public void testTimedOutLoadIsRetriedBeforeTimingOut() {
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		final FrameLayout container = controller.get().findViewById(R.id.web_view_container);
+		final WebView webView = (WebView) container.getChildAt(0);
+		final WebViewClient webViewClient = shadowOf(webView).getWebViewClient();
+
+		final String stepUrl = CHECKOUT_URL + "/otp";
+		webViewClient.onPageStarted(webView, stepUrl, null);
+		ShadowLooper.idleMainLooper(IPaySDK.DEFAULT_WEB_CHECKOUT_FIRST_BYTE_TIMEOUT_MILLIS);
+		assertFalse(controller.get().isFinishing());
+		assertEquals(CHECKOUT_URL, shadowOf(webView).getLastLoadedUrl());
+		ShadowLooper.idleMainLooper(1000);
+		assertEquals(stepUrl, shadowOf(webView).getLastLoadedUrl());
+
+		webViewClient.onPageStarted(webView, stepUrl, null);
+		ShadowLooper.idleMainLooper(IPaySDK.DEFAULT_WEB_CHECKOUT_FIRST_BYTE_TIMEOUT_MILLIS);
+		assertTrue(controller.get().isFinishing());
+		assertEquals(IPaySDK.CheckoutStatus.TIMEOUT, shadowOf(controller.get()).getResultIntent()
+				.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY));
+		controller.pause().stop().destroy();
+	}
+
+	@Test
+	public void testPagesOffTheCheckoutOriginAreNotWatched() {
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		final FrameLayout container = controller.get().findViewById(R.id.web_view_container);
+		final WebView webView = (WebView) container.getChildAt(0);
+		final WebViewClient webViewClient = shadowOf(webView).getWebViewClient();
+
+		webViewClient.onPageStarted(webView, "https://secure.bank.com/3ds/challenge", null);
+		ShadowLooper.idleMainLooper(IPaySDK.DEFAULT_WEB_CHECKOUT_PAGE_FINISHED_TIMEOUT_MILLIS);
+		assertFalse(controller.get().isFinishing());
+		assertEquals(CHECKOUT_URL, shadowOf(webView).getLastLoadedUrl());
+		finishCheckout(controller);
+	}
+
+	@Test
+	public void testTimedOutFormSubmissionIsNotRetried() {
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		final FrameLayout container = controller.get().findViewById(R.id.web_view_container);
+		final WebView webView = (WebView) container.getChildAt(0);
+		final WebViewClient webViewClient = shadowOf(webView).getWebViewClient();
+
+		final String stepUrl = CHECKOUT_URL + "/pay";
+		webViewClient.shouldInterceptRequest(webView, mainFrameRequest("POST", stepUrl));
+		webViewClient.onPageStarted(webView, stepUrl, null);
+		ShadowLooper.idleMainLooper(IPaySDK.DEFAULT_WEB_CHECKOUT_FIRST_BYTE_TIMEOUT_MILLIS);
+		assertTrue(controller.get().isFinishing());
+		assertEquals(CHECKOUT_URL, shadowOf(webView).getLastLoadedUrl());
+		assertEquals(IPaySDK.CheckoutStatus.TIMEOUT, shadowOf(controller.get()).getResultIntent()
+				.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY));
+		controller.pause().stop().destroy();
+	}
+
+	@Test
+	public void testSessionTimeoutIsNotRetried() {
+		IPaySDK.setWebCheckoutTimeouts(0, 0, 1000);
+		final ActivityController<IPayWebCheckoutActivity> controller = startCheckout();
+		ShadowLooper.idleMainLooper(1000);
+
+		assertTrue(controller.get().isFinishing());
+		assertEquals(IPaySDK.CheckoutStatus.TIMEOUT, shadowOf(controller.get()).getResultIntent()
+				.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY));
+		controller.pause().stop().destroy();
+	}
+
+	private static boolean renderProcessGone(WebView webView) {
+		return shadowOf(webView).getWebViewClient().onRenderProcessGone(webView,
+				new RenderProcessGoneDetail() {
+					@Override
+					public boolean didCrash() {
+						return false;
+					}
+
+					@Override
+					public int rendererPriorityAtExit() {
+						return WebView.RENDERER_PRIORITY_WAIVED;
+					}
+				});
+	}
+
+	private static WebResourceRequest mainFrameRequest(final String method, final String url) {
+		return new WebResourceRequest() {
+			@Override
+			public Uri getUrl() {
+				return Uri.parse(url);
+			}
+
+			@Override
+			public boolean isForMainFrame() {
+				return true;
+			}
+
+			@Override
+			public boolean isRedirect() {
+				return false;
+			}
+
+			@Override
+			public boolean hasGesture() {
+				return true;
+			}
+
+			@Override
+			public String getMethod() {
+				return method;
+			}
+
+			@Override
+			public Map<String, String> getRequestHeaders() {
+				return Collections.emptyMap();
+			}
+		};
+	}
+
+	private static ActivityController<IPayWebCheckoutActivity> startCheckout() {
+		final Intent intent = new Intent(RuntimeEnvironment.application, IPayWebCheckoutActivity.class);
+		intent.putExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY, CHECKOUT_URL);
+		intent.putExtra(IPayWebCheckoutActivity.THIRD_PARTY_CHECKOUT_CALLBACK_URL_KEY,
+				new CheckoutCallbackActionUrls("https://merchant.com/success",
+						"https://merchant.com/failed", "https://merchant.com/cancelled"));
+		return Robolectric.buildActivity(IPayWebCheckoutActivity.class, intent).setup();
+	}
+
+	private static void finishCheckout(ActivityController<IPayWebCheckoutActivity> controller) {
+		controller.get().finish();
+		controller.pause().stop().destroy();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.ipc;
+
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+
+/**
+ * Local stand-in of the checkout service of the iPay app, speaking the protocol of
+ * {@link IPayServiceConnection}.
+ */
+class FakeIPayCheckoutService {
+	private final int protocolVersion;
+	private final String[] capabilities;
+	private final Messenger messenger = new Messenger(new Handler(Looper.getMainLooper()) {
+		@Override
+		public void handleMessage(Message msg) {
+			switch (msg.what) {
+				case IPayServiceConnection.MSG_HELLO:
+					helloVersion = msg.arg1;
+					final Message reply = Message.obtain(null, IPayServiceConnection.MSG_HELLO_REPLY,
+							protocolVersion, 0);
+					reply.getData().putStringArray(IPayServiceConnection.KEY_CAPABILITIES, capabilities);
+					send(msg.replyTo, reply);
+					break;
+				case IPayServiceConnection.MSG_REGISTER_CHECKOUT:
+					registeredCheckoutUrl = msg.getData().getString(IPayServiceConnection.KEY_CHECKOUT_URL);
+					client = msg.replyTo;
+					break;
+			}
+		}
+	});
+
+	int helloVersion;
+	String registeredCheckoutUrl;
+	private Messenger client;
+
+	FakeIPayCheckoutService(int protocolVersion, String... capabilities) {
+		this.protocolVersion = protocolVersion;
+		this.capabilities = capabilities;
+	}
+
+	IBinder getBinder() {
+		return messenger.getBinder();
+	}
+
+	void deliverResult(String checkoutStatus, String checkoutId) {
+		final Message result = Message.obtain(null, IPayServiceConnection.MSG_CHECKOUT_RESULT);
+		result.getData().putString("checkout_status", checkoutStatus);
+		result.getData().putString("checkout_id", checkoutId);
+		send(client, result);
+	}
+
+	private static void send(Messenger messenger, Message message) {
+		try {
+			messenger.send(message);
+		} catch (RemoteException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
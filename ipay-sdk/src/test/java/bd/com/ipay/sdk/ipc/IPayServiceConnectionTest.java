@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.ipc;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Set;
+
+import bd.com.ipay.sdk.IPaySDK;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class IPayServiceConnectionTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final ComponentName SERVICE = new ComponentName(IPaySDK.IPAY_APP_PACKAGE_NAME,
+			"bd.com.ipay.android.CheckoutService");
+
+	private final RecordingListener listener = new RecordingListener();
+	private Application application;
+
+	@Before
+	public void setUp() {
+		application = RuntimeEnvironment.application;
+	}
+
+	@Test
+	public void testAbsentServiceFallsBackToTheDeepLink() {
+		assertFalse(IPayServiceConnection.isServiceAvailable(application));
+		assertFalse(new IPayServiceConnection(application, listener).connect(CHECKOUT_URL));
+		ShadowLooper.idleMainLooper();
+		assertFalse(listener.unavailable);
+		assertNull(listener.checkoutStatus);
+	}
+
+	@Test
+	public void testResultIsDeliveredThroughTheService() {
+		final FakeIPayCheckoutService service = installService(IPayServiceConnection.PROTOCOL_VERSION,
+				IPayServiceConnection.CAPABILITY_CHECKOUT_RESULT, "refund");
+		assertTrue(new IPayServiceConnection(application, listener).connect(CHECKOUT_URL));
+		ShadowLooper.idleMainLooper();
+		assertEquals(IPayServiceConnection.PROTOCOL_VERSION, service.helloVersion);
+		assertEquals(CHECKOUT_URL, service.registeredCheckoutUrl);
+		assertTrue(listener.capabilities.contains("refund"));
+
+		service.deliverResult("success", "IPAY-1");
+		ShadowLooper.idleMainLooper();
+		assertEquals(IPaySDK.CheckoutStatus.SUCCESS, listener.checkoutStatus);
+		assertEquals("IPAY-1", listener.checkoutId);
+		assertFalse(listener.unavailable);
+		assertEquals(1, shadowOf(application).getUnboundServiceConnections().size());
+	}
+
+	@Test
+	public void testServiceWithoutTheCapabilityIsUnavailable() {
+		final FakeIPayCheckoutService service = installService(IPayServiceConnection.PROTOCOL_VERSION, "refund");
+		assertTrue(new IPayServiceConnection(application, listener).connect(CHECKOUT_URL));
+		ShadowLooper.idleMainLooper();
+		assertTrue(listener.unavailable);
+		assertNull(service.registeredCheckoutUrl);
+	}
+
+	private FakeIPayCheckoutService installService(int protocolVersion, String... capabilities) {
+		final FakeIPayCheckoutService service = new FakeIPayCheckoutService(protocolVersion, capabilities);
+		final ResolveInfo resolveInfo = new ResolveInfo();
+		resolveInfo.serviceInfo = new ServiceInfo();
+		resolveInfo.serviceInfo.packageName = SERVICE.getPackageName();
+		resolveInfo.serviceInfo.name = SERVICE.getClassName();
+		shadowOf(application.getPackageManager()).addResolveInfoForIntent(
+				new Intent(IPayServiceConnection.ACTION_CHECKOUT_SERVICE)
+						.setPackage(IPaySDK.IPAY_APP_PACKAGE_NAME), resolveInfo);
+		shadowOf(application).setComponentNameAndServiceForBindService(SERVICE, service.getBinder());
+		return service;
+	}
+
+	private static final class RecordingListener implements IPayServiceConnection.Listener {
+		Set<String> capabilities;
+		IPaySDK.CheckoutStatus checkoutStatus;
+		String checkoutId;
+		boolean unavailable;
+
+		@Override
+		public void onCheckoutRegistered(Set<String> capabilities) {
+			this.capabilities = capabilities;
+		}
+
+		@Override
+		public void onCheckoutResult(IPaySDK.CheckoutStatus checkoutStatus, String checkoutId) {
+			this.checkoutStatus = checkoutStatus;
+			this.checkoutId = checkoutId;
+		}
+
+		@Override
+		public void onUnavailable() {
+			unavailable = true;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CallbackUrlMatcherTest {
+	@Test
+	public void testLiteralCallbackUrls() {
+		final CallbackUrlMatcher matcher = CallbackUrlMatcher.compile("https://shop.com/ipay/success",
+				"https://shop.com/ipay/failed", "https://shop.com/ipay/cancelled");
+		assertTrue(matcher.isLiteral());
+		assertEquals(CallbackUrlMatcher.SUCCESS, matcher.match("https://shop.com/ipay/success"));
+		assertEquals(CallbackUrlMatcher.FAILED, matcher.match("https://shop.com/ipay/failed?id=1"));
+		assertEquals(CallbackUrlMatcher.CANCELLED, matcher.match("https://shop.com/ipay/cancelled#top"));
+		assertEquals(CallbackUrlMatcher.NO_MATCH, matcher.match("https://shop.com/ipay/successful"));
+		assertEquals(CallbackUrlMatcher.NO_MATCH, matcher.match("https://app.ipay.com.bd/checkout"));
+		assertEquals(CallbackUrlMatcher.NO_MATCH, matcher.match(null));
+	}
+
+	@Test
+	public void testRegexCallbackUrls() {
+		final CallbackUrlMatcher matcher = CallbackUrlMatcher.compile("https://shop\\.com/(ipay|pay)/success.*",
+				"https://shop\\.com/(ipay|pay)/failed.*", "https://shop\\.com/(ipay|pay)/cancel(led)?.*");
+		assertFalse(matcher.isLiteral());
+		assertEquals(CallbackUrlMatcher.SUCCESS, matcher.match("https://shop.com/pay/success?id=1"));
+		assertEquals(CallbackUrlMatcher.FAILED, matcher.match("https://shop.com/ipay/failed"));
+		assertEquals(CallbackUrlMatcher.CANCELLED, matcher.match("https://shop.com/ipay/cancel"));
+		assertEquals(CallbackUrlMatcher.NO_MATCH, matcher.match("https://shop.com/checkout"));
+	}
+
+	@Test
+	public void testRegexMatchesLikeStringMatches() {
+		final String[] urls = {"https://a.com/.*", "https://b.com/f", "https://c.com/c+"};
+		final CallbackUrlMatcher matcher = CallbackUrlMatcher.regex(urls[0], urls[1], urls[2]);
+		final String[] candidates = {"https://a.com/x", "https://b.com/f", "https://c.com/ccc",
+				"https://b.com/fx", "xhttps://a.com/"};
+		for (String candidate : candidates) {
+			int expected = CallbackUrlMatcher.NO_MATCH;
+			for (int i = urls.length - 1; i >= 0; i--) {
+				if (candidate.matches(urls[i])) {
+					expected = i;
+				}
+			}
+			assertEquals(candidate, expected, matcher.match(candidate));
+		}
+	}
+}
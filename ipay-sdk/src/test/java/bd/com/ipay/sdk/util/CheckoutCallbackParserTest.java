@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CheckoutCallbackParserTest {
+	@Test
+	public void testCallbackUrl() {
+		assertEquals("IPAY-AB12CD34EF", CheckoutCallbackParser.getCheckoutId("ipaymerchant123://IPAY-AB12CD34EF/success"));
+		assertEquals("success", CheckoutCallbackParser.getCheckoutStatus("ipaymerchant123://IPAY-AB12CD34EF/success"));
+		assertEquals("", CheckoutCallbackParser.getCheckoutStatus("ipaymerchant123://IPAY-1/"));
+	}
+
+	@Test
+	public void testLastSlashSplitsLikeTheRegex() {
+		final String callbackUrl = "ipaymerchant123://shop/IPAY-1/cancelled";
+		assertEquals(callbackUrl.replaceAll("ipaymerchant123://(.*)/(.*)", "$1"),
+				CheckoutCallbackParser.getCheckoutId(callbackUrl));
+		assertEquals(callbackUrl.replaceAll("ipaymerchant123://(.*)/(.*)", "$2"),
+				CheckoutCallbackParser.getCheckoutStatus(callbackUrl));
+	}
+
+	@Test
+	public void testAppLinkCallbackUrl() {
+		final String callbackUrl = "https://merchant.com/ipay/callback/IPAY-AB12CD34EF/success";
+		assertEquals("IPAY-AB12CD34EF", CheckoutCallbackParser.getCheckoutId(callbackUrl,
+				"https://merchant.com/ipay/callback"));
+		assertEquals("IPAY-AB12CD34EF", CheckoutCallbackParser.getCheckoutId(callbackUrl,
+				"https://merchant.com/ipay/callback/"));
+		assertEquals("success", CheckoutCallbackParser.getCheckoutStatus(callbackUrl,
+				"https://merchant.com/ipay/callback"));
+		// The scheme callback is still parsed when an App Link is configured.
+		assertEquals("IPAY-1", CheckoutCallbackParser.getCheckoutId("ipaymerchant123://IPAY-1/success",
+				"https://merchant.com/ipay/callback"));
+		assertNull(CheckoutCallbackParser.getCheckoutStatus("https://merchant.com/ipay/callbacks/IPAY-1",
+				"https://merchant.com/ipay/callback"));
+		assertNull(CheckoutCallbackParser.getCheckoutId("https://merchant.com/ipay/callback",
+				"https://merchant.com/ipay/callback"));
+	}
+
+	@Test
+	public void testWebUrlOutsideTheAppLinkIsNotACallbackUrl() {
+		assertNull(CheckoutCallbackParser.getCheckoutId("https://other.host/x/IPAY-1/success",
+				"https://merchant.com/ipay/callback"));
+		assertNull(CheckoutCallbackParser.getCheckoutStatus("https://other.host/x/IPAY-1/success",
+				"https://merchant.com/ipay/callback"));
+		// Without an App Link no web url is a callback url.
+		assertNull(CheckoutCallbackParser.getCheckoutId("https://other.host/x/IPAY-1/success"));
+		assertNull(CheckoutCallbackParser.getCheckoutStatus("HTTP://other.host/x/IPAY-1/success"));
+	}
+
+	@Test
+	public void testQueryAndFragmentAreIgnored() {
+		final String appLink = "https://merchant.com/ipay/callback";
+		assertEquals("IPAY-1", CheckoutCallbackParser.getCheckoutId(
+				"https://merchant.com/ipay/callback/IPAY-1/success?utm=1", appLink));
+		assertEquals("success", CheckoutCallbackParser.getCheckoutStatus(
+				"https://merchant.com/ipay/callback/IPAY-1/success?utm=1/2", appLink));
+		assertEquals("success", CheckoutCallbackParser.getCheckoutStatus(
+				"https://merchant.com/ipay/callback/IPAY-1/success#top", appLink));
+		assertEquals("IPAY-1", CheckoutCallbackParser.getCheckoutId("ipaymerchant123://IPAY-1/failed?utm=1"));
+		assertEquals("failed", CheckoutCallbackParser.getCheckoutStatus("ipaymerchant123://IPAY-1/failed?utm=1"));
+		assertNull(CheckoutCallbackParser.getCheckoutStatus("ipaymerchant123://IPAY-1?next=/success"));
+	}
+
+	@Test
+	public void testNotACallbackUrl() {
+		assertNull(CheckoutCallbackParser.getCheckoutId("ipaymerchant123://IPAY-1"));
+		assertNull(CheckoutCallbackParser.getCheckoutStatus("ipaymerchant123://IPAY-1"));
+		assertNull(CheckoutCallbackParser.getCheckoutId("IPAY-1/success"));
+		assertNull(CheckoutCallbackParser.getCheckoutStatus("://IPAY-1/success"));
+	}
+}
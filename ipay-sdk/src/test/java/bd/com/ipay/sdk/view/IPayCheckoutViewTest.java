@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.view;
+
+import android.app.Activity;
+import android.view.ViewGroup;
+import android.webkit.CookieManager;
+import android.webkit.WebView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class IPayCheckoutViewTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final String OTHER_CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-2";
+	private static final CheckoutCallbackActionUrls CALLBACK_URLS = new CheckoutCallbackActionUrls(
+			"https://merchant.com/success", "https://merchant.com/failed", "https://merchant.com/cancelled");
+
+	private boolean debugLogEnabled;
+	private IPayCheckoutView checkoutView;
+	private IPaySDK.CheckoutStatus checkoutStatus;
+	private String checkoutId;
+	private int results;
+
+	private final IPayCheckoutView.OnCheckoutResultListener listener = new IPayCheckoutView.OnCheckoutResultListener() {
+		@Override
+		public void onCheckoutResult(IPaySDK.CheckoutStatus checkoutStatus, String checkoutId) {
+			IPayCheckoutViewTest.this.checkoutStatus = checkoutStatus;
+			IPayCheckoutViewTest.this.checkoutId = checkoutId;
+			results++;
+		}
+	};
+
+	@Before
+	public void setUp() {
+		// The frame time monitor of the debug log keeps posting frames to the paused looper.
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+		final Activity activity = Robolectric.setupActivity(Activity.class);
+		checkoutView = new IPayCheckoutView(activity);
+		activity.setContentView(checkoutView);
+	}
+
+	@After
+	public void tearDown() {
+		checkoutView.destroy();
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testCallbackUrlIsReportedToTheListener() {
+		checkoutView.startCheckout(CHECKOUT_URL, CALLBACK_URLS, listener);
+		final WebView webView = findWebView();
+		assertNotNull(webView);
+		assertEquals(CHECKOUT_URL, shadowOf(webView).getLastLoadedUrl());
+		assertTrue(checkoutView.isCheckoutRunning());
+
+		assertTrue(shadowOf(webView).getWebViewClient().shouldOverrideUrlLoading(webView,
+				"https://merchant.com/success?status=ok"));
+		ShadowLooper.idleMainLooper();
+		assertEquals(1, results);
+		assertEquals(IPaySDK.CheckoutStatus.SUCCESS, checkoutStatus);
+		assertEquals("IPAY-1", checkoutId);
+		assertFalse(checkoutView.isCheckoutRunning());
+		assertTrue(shadowOf(webView).wasDestroyCalled());
+		assertNull(findWebView());
+	}
+
+	@Test
+	public void testCancelCheckout() {
+		checkoutView.startCheckout(CHECKOUT_URL, CALLBACK_URLS, listener);
+		checkoutView.cancelCheckout();
+		checkoutView.cancelCheckout();
+		ShadowLooper.idleMainLooper();
+		assertEquals(1, results);
+		assertEquals(IPaySDK.CheckoutStatus.CANCELLED, checkoutStatus);
+	}
+
+	@Test
+	public void testInvalidCallbackUrlsFail() {
+		checkoutView.startCheckout(CHECKOUT_URL, new CheckoutCallbackActionUrls(
+				"https://merchant.com/success", "", "https://merchant.com/cancelled"), listener);
+		assertEquals(1, results);
+		assertEquals(IPaySDK.CheckoutStatus.FAILED, checkoutStatus);
+		assertNull(findWebView());
+	}
+
+	@Test
+	public void testDestroyDropsTheResult() {
+		checkoutView.startCheckout(CHECKOUT_URL, CALLBACK_URLS, listener);
+		final WebView webView = findWebView();
+		checkoutView.destroy();
+		assertTrue(shadowOf(webView).wasDestroyCalled());
+		checkoutView.cancelCheckout();
+		assertEquals(0, results);
+	}
+
+	@Test
+	public void testKioskModeReusesTheWebView() {
+		checkoutView.setKioskModeEnabled(true);
+		checkoutView.startCheckout(CHECKOUT_URL, CALLBACK_URLS, listener);
+		final WebView webView = findWebView();
+		CookieManager.getInstance().setCookie("https://app.ipay.com.bd", "session=1");
+		checkoutView.cancelCheckout();
+		ShadowLooper.idleMainLooper();
+		assertEquals(IPaySDK.CheckoutStatus.CANCELLED, checkoutStatus);
+		assertFalse(shadowOf(webView).wasDestroyCalled());
+		assertNull(findWebView());
+		assertNull(CookieManager.getInstance().getCookie("https://app.ipay.com.bd"));
+
+		checkoutView.startCheckout(OTHER_CHECKOUT_URL, CALLBACK_URLS, listener);
+		assertSame(webView, findWebView());
+		assertEquals(OTHER_CHECKOUT_URL, shadowOf(webView).getLastLoadedUrl());
+		assertTrue(shadowOf(webView).getWebViewClient().shouldOverrideUrlLoading(webView,
+				"https://merchant.com/failed"));
+		ShadowLooper.idleMainLooper();
+		assertEquals(2, results);
+		assertEquals(IPaySDK.CheckoutStatus.FAILED, checkoutStatus);
+		assertEquals("IPAY-2", checkoutId);
+
+		checkoutView.setKioskModeEnabled(false);
+		assertTrue(shadowOf(webView).wasDestroyCalled());
+		checkoutView.startCheckout(CHECKOUT_URL, CALLBACK_URLS, listener);
+		assertNotSame(webView, findWebView());
+	}
+
+	private WebView findWebView() {
+		final ViewGroup container = (ViewGroup) checkoutView.getChildAt(0);
+		return (WebView) container.getChildAt(0);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class CheckoutLoadMetricsTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+
+	@Test
+	public void testPageEventsAreRelativeToCheckoutStart() {
+		final CheckoutLoadMetrics metrics = new CheckoutLoadMetrics(CHECKOUT_URL, 1000);
+		assertEquals(CheckoutLoadMetrics.NOT_RECORDED, metrics.getPageStartedMillis());
+
+		metrics.onPageStarted(1050);
+		metrics.onFirstVisualChange(1300);
+		metrics.onFirstVisualChange(1400);
+		metrics.onPageFinished(1700);
+		metrics.onPageStarted(2000);
+		metrics.onReceivedError(-2, "https://app.ipay.com.bd/favicon.ico");
+
+		assertFalse(metrics.isPreloaded());
+		assertEquals(50, metrics.getPageStartedMillis());
+		assertEquals(300, metrics.getFirstVisualChangeMillis());
+		assertEquals(700, metrics.getPageFinishedMillis());
+		assertEquals(2, metrics.getPageLoadCount());
+		assertEquals(1, metrics.getErrorCount());
+		assertEquals(-2, metrics.getLastErrorCode());
+	}
+
+	@Test
+	public void testPerformanceTimingIsParsed() {
+		final CheckoutLoadMetrics metrics = new CheckoutLoadMetrics(CHECKOUT_URL, 0);
+		metrics.onPerformanceTiming("{\"domainLookupStart\":5,\"domainLookupEnd\":25,"
+				+ "\"connectStart\":25,\"connectEnd\":85,\"requestStart\":90,\"responseStart\":240,"
+				+ "\"responseEnd\":260,\"domContentLoaded\":610,\"loadEventEnd\":900,\"resources\":["
+				+ "{\"name\":\"https://app.ipay.com.bd/app.js\",\"duration\":320,\"transferSize\":0},"
+				+ "{\"name\":\"https://app.ipay.com.bd/app.css\",\"duration\":120,\"transferSize\":2048}]}");
+
+		assertEquals(20, metrics.getDnsMillis());
+		assertEquals(60, metrics.getConnectMillis());
+		assertEquals(150, metrics.getTimeToFirstByteMillis());
+		assertEquals(260, metrics.getResponseEndMillis());
+		assertEquals(610, metrics.getDomContentLoadedMillis());
+		assertEquals(900, metrics.getLoadEventEndMillis());
+		assertEquals(2, metrics.getResourceCount());
+		assertEquals(1, metrics.getCachedResourceCount());
+		assertEquals(320, metrics.getSlowestResourceMillis());
+		assertEquals("https://app.ipay.com.bd/app.js", metrics.getSlowestResourceUrl());
+	}
+
+	@Test
+	public void testMissingTimingsAreNotRecorded() {
+		final CheckoutLoadMetrics metrics = new CheckoutLoadMetrics(CHECKOUT_URL, 0);
+		metrics.onPerformanceTiming("null");
+		metrics.onPerformanceTiming("{\"domainLookupStart\":-1,\"domainLookupEnd\":-1}");
+
+		assertEquals(CheckoutLoadMetrics.NOT_RECORDED, metrics.getDnsMillis());
+		assertEquals(CheckoutLoadMetrics.NOT_RECORDED, metrics.getTimeToFirstByteMillis());
+		assertEquals(0, metrics.getResourceCount());
+		assertTrue(metrics.toString().startsWith("CheckoutLoadMetrics{"));
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class CheckoutLoadWatchdogTest {
+	private final List<Integer> timeouts = new ArrayList<>();
+	private CheckoutLoadWatchdog watchdog;
+
+	@Before
+	public void setUp() {
+		watchdog = new CheckoutLoadWatchdog(new Handler(Looper.getMainLooper()),
+				new CheckoutLoadWatchdog.Listener() {
+					@Override
+					public void onTimeout(int timeout) {
+						timeouts.add(timeout);
+					}
+				}, 1000, 3000, 10000);
+	}
+
+	@Test
+	public void testFirstByteTimeoutClearsThePageLoadTimeouts() {
+		watchdog.onPageStarted();
+		ShadowLooper.idleMainLooper(999);
+		assertEquals(Collections.<Integer>emptyList(), timeouts);
+
+		ShadowLooper.idleMainLooper(5000);
+		assertEquals(Collections.singletonList(CheckoutLoadWatchdog.TIMEOUT_FIRST_BYTE), timeouts);
+	}
+
+	@Test
+	public void testPageFinishedTimeoutAfterTheFirstByte() {
+		watchdog.onPageStarted();
+		ShadowLooper.idleMainLooper(500);
+		watchdog.onFirstByte();
+		ShadowLooper.idleMainLooper(2000);
+		assertEquals(Collections.<Integer>emptyList(), timeouts);
+
+		ShadowLooper.idleMainLooper(500);
+		assertEquals(Collections.singletonList(CheckoutLoadWatchdog.TIMEOUT_PAGE_FINISHED), timeouts);
+	}
+
+	@Test
+	public void testFinishedPagesDoNotTimeOut() {
+		watchdog.startSession();
+		watchdog.onPageStarted();
+		watchdog.onPageFinished();
+		watchdog.onPageStarted();
+		watchdog.onFirstByte();
+		watchdog.onPageFinished();
+		ShadowLooper.idleMainLooper(9999);
+		assertEquals(Collections.<Integer>emptyList(), timeouts);
+
+		ShadowLooper.idleMainLooper(1);
+		assertEquals(Collections.singletonList(CheckoutLoadWatchdog.TIMEOUT_SESSION), timeouts);
+	}
+
+	@Test
+	public void testStopClearsEveryTimeout() {
+		watchdog.startSession();
+		watchdog.onPageStarted();
+		watchdog.stop();
+		ShadowLooper.idleMainLooper(20000);
+		assertEquals(Collections.<Integer>emptyList(), timeouts);
+
+		final CheckoutLoadWatchdog disabled = new CheckoutLoadWatchdog(new Handler(Looper.getMainLooper()),
+				new CheckoutLoadWatchdog.Listener() {
+					@Override
+					public void onTimeout(int timeout) {
+						timeouts.add(timeout);
+					}
+				}, 0, 0, 0);
+		disabled.startSession();
+		disabled.onPageStarted();
+		ShadowLooper.idleMainLooper(20000);
+		assertEquals(Collections.<Integer>emptyList(), timeouts);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bd.com.ipay.sdk.IPaySDK;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class CheckoutResultBridgeTest {
+	private static final String ORIGIN = "https://app.ipay.com.bd";
+
+	private final List<String> results = new ArrayList<>();
+	private CheckoutResultBridge bridge;
+
+	@Before
+	public void setUp() {
+		bridge = new CheckoutResultBridge(ORIGIN, new CheckoutResultBridge.Listener() {
+			@Override
+			public void onCheckoutResult(IPaySDK.CheckoutStatus checkoutStatus, String checkoutId) {
+				results.add(checkoutStatus + " " + checkoutId);
+			}
+		});
+	}
+
+	@Test
+	public void testAllowedOriginIsAnIPayHttpsOrigin() {
+		assertEquals(ORIGIN, CheckoutResultBridge.getAllowedOrigin("https://app.ipay.com.bd/checkout/pay/IPAY-1"));
+		assertEquals("https://ipay.com.bd", CheckoutResultBridge.getAllowedOrigin("https://IPAY.com.bd/checkout"));
+		assertEquals("https://app.ipay.com.bd:8443", CheckoutResultBridge.getAllowedOrigin("https://app.ipay.com.bd:8443/checkout"));
+		assertNull(CheckoutResultBridge.getAllowedOrigin("http://app.ipay.com.bd/checkout/pay/IPAY-1"));
+		assertNull(CheckoutResultBridge.getAllowedOrigin("https://app.ipay.com.bd.evil.com/checkout"));
+		assertNull(CheckoutResultBridge.getAllowedOrigin("https://notipay.com.bd/checkout"));
+		assertNull(CheckoutResultBridge.getAllowedOrigin(null));
+	}
+
+	@Test
+	public void testMessageIsParsed() {
+		final CheckoutResultBridge.Result result = CheckoutResultBridge.parse(
+				"{\"status\":\"SUCCESS\",\"checkout_id\":\"IPAY-1\"}");
+		assertEquals(IPaySDK.CheckoutStatus.SUCCESS, result.checkoutStatus);
+		assertEquals("IPAY-1", result.checkoutId);
+		assertNull(CheckoutResultBridge.parse("{\"status\":\"cancelled\"}").checkoutId);
+
+		assertNull(CheckoutResultBridge.parse("{\"status\":\"timeout\"}"));
+		assertNull(CheckoutResultBridge.parse("{\"status\":\"paid\"}"));
+		assertNull(CheckoutResultBridge.parse("success"));
+		assertNull(CheckoutResultBridge.parse(null));
+	}
+
+	@Test
+	public void testOnlyTheFirstResultOfTheAllowedOriginIsDelivered() {
+		bridge.onMessageReceived("{\"status\":\"success\",\"checkout_id\":\"IPAY-1\"}", "https://merchant.com");
+		bridge.onMessageReceived("{\"status\":\"paid\"}", ORIGIN);
+		ShadowLooper.idleMainLooper();
+		assertTrue(results.isEmpty());
+
+		bridge.onMessageReceived("{\"status\":\"failed\",\"checkout_id\":\"IPAY-1\"}", ORIGIN);
+		bridge.onMessageReceived("{\"status\":\"success\",\"checkout_id\":\"IPAY-1\"}", ORIGIN);
+		ShadowLooper.idleMainLooper();
+		assertEquals(1, results.size());
+		assertEquals("FAILED IPAY-1", results.get(0));
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConnectionWarmerTest {
+	private LocalHttpServer server;
+	private SSLSocketFactory defaultSslSocketFactory;
+
+	@Before
+	public void setUp() throws IOException {
+		// The warm up is about the TLS handshake, so the stand-in host serves https.
+		server = new LocalHttpServer(true);
+		defaultSslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+		HttpsURLConnection.setDefaultSSLSocketFactory(server.getClientSocketFactory());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		HttpsURLConnection.setDefaultSSLSocketFactory(defaultSslSocketFactory);
+		server.shutdown();
+	}
+
+	@Test
+	public void testWarmedUpConnectionIsReused() throws IOException {
+		server.enqueue("/", new LocalHttpServer.Response(200, ""));
+		server.enqueue("/checkout/pay/IPAY-1", new LocalHttpServer.Response(200, "checkout"));
+
+		ConnectionWarmer.warmUpBlocking(new URL(server.url("/")));
+		assertEquals(1, server.getRequestCount());
+		assertEquals("HEAD", server.getRequest(0).get(":method"));
+
+		final HttpURLConnection connection = (HttpURLConnection) new URL(server.url("/checkout/pay/IPAY-1")).openConnection();
+		assertEquals(200, connection.getResponseCode());
+		final InputStream inputStream = connection.getInputStream();
+		while (inputStream.read() != -1) {
+			// Draining the response
+		}
+		inputStream.close();
+
+		assertEquals(2, server.getRequestCount());
+		assertEquals(1, server.getConnectionCount());
+	}
+
+	@Test
+	public void testOnlyCheckoutHostIsWarmedUp() {
+		assertFalse(ConnectionWarmer.warmUp("https://www.google.com/checkout/pay/IPAY-1"));
+		assertFalse(ConnectionWarmer.warmUp(server.url("/checkout/pay/IPAY-1")));
+	}
+}
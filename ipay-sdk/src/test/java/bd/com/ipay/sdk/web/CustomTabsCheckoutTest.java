@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.shadows.ShadowLooper;
+
+import bd.com.ipay.sdk.IPaySDK;
+import bd.com.ipay.sdk.activity.IPayCheckoutActivity;
+import bd.com.ipay.sdk.activity.IPayWebCheckoutActivity;
+import bd.com.ipay.sdk.model.CheckoutCallbackActionUrls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class CustomTabsCheckoutTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final String CALLBACK_URL = "ipaytest://IPAY-1/success";
+	private static final String BROWSER_PACKAGE_NAME = "com.android.chrome";
+	private static final String CUSTOM_TABS_SERVICE_ACTION = "android.support.customtabs.action.CustomTabsService";
+	private static final CheckoutCallbackActionUrls CALLBACK_URLS = new CheckoutCallbackActionUrls(
+			"ipaytest://IPAY-1/success", "ipaytest://IPAY-1/failed", "ipaytest://IPAY-1/cancelled");
+
+	private boolean debugLogEnabled;
+	private IPaySDK.WebFallbackMode webFallbackMode;
+
+	@Before
+	public void setUp() {
+		debugLogEnabled = IPaySDK.isDebugLogEnabled();
+		IPaySDK.setDebugLogEnabled(false);
+		webFallbackMode = IPaySDK.getWebFallbackMode();
+		CustomTabsConnection.reset();
+	}
+
+	@After
+	public void tearDown() {
+		CustomTabsConnection.reset();
+		IPaySDK.setWebFallbackMode(webFallbackMode);
+		IPaySDK.setDebugLogEnabled(debugLogEnabled);
+	}
+
+	@Test
+	public void testCheckoutIsLaunchedInCustomTab() {
+		installCustomTabsBrowser();
+		assertTrue(CustomTabsConnection.isAvailable(RuntimeEnvironment.application));
+
+		final ActivityController<IPayCheckoutActivity> controller = startCustomTabsCheckout();
+		final Intent customTabIntent = shadowOf(controller.get()).getNextStartedActivity();
+		assertEquals(Intent.ACTION_VIEW, customTabIntent.getAction());
+		assertEquals(Uri.parse(CHECKOUT_URL), customTabIntent.getData());
+		assertEquals(BROWSER_PACKAGE_NAME, customTabIntent.getPackage());
+		assertFalse(controller.get().isFinishing());
+	}
+
+	@Test
+	public void testWebViewFallbackWithoutCustomTabsBrowser() {
+		IPaySDK.setWebFallbackMode(IPaySDK.WebFallbackMode.CUSTOM_TABS);
+		assertFalse(CustomTabsConnection.isAvailable(RuntimeEnvironment.application));
+
+		final Activity activity = Robolectric.setupActivity(Activity.class);
+		assertEquals(IPaySDK.CheckoutState.PROCESSING,
+				IPaySDK.performCheckoutWithFallback(activity, CHECKOUT_URL, CALLBACK_URLS));
+		final Intent intent = shadowOf(activity).getNextStartedActivity();
+		assertEquals(IPayWebCheckoutActivity.class.getName(), intent.getComponent().getClassName());
+		assertFalse(intent.getBooleanExtra(IPayCheckoutActivity.CHECKOUT_VIA_CUSTOM_TABS_KEY, false));
+	}
+
+	@Test
+	public void testCallbackFromCustomTabCompletesCheckout() {
+		final ActivityController<IPayCheckoutActivity> controller = startCustomTabsCheckout();
+		controller.pause().stop();
+
+		controller.newIntent(new Intent(Intent.ACTION_VIEW, Uri.parse(CALLBACK_URL)));
+		assertTrue(controller.get().isFinishing());
+		final Intent result = shadowOf(controller.get()).getResultIntent();
+		assertEquals(Activity.RESULT_OK, shadowOf(controller.get()).getResultCode());
+		assertEquals(IPaySDK.CheckoutStatus.SUCCESS, result.getSerializableExtra(IPaySDK.CHECKOUT_STATUS_KEY));
+		assertEquals("IPAY-1", result.getStringExtra(IPaySDK.CHECKOUT_ID_KEY));
+	}
+
+	@Test
+	public void testClosingCustomTabCancelsCheckout() {
+		final ActivityController<IPayCheckoutActivity> controller = startCustomTabsCheckout();
+		controller.pause().stop();
+
+		// Back from the Custom Tab without a callback.
+		controller.restart().start().resume();
+		assertFalse(controller.get().isFinishing());
+		ShadowLooper.idleMainLooper(1000);
+		assertTrue(controller.get().isFinishing());
+		assertEquals(Activity.RESULT_CANCELED, shadowOf(controller.get()).getResultCode());
+		assertNull(shadowOf(controller.get()).getResultIntent());
+	}
+
+	private ActivityController<IPayCheckoutActivity> startCustomTabsCheckout() {
+		final Intent intent = new Intent(RuntimeEnvironment.application, IPayCheckoutActivity.class);
+		intent.putExtra(IPayCheckoutActivity.IPAY_CHECKOUT_URL_KEY, CHECKOUT_URL);
+		intent.putExtra(IPayCheckoutActivity.CHECKOUT_VIA_CUSTOM_TABS_KEY, true);
+		return Robolectric.buildActivity(IPayCheckoutActivity.class, intent).setup();
+	}
+
+	private static void installCustomTabsBrowser() {
+		final ResolveInfo resolveInfo = new ResolveInfo();
+		resolveInfo.serviceInfo = new ServiceInfo();
+		resolveInfo.serviceInfo.packageName = BROWSER_PACKAGE_NAME;
+		resolveInfo.serviceInfo.name = BROWSER_PACKAGE_NAME + ".CustomTabsService";
+		shadowOf(RuntimeEnvironment.application.getPackageManager()).addResolveInfoForIntent(
+				new Intent(CUSTOM_TABS_SERVICE_ACTION).setPackage(BROWSER_PACKAGE_NAME), resolveInfo);
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Minimal keep-alive HTTP/1.1 server standing in for the iPay checkout host in the tests. Over
+ * TLS it serves a self-signed certificate of 127.0.0.1, which clients trust through
+ * {@link #getClientSocketFactory()}.
+ */
+class LocalHttpServer {
+	// Holds an EC key, the BouncyCastle provider of Robolectric fails to sign with RSA-PSS.
+	private static final String KEY_STORE_RESOURCE = "localhost.jks";
+	private static final char[] KEY_STORE_PASSWORD = "changeit".toCharArray();
+
+	private final ServerSocket serverSocket;
+	private final SSLContext sslContext;
+	private final Map<String, Response> responses = Collections.synchronizedMap(new HashMap<String, Response>());
+	private final List<Map<String, String>> requests = Collections.synchronizedList(new ArrayList<Map<String, String>>());
+	private final AtomicInteger connectionCount = new AtomicInteger();
+
+	LocalHttpServer() throws IOException {
+		this(false);
+	}
+
+	LocalHttpServer(boolean useHttps) throws IOException {
+		final InetAddress address = InetAddress.getByName("127.0.0.1");
+		if (useHttps) {
+			sslContext = createSslContext();
+			serverSocket = sslContext.getServerSocketFactory().createServerSocket(0, 50, address);
+		} else {
+			sslContext = null;
+			serverSocket = new ServerSocket(0, 50, address);
+		}
+		final Thread acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (!serverSocket.isClosed()) {
+					try {
+						final Socket socket = serverSocket.accept();
+						connectionCount.incrementAndGet();
+						final Thread connectionThread = new Thread(new Runnable() {
+							@Override
+							public void run() {
+								serve(socket);
+							}
+						});
+						connectionThread.setDaemon(true);
+						connectionThread.start();
+					} catch (IOException e) {
+						return;
+					}
+				}
+			}
+		});
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	String url(String path) {
+		return (sslContext != null ? "https" : "http") + "://127.0.0.1:"
+				+ serverSocket.getLocalPort() + path;
+	}
+
+	/**
+	 * @return socket factory trusting the certificate of the server.
+	 */
+	SSLSocketFactory getClientSocketFactory() {
+		if (sslContext == null) {
+			throw new IllegalStateException("server doesn't use https");
+		}
+		return sslContext.getSocketFactory();
+	}
+
+	void enqueue(String path, Response response) {
+		responses.put(path, response);
+	}
+
+	int getRequestCount() {
+		return requests.size();
+	}
+
+	Map<String, String> getRequest(int index) {
+		return requests.get(index);
+	}
+
+	int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	void shutdown() throws IOException {
+		serverSocket.close();
+	}
+
+	private void serve(Socket socket) {
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+			final OutputStream outputStream = socket.getOutputStream();
+			String requestLine;
+			while ((requestLine = reader.readLine()) != null) {
+				if (requestLine.isEmpty()) {
+					continue;
+				}
+				final Map<String, String> request = new HashMap<>();
+				final String[] parts = requestLine.split(" ");
+				request.put(":method", parts[0]);
+				request.put(":path", parts[1]);
+				String headerLine;
+				while ((headerLine = reader.readLine()) != null && !headerLine.isEmpty()) {
+					final int separatorIndex = headerLine.indexOf(':');
+					request.put(headerLine.substring(0, separatorIndex).trim().toLowerCase(),
+							headerLine.substring(separatorIndex + 1).trim());
+				}
+				requests.add(request);
+
+				Response response = responses.get(parts[1]);
+				if (response == null) {
+					response = new Response(404, "");
+				}
+				final byte[] body = "HEAD".equals(parts[0]) ? new byte[0] : response.body.getBytes("UTF-8");
+				final StringBuilder head = new StringBuilder("HTTP/1.1 ").append(response.code).append(" OK\r\n");
+				for (Map.Entry<String, String> header : response.headers.entrySet()) {
+					head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+				}
+				if (response.code != 304) {
+					head.append("Content-Length: ").append(response.body.getBytes("UTF-8").length).append("\r\n");
+				}
+				head.append("\r\n");
+				outputStream.write(head.toString().getBytes("ISO-8859-1"));
+				if (response.code != 304) {
+					outputStream.write(body);
+				}
+				outputStream.flush();
+			}
+		} catch (IOException ignored) {
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private static SSLContext createSslContext() throws IOException {
+		final InputStream inputStream = LocalHttpServer.class.getResourceAsStream(KEY_STORE_RESOURCE);
+		try {
+			final KeyStore keyStore = KeyStore.getInstance("JKS");
+			keyStore.load(inputStream, KEY_STORE_PASSWORD);
+			final KeyManagerFactory keyManagerFactory =
+					KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+			keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+			final TrustManagerFactory trustManagerFactory =
+					TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			trustManagerFactory.init(keyStore);
+			final SSLContext sslContext = SSLContext.getInstance("TLS");
+			sslContext.init(keyManagerFactory.getKeyManagers(),
+					trustManagerFactory.getTrustManagers(), null);
+			return sslContext;
+		} catch (GeneralSecurityException e) {
+			throw new IOException(e);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	static class Response {
+		final int code;
+		final String body;
+		final Map<String, String> headers = new HashMap<>();
+
+		Response(int code, String body) {
+			this.code = code;
+			this.body = body;
+		}
+
+		Response header(String name, String value) {
+			headers.put(name, value);
+			return this;
+		}
+	}
+}
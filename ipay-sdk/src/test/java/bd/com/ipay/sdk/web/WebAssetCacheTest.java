@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.webkit.CookieManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class WebAssetCacheTest {
+	private LocalHttpServer server;
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new LocalHttpServer();
+		directory = new File(RuntimeEnvironment.application.getCacheDir(), "web_asset_cache_test");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.shutdown();
+		new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES).clear();
+	}
+
+	@Test
+	public void testIsCacheableAssetMethod() {
+		assertTrue(WebAssetCache.isCacheableAsset("https://app.ipay.com.bd/static/app.css"));
+		assertTrue(WebAssetCache.isCacheableAsset("https://app.ipay.com.bd/static/app.JS?v=12"));
+		assertTrue(WebAssetCache.isCacheableAsset("https://app.ipay.com.bd/fonts/noto.woff2#x"));
+		assertFalse(WebAssetCache.isCacheableAsset("https://app.ipay.com.bd/checkout/pay/IPAY-1"));
+		assertFalse(WebAssetCache.isCacheableAsset("https://app.ipay.com.bd/page?file=app.css"));
+		assertFalse(WebAssetCache.isCacheableAsset("data:text/css,body{}"));
+		assertFalse(WebAssetCache.isCacheableAsset(null));
+	}
+
+	@Test
+	public void testImmutableAssetIsServedFromDisk() throws IOException {
+		server.enqueue("/static/app.css", new LocalHttpServer.Response(200, "body{}")
+				.header("Content-Type", "text/css; charset=utf-8")
+				.header("Cache-Control", "public, max-age=31536000, immutable"));
+		final WebAssetCache cache = new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES);
+
+		final WebAssetCache.Asset first = cache.get(server.url("/static/app.css"));
+		assertNotNull(first);
+		assertEquals("text/css", first.getMimeType());
+		assertEquals("utf-8", first.getEncoding());
+		assertEquals("body{}", read(first.openStream()));
+
+		final WebAssetCache.Asset second = cache.get(server.url("/static/app.css"));
+		assertNotNull(second);
+		assertEquals("body{}", read(second.openStream()));
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void testStaleAssetIsRevalidatedWithETag() throws IOException {
+		server.enqueue("/static/app.js", new LocalHttpServer.Response(200, "var a;")
+				.header("Content-Type", "application/javascript")
+				.header("ETag", "\"v1\""));
+		final WebAssetCache cache = new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES);
+		assertNotNull(cache.get(server.url("/static/app.js")));
+
+		server.enqueue("/static/app.js", new LocalHttpServer.Response(304, "")
+				.header("ETag", "\"v1\""));
+		final WebAssetCache.Asset asset = cache.get(server.url("/static/app.js"));
+		assertNotNull(asset);
+		assertEquals("var a;", read(asset.openStream()));
+		assertEquals(2, server.getRequestCount());
+		assertEquals("\"v1\"", server.getRequest(1).get("if-none-match"));
+	}
+
+	@Test
+	public void testCorruptedEntryIsFetchedAgain() throws IOException {
+		server.enqueue("/static/logo.svg", new LocalHttpServer.Response(200, "<svg/>")
+				.header("Content-Type", "image/svg+xml")
+				.header("Cache-Control", "max-age=600"));
+		final WebAssetCache cache = new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES);
+		assertNotNull(cache.get(server.url("/static/logo.svg")));
+
+		final File[] files = directory.listFiles();
+		assertNotNull(files);
+		for (File file : files) {
+			if (file.getName().endsWith(".data")) {
+				assertTrue(file.delete());
+				assertTrue(file.createNewFile());
+			}
+		}
+
+		final WebAssetCache.Asset asset = cache.get(server.url("/static/logo.svg"));
+		assertNotNull(asset);
+		assertEquals("<svg/>", read(asset.openStream()));
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+		final WebAssetCache cache = new WebAssetCache(directory, 12);
+		server.enqueue("/a.css", new LocalHttpServer.Response(200, "123456")
+				.header("Cache-Control", "max-age=600"));
+		server.enqueue("/b.css", new LocalHttpServer.Response(200, "abcdef")
+				.header("Cache-Control", "max-age=600"));
+		server.enqueue("/c.css", new LocalHttpServer.Response(200, "ghijkl")
+				.header("Cache-Control", "max-age=600"));
+
+		assertNotNull(cache.get(server.url("/a.css")));
+		assertNotNull(cache.get(server.url("/b.css")));
+		assertEquals(12, cache.size());
+		// Explicit times, the file system may not tell apart entries written in the same second.
+		final long now = System.currentTimeMillis();
+		setLastModified(server.url("/a.css"), now - 120000);
+		setLastModified(server.url("/b.css"), now - 60000);
+
+		// Using a.css makes b.css the least recently used entry.
+		assertNotNull(cache.get(server.url("/a.css")));
+		assertNotNull(cache.get(server.url("/c.css")));
+		assertEquals(12, cache.size());
+		assertEquals(3, server.getRequestCount());
+
+		assertNotNull(cache.get(server.url("/a.css")));
+		assertNotNull(cache.get(server.url("/c.css")));
+		assertEquals(3, server.getRequestCount());
+		assertNotNull(cache.get(server.url("/b.css")));
+		assertEquals(4, server.getRequestCount());
+	}
+
+	@Test
+	public void testConnectionIsKeptAlive() throws IOException {
+		server.enqueue("/static/app.css", new LocalHttpServer.Response(200, "body{}")
+				.header("Cache-Control", "no-store"));
+		final WebAssetCache cache = new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES);
+
+		assertNotNull(cache.get(server.url("/static/app.css")));
+		assertNotNull(cache.get(server.url("/static/app.css")));
+		assertEquals(2, server.getRequestCount());
+		assertEquals(1, server.getConnectionCount());
+	}
+
+	@Test
+	public void testRequestIsSentAsTheWebViewWould() throws IOException {
+		server.enqueue("/static/app.js", new LocalHttpServer.Response(200, "var a;")
+				.header("Cache-Control", "no-store")
+				.header("Set-Cookie", "asset=2"));
+		CookieManager.getInstance().setCookie(server.url("/"), "session=1");
+		final WebAssetCache cache = new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES);
+
+		final Map<String, String> requestHeaders = new HashMap<>();
+		requestHeaders.put("User-Agent", "Checkout WebView");
+		requestHeaders.put("Referer", server.url("/checkout/pay/IPAY-1"));
+		assertNotNull(cache.get(server.url("/static/app.js"), requestHeaders));
+
+		final Map<String, String> request = server.getRequest(0);
+		assertEquals("Checkout WebView", request.get("user-agent"));
+		assertEquals(server.url("/checkout/pay/IPAY-1"), request.get("referer"));
+		assertTrue(request.get("cookie").contains("session=1"));
+		assertTrue(CookieManager.getInstance().getCookie(server.url("/")).contains("asset=2"));
+	}
+
+	@Test
+	public void testResponseHeadersAreStored() throws IOException {
+		server.enqueue("/fonts/noto.woff2", new LocalHttpServer.Response(200, "font")
+				.header("Content-Type", "font/woff2")
+				.header("Access-Control-Allow-Origin", "*")
+				.header("Cache-Control", "max-age=600"));
+		assertNotNull(new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES)
+				.get(server.url("/fonts/noto.woff2")));
+
+		final WebAssetCache.Asset asset = new WebAssetCache(directory,
+				WebAssetCache.DEFAULT_MAX_SIZE_BYTES).get(server.url("/fonts/noto.woff2"));
+		assertNotNull(asset);
+		assertEquals(1, server.getRequestCount());
+		assertEquals(200, asset.getStatusCode());
+		assertEquals("*", asset.getResponseHeaders().get("Access-Control-Allow-Origin"));
+		assertNull(asset.getResponseHeaders().get("Content-Length"));
+	}
+
+	@Test
+	public void testErrorResponseIsServedButNotCached() throws IOException {
+		final WebAssetCache cache = new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES);
+
+		final WebAssetCache.Asset asset = cache.get(server.url("/static/missing.css"));
+		assertNotNull(asset);
+		assertEquals(404, asset.getStatusCode());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testNoStoreAssetIsNotCached() throws IOException {
+		server.enqueue("/static/private.js", new LocalHttpServer.Response(200, "var b;")
+				.header("ETag", "\"v1\"")
+				.header("Cache-Control", "no-store"));
+		final WebAssetCache cache = new WebAssetCache(directory, WebAssetCache.DEFAULT_MAX_SIZE_BYTES);
+		assertNotNull(cache.get(server.url("/static/private.js")));
+		assertEquals(0, cache.size());
+	}
+
+	private void setLastModified(String url, long lastModified) throws IOException {
+		final File[] files = directory.listFiles();
+		assertNotNull(files);
+		for (File file : files) {
+			if (!file.getName().endsWith(".meta")) {
+				continue;
+			}
+			final Properties meta = new Properties();
+			final InputStream inputStream = new FileInputStream(file);
+			try {
+				meta.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+			if (url.equals(meta.getProperty("url"))) {
+				final String name = file.getName();
+				final File dataFile = new File(directory,
+						name.substring(0, name.length() - ".meta".length()) + ".data");
+				assertTrue(file.setLastModified(lastModified));
+				assertTrue(dataFile.setLastModified(lastModified));
+				return;
+			}
+		}
+		throw new AssertionError("No entry for " + url);
+	}
+
+	private static String read(InputStream inputStream) throws IOException {
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1024];
+		int read;
+		while ((read = inputStream.read(buffer)) != -1) {
+			outputStream.write(buffer, 0, read);
+		}
+		return outputStream.toString("UTF-8");
+	}
+}
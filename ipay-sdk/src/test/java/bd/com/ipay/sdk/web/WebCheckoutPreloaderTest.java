@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 iPay Systems Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bd.com.ipay.sdk.web;
+
+import android.content.MutableContextWrapper;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class WebCheckoutPreloaderTest {
+	private static final String CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-1";
+	private static final String OTHER_CHECKOUT_URL = "https://app.ipay.com.bd/checkout/pay/IPAY-2";
+
+	@After
+	public void tearDown() {
+		WebCheckoutPreloader.evictAll();
+		WebCheckoutPreloader.setMaxPreloadedPages(WebCheckoutPreloader.DEFAULT_MAX_PRELOADED_PAGES);
+		WebCheckoutPreloader.setTimeToLiveMillis(WebCheckoutPreloader.DEFAULT_TIME_TO_LIVE_MILLIS);
+	}
+
+	@Test
+	public void testPreloadedWebViewIsTakenOnce() {
+		WebCheckoutPreloader.preload(RuntimeEnvironment.application, CHECKOUT_URL);
+		assertEquals(1, WebCheckoutPreloader.size());
+
+		final WebView webView = WebCheckoutPreloader.take(RuntimeEnvironment.application, CHECKOUT_URL);
+		assertNotNull(webView);
+		assertSame(RuntimeEnvironment.application, ((MutableContextWrapper) webView.getContext()).getBaseContext());
+		assertNull(WebCheckoutPreloader.take(RuntimeEnvironment.application, CHECKOUT_URL));
+		assertEquals(0, WebCheckoutPreloader.size());
+		webView.destroy();
+	}
+
+	@Test
+	public void testPageEventsAreReplayedToTheAttachedClient() {
+		WebCheckoutPreloader.preload(RuntimeEnvironment.application, CHECKOUT_URL);
+		final WebCheckoutPreloader.PreloadedPage preloadedPage =
+				WebCheckoutPreloader.takePage(RuntimeEnvironment.application, CHECKOUT_URL);
+		assertNotNull(preloadedPage);
+		final WebView webView = preloadedPage.getWebView();
+
+		// Events of the page before the screen has set its own client on the web view.
+		final WebViewClient preloadWebViewClient = Shadows.shadowOf(webView).getWebViewClient();
+		preloadWebViewClient.onPageStarted(webView, CHECKOUT_URL, null);
+		preloadWebViewClient.onPageFinished(webView, CHECKOUT_URL);
+
+		final List<String> events = new ArrayList<>();
+		final WebViewClient webViewClient = new WebViewClient() {
+			@Override
+			public void onPageStarted(WebView view, String url, Bitmap favicon) {
+				events.add("started " + url);
+			}
+
+			@Override
+			public void onPageFinished(WebView view, String url) {
+				events.add("finished " + url);
+			}
+		};
+		webView.setWebViewClient(webViewClient);
+		preloadedPage.replayPageEvents(webViewClient, null);
+		assertEquals(Arrays.asList("started " + CHECKOUT_URL, "finished " + CHECKOUT_URL), events);
+
+		// Every event is delivered once.
+		preloadedPage.replayPageEvents(webViewClient, null);
+		assertEquals(2, events.size());
+		webView.destroy();
+	}
+
+	@Test
+	public void testOldestPageIsEvictedOverTheLimit() {
+		WebCheckoutPreloader.preload(RuntimeEnvironment.application, CHECKOUT_URL);
+		WebCheckoutPreloader.preload(RuntimeEnvironment.application, OTHER_CHECKOUT_URL);
+		assertEquals(1, WebCheckoutPreloader.size());
+		assertNull(WebCheckoutPreloader.take(RuntimeEnvironment.application, CHECKOUT_URL));
+		assertNotNull(WebCheckoutPreloader.take(RuntimeEnvironment.application, OTHER_CHECKOUT_URL));
+	}
+
+	@Test
+	public void testExpiredPageIsNotTaken() {
+		WebCheckoutPreloader.setTimeToLiveMillis(1000);
+		WebCheckoutPreloader.preload(RuntimeEnvironment.application, CHECKOUT_URL);
+		SystemClock.sleep(1000);
+		assertNull(WebCheckoutPreloader.take(RuntimeEnvironment.application, CHECKOUT_URL));
+		assertEquals(0, WebCheckoutPreloader.size());
+	}
+
+	@Test
+	public void testPreloadingCanBeDisabled() {
+		WebCheckoutPreloader.setMaxPreloadedPages(0);
+		WebCheckoutPreloader.preload(RuntimeEnvironment.application, CHECKOUT_URL);
+		assertEquals(0, WebCheckoutPreloader.size());
+	}
+}